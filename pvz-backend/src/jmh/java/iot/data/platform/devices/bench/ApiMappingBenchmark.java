@@ -0,0 +1,57 @@
+package iot.data.platform.devices.bench;
+
+import iot.data.platform.devices.api.DeviceStateResponse;
+import iot.data.platform.devices.core.AggregatedPoint;
+import iot.data.platform.devices.core.DeviceState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ApiMappingBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int devices;
+
+    private List<DeviceState> states;
+    private Object timestampBucket;
+    private Object instantBucket;
+
+    @Setup
+    public void setUp() {
+        states = DeviceFixtures.states(devices);
+        Instant now = Instant.now();
+        timestampBucket = Timestamp.from(now);
+        instantBucket = now;
+    }
+
+    @Benchmark
+    public List<DeviceStateResponse> deviceStateResponseFrom() {
+        return states.stream()
+                .map(DeviceStateResponse::from)
+                .toList();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public AggregatedPoint aggregatedPointFromTimestamp() {
+        return new AggregatedPoint(timestampBucket, 21.5, 48.0, 60L, 58L, 2L);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public AggregatedPoint aggregatedPointFromInstant() {
+        return new AggregatedPoint(instantBucket, 21.5, 48.0, 60L, 58L, 2L);
+    }
+}
@@ -0,0 +1,73 @@
+package iot.data.platform.devices.bench;
+
+import iot.data.platform.devices.core.DeviceState;
+import iot.data.platform.devices.infra.RedisKeys;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+final class DeviceFixtures {
+    static final String ENV = "prod";
+    static final String TENANT = "tenant-1";
+
+    private DeviceFixtures() {
+    }
+
+    static String deviceId(int i) {
+        return String.format("device-%06d", i);
+    }
+
+    static InMemoryRedisTemplate redisWithDevices(int devices) {
+        Random random = new Random(42);
+        InMemoryRedisTemplate redis = new InMemoryRedisTemplate();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < devices; i++) {
+            String id = deviceId(i);
+            Map<String, String> hash = new HashMap<>();
+            hash.put("d", id);
+            hash.put("env", ENV);
+            hash.put("tenant", TENANT);
+            hash.put("lat", Double.toString(55.5 + random.nextDouble()));
+            hash.put("lon", Double.toString(37.3 + random.nextDouble()));
+            hash.put("h", Double.toString(20 + random.nextDouble() * 60));
+            hash.put("t", Double.toString(-5 + random.nextDouble() * 35));
+            hash.put("ts_ht", Long.toString(now - random.nextInt(600_000)));
+            hash.put("rssi", Long.toString(-40 - random.nextInt(80)));
+            hash.put("snr", Double.toString(random.nextDouble() * 12));
+            hash.put("bat", Double.toString(3.2 + random.nextDouble()));
+            hash.put("online", Boolean.toString(random.nextInt(10) > 0));
+            hash.put("ts_state", Long.toString(now - random.nextInt(600_000)));
+            hash.put("redis_key", RedisKeys.deviceState(ENV, TENANT, id));
+            redis.putHash(RedisKeys.deviceState(ENV, TENANT, id), hash);
+            redis.addToZSet(RedisKeys.devicesSet(ENV, TENANT), id);
+        }
+        return redis;
+    }
+
+    static List<DeviceState> states(int devices) {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        List<DeviceState> result = new ArrayList<>(devices);
+        for (int i = 0; i < devices; i++) {
+            result.add(new DeviceState(
+                    deviceId(i),
+                    ENV,
+                    TENANT,
+                    55.5 + random.nextDouble(),
+                    37.3 + random.nextDouble(),
+                    20 + random.nextDouble() * 60,
+                    -5 + random.nextDouble() * 35,
+                    now - random.nextInt(600_000),
+                    (long) (-40 - random.nextInt(80)),
+                    random.nextDouble() * 12,
+                    3.2 + random.nextDouble(),
+                    random.nextInt(10) > 0,
+                    now - random.nextInt(600_000)
+            ));
+        }
+        return result;
+    }
+}
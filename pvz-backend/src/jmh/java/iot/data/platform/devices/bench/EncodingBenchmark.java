@@ -0,0 +1,100 @@
+package iot.data.platform.devices.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import iot.data.platform.devices.api.DeviceStatesView;
+import iot.data.platform.devices.api.SnapshotColumnsView;
+import iot.data.platform.devices.core.TenantSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization CPU of each {@code /devices} encoding, and of gzipping it, per snapshot. Bytes on
+ * the wire are printed once per trial, raw and gzipped, since JMH only measures time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodingBenchmark {
+    @Param({"10000"})
+    public int devices;
+
+    private ObjectMapper jsonMapper;
+    private ObjectMapper cborMapper;
+    private DeviceStatesView rows;
+    private SnapshotColumnsView columns;
+    private byte[] jsonRowsBytes;
+    private byte[] columnsCborBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        cborMapper = new CBORMapper();
+        TenantSnapshot snapshot = TenantSnapshot.of(DeviceFixtures.ENV, DeviceFixtures.TENANT, DeviceFixtures.states(devices));
+        rows = new DeviceStatesView(snapshot);
+        columns = new SnapshotColumnsView(snapshot, "0-" + snapshot.version(), false);
+        jsonRowsBytes = jsonMapper.writeValueAsBytes(rows);
+        columnsCborBytes = cborMapper.writeValueAsBytes(columns);
+
+        report("json rows", jsonRowsBytes);
+        report("cbor rows", cborMapper.writeValueAsBytes(rows));
+        report("json columns", jsonMapper.writeValueAsBytes(columns));
+        report("cbor columns", columnsCborBytes);
+    }
+
+    @Benchmark
+    public byte[] jsonRows() throws IOException {
+        return jsonMapper.writeValueAsBytes(rows);
+    }
+
+    @Benchmark
+    public byte[] cborRows() throws IOException {
+        return cborMapper.writeValueAsBytes(rows);
+    }
+
+    @Benchmark
+    public byte[] jsonColumns() throws IOException {
+        return jsonMapper.writeValueAsBytes(columns);
+    }
+
+    @Benchmark
+    public byte[] cborColumns() throws IOException {
+        return cborMapper.writeValueAsBytes(columns);
+    }
+
+    /** What the container pays per response without the encoded-body cache. */
+    @Benchmark
+    public byte[] gzipJsonRows() throws IOException {
+        return gzip(jsonRowsBytes);
+    }
+
+    @Benchmark
+    public byte[] gzipCborColumns() throws IOException {
+        return gzip(columnsCborBytes);
+    }
+
+    private void report(String encoding, byte[] bytes) throws IOException {
+        System.out.printf("%n%-13s %,10d devices: %,12d bytes, %,12d gzipped%n",
+                encoding, devices, bytes.length, gzip(bytes).length);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out, 8192)) {
+            gz.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,97 @@
+package iot.data.platform.devices.bench;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import iot.data.platform.devices.core.DeviceState;
+import iot.data.platform.devices.core.TenantChangeLog;
+import iot.data.platform.devices.infra.InMemoryDeviceStateStore;
+import iot.data.platform.devices.infra.KafkaDeviceStateConsumer;
+import iot.data.platform.devices.infra.RedisDeviceIndex;
+import iot.data.platform.devices.infra.RedisDeviceRepository;
+import iot.data.platform.devices.infra.RedisNearCache;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same reads as {@link RedisDeviceRepositoryBenchmark}, served from the Kafka-fed in-memory store,
+ * plus the per-record cost of applying an {@code mqtt_enriched} record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InMemoryDeviceStateStoreBenchmark {
+    private static final Schema ENRICHED = SchemaBuilder.record("mqtt_enriched").fields()
+            .optionalString("d").optionalString("env").optionalString("tenant")
+            .optionalDouble("lat").optionalDouble("lon").optionalDouble("h").optionalDouble("t")
+            .optionalLong("ts_ht").optionalLong("rssi").optionalDouble("snr").optionalDouble("bat")
+            .optionalBoolean("online").optionalLong("ts_state").optionalString("redis_key")
+            .endRecord();
+
+    @Param({"100", "10000", "100000"})
+    public int devices;
+
+    private InMemoryDeviceStateStore store;
+    private GenericRecord[] records;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        InMemoryRedisTemplate redis = DeviceFixtures.redisWithDevices(devices);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RedisDeviceIndex index = new RedisDeviceIndex(redis, 1000, 30_000, meterRegistry);
+        RedisDeviceRepository repository = new RedisDeviceRepository(
+                redis, index, new RedisNearCache(null, false, 0, 0, meterRegistry), 500, Runnable::run, meterRegistry);
+        store = new InMemoryDeviceStateStore(repository, new TenantChangeLog(200_000, meterRegistry), Duration.ofMinutes(10), 1000, meterRegistry);
+        store.findAllByTenant(DeviceFixtures.ENV, DeviceFixtures.TENANT);
+
+        records = new GenericRecord[Math.min(devices, 1024)];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < records.length; i++) {
+            GenericRecord r = new GenericData.Record(ENRICHED);
+            r.put("d", DeviceFixtures.deviceId(i));
+            r.put("env", DeviceFixtures.ENV);
+            r.put("tenant", DeviceFixtures.TENANT);
+            r.put("lat", 55.7);
+            r.put("lon", 37.6);
+            r.put("h", 41.5);
+            r.put("t", 18.25);
+            r.put("ts_ht", now + i);
+            r.put("rssi", -70L);
+            r.put("snr", 7.5);
+            r.put("bat", 3.9);
+            r.put("online", true);
+            r.put("ts_state", now + i);
+            records[i] = r;
+        }
+    }
+
+    @Benchmark
+    public List<DeviceState> findAllByTenant() {
+        return store.findAllByTenant(DeviceFixtures.ENV, DeviceFixtures.TENANT);
+    }
+
+    @Benchmark
+    public DeviceState findById() {
+        next = (next + 1) % devices;
+        return store.findById(DeviceFixtures.ENV, DeviceFixtures.TENANT, DeviceFixtures.deviceId(next));
+    }
+
+    @Benchmark
+    public void applyEnrichedRecord() {
+        next = (next + 1) % records.length;
+        store.apply(KafkaDeviceStateConsumer.toDeviceState(records[next]));
+    }
+}
@@ -0,0 +1,123 @@
+package iot.data.platform.devices.bench;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minimal in-memory stand-in for the Redis commands {@code RedisDeviceRepository} issues: hash reads
+ * (HGETALL/HMGET, also inside pipelines) and sorted-set range/add/remove for the device index.
+ */
+public class InMemoryRedisTemplate extends RedisTemplate<String, String> {
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Set<String>> zsets = new HashMap<>();
+
+    public InMemoryRedisTemplate() {
+        setKeySerializer(RedisSerializer.string());
+        setValueSerializer(RedisSerializer.string());
+        setHashKeySerializer(RedisSerializer.string());
+        setHashValueSerializer(RedisSerializer.string());
+    }
+
+    public void putHash(String key, Map<String, String> fields) {
+        hashes.put(key, fields);
+    }
+
+    public void addToZSet(String key, String member) {
+        zsets.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(member);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+        return (HashOperations<String, HK, HV>) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{HashOperations.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "entries" -> hashes.getOrDefault((String) args[0], Map.of());
+                    case "multiGet" -> multiGet((String) args[0], (Collection<String>) args[1]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ZSetOperations<String, String> opsForZSet() {
+        return (ZSetOperations<String, String>) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{ZSetOperations.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "range" -> zsets.getOrDefault((String) args[0], Set.of());
+                    case "add" -> {
+                        if (args[1] instanceof String member) addToZSet((String) args[0], member);
+                        yield true;
+                    }
+                    case "remove" -> {
+                        Set<String> set = zsets.get((String) args[0]);
+                        long removed = 0;
+                        for (Object member : (Object[]) args[1]) {
+                            if (set != null && set.remove(member)) removed++;
+                        }
+                        yield removed;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Override
+    public List<Object> executePipelined(RedisCallback<?> action, RedisSerializer<?> resultSerializer) {
+        List<Object> results = new ArrayList<>();
+
+        RedisHashCommands hashCommands = (RedisHashCommands) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{RedisHashCommands.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("hMGet")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    byte[][] rawFields = (byte[][]) args[1];
+                    List<String> fields = new ArrayList<>(rawFields.length);
+                    for (byte[] f : rawFields) {
+                        fields.add(new String(f, StandardCharsets.UTF_8));
+                    }
+                    results.add(multiGet(new String((byte[]) args[0], StandardCharsets.UTF_8), fields));
+                    return null;
+                });
+
+        RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{RedisConnection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("hashCommands")) {
+                        return hashCommands;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        action.doInRedis(connection);
+        return results;
+    }
+
+    private List<String> multiGet(String key, Collection<String> fields) {
+        Map<String, String> hash = hashes.getOrDefault(key, Map.of());
+        List<String> values = new ArrayList<>(fields.size());
+        for (String f : fields) {
+            values.add(hash.get(f));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,52 @@
+package iot.data.platform.devices.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import iot.data.platform.devices.api.DeviceStateResponse;
+import iot.data.platform.devices.api.DeviceStatesView;
+import iot.data.platform.devices.core.DeviceState;
+import iot.data.platform.devices.core.TenantSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonSerializationBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int devices;
+
+    private ObjectMapper objectMapper;
+    private List<DeviceStateResponse> responses;
+    private DeviceStatesView snapshotView;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<DeviceState> states = DeviceFixtures.states(devices);
+        responses = states.stream()
+                .map(DeviceStateResponse::from)
+                .toList();
+        snapshotView = new DeviceStatesView(TenantSnapshot.of(DeviceFixtures.ENV, DeviceFixtures.TENANT, states));
+    }
+
+    @Benchmark
+    public byte[] serializeDeviceList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public byte[] serializeDeviceSnapshot() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(snapshotView);
+    }
+}
@@ -0,0 +1,55 @@
+package iot.data.platform.devices.bench;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import iot.data.platform.devices.core.DeviceState;
+import iot.data.platform.devices.core.TenantSnapshot;
+import iot.data.platform.devices.infra.RedisDeviceIndex;
+import iot.data.platform.devices.infra.RedisDeviceRepository;
+import iot.data.platform.devices.infra.RedisNearCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RedisDeviceRepositoryBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int devices;
+
+    private RedisDeviceRepository repository;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        InMemoryRedisTemplate redis = DeviceFixtures.redisWithDevices(devices);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RedisDeviceIndex index = new RedisDeviceIndex(redis, 1000, 30_000, meterRegistry);
+        repository = new RedisDeviceRepository(
+                redis, index, new RedisNearCache(null, false, 0, 0, meterRegistry), 500, Runnable::run, meterRegistry);
+    }
+
+    @Benchmark
+    public List<DeviceState> findAllByTenant() {
+        return repository.findAllByTenant(DeviceFixtures.ENV, DeviceFixtures.TENANT);
+    }
+
+    @Benchmark
+    public TenantSnapshot findSnapshotByTenant() {
+        return repository.findSnapshotByTenant(DeviceFixtures.ENV, DeviceFixtures.TENANT);
+    }
+
+    @Benchmark
+    public DeviceState findById() {
+        next = (next + 1) % devices;
+        return repository.findById(DeviceFixtures.ENV, DeviceFixtures.TENANT, DeviceFixtures.deviceId(next));
+    }
+}
@@ -2,8 +2,10 @@ package iot.data.platform;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PvzBackendApplication {
     public static void main(String[] args) {
         SpringApplication.run(PvzBackendApplication.class, args);
@@ -0,0 +1,37 @@
+package iot.data.platform.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfig {
+    /**
+     * Fan-out executor for blocking Redis reads. Tasks are cheap virtual threads; actual
+     * concurrency against Redis is bounded by the Lettuce connection pool.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService redisReadExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("redis-read-", 0).factory());
+    }
+
+    /**
+     * Runs keyspace notification listeners. Without it the listener container falls back to
+     * SimpleAsyncTaskExecutor and starts a platform thread per notification and listener.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService redisListenerExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("redis-listener-", 0).factory());
+    }
+
+    /**
+     * Fan-out executor for per-device-group database queries. Concurrency is bounded by the caller's
+     * parallelism setting and ultimately by the Hikari pool.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService queryExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("query-", 0).factory());
+    }
+}
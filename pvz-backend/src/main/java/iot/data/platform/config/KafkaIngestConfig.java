@@ -0,0 +1,45 @@
+package iot.data.platform.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import iot.data.platform.devices.infra.ConfluentAvroDeserializer;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@Configuration
+@ConditionalOnProperty(name = "pvz.ingest.kafka.enabled", havingValue = "true")
+public class KafkaIngestConfig {
+    @Value("${pvz.ingest.kafka.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    @Value("${pvz.ingest.kafka.schema-registry-url:http://localhost:8081}")
+    private String schemaRegistryUrl;
+
+    @Value("${pvz.ingest.kafka.max-poll-records:2000}")
+    private int maxPollRecords;
+
+    @Bean
+    public Supplier<Consumer<String, GenericRecord>> deviceStateConsumerFactory(ObjectMapper objectMapper) {
+        return () -> {
+            Map<String, Object> props = new HashMap<>();
+            props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+            props.put(ConsumerConfig.CLIENT_ID_CONFIG, "pvz-backend-state");
+            props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+            props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+            props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 64 * 1024);
+            props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 100);
+            return new KafkaConsumer<>(props, new StringDeserializer(),
+                    new ConfluentAvroDeserializer(schemaRegistryUrl, objectMapper));
+        };
+    }
+}
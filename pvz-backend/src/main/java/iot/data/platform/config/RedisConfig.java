@@ -1,13 +1,26 @@
 package iot.data.platform.config;
 
+import io.lettuce.core.api.StatefulConnection;
+import iot.data.platform.devices.infra.DeviceIndexListener;
+import iot.data.platform.devices.infra.DroughtIndexListener;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
 @Configuration
 public class RedisConfig {
     @Value("${spring.data.redis.host:redis}")
@@ -16,9 +29,33 @@ public class RedisConfig {
     @Value("${spring.data.redis.port:6379}")
     private int redisPort;
 
+    @Value("${pvz.redis.pool.max-active:32}")
+    private int poolMaxActive;
+
+    @Value("${pvz.redis.pool.min-idle:4}")
+    private int poolMinIdle;
+
+    @Value("${pvz.redis.pool.max-wait-ms:2000}")
+    private long poolMaxWaitMs;
+
+    /**
+     * Plain commands share one multiplexed native connection; pipelines and the keyspace listener
+     * need a dedicated connection each, which is borrowed from a bounded pool instead of being
+     * opened per call. With virtual threads the pool size, not the thread count, caps concurrent
+     * pipelines against Redis.
+     */
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
-        return new LettuceConnectionFactory(redisHost, redisPort);
+    public LettuceConnectionFactory redisConnectionFactory() {
+        GenericObjectPoolConfig<StatefulConnection<?, ?>> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal(poolMaxActive);
+        poolConfig.setMaxIdle(poolMaxActive);
+        poolConfig.setMinIdle(poolMinIdle);
+        poolConfig.setMaxWait(Duration.ofMillis(poolMaxWaitMs));
+
+        LettucePoolingClientConfiguration clientConfig = LettucePoolingClientConfiguration.builder()
+                .poolConfig(poolConfig)
+                .build();
+        return new LettuceConnectionFactory(new RedisStandaloneConfiguration(redisHost, redisPort), clientConfig);
     }
 
     @Bean
@@ -34,4 +71,28 @@ public class RedisConfig {
 
         return template;
     }
+
+    /**
+     * Reactive template over the same connection factory, for the non-blocking read path. Reactive
+     * commands always share the native connection, so they never borrow from the pool.
+     */
+    @Bean
+    public ReactiveStringRedisTemplate reactiveStringRedisTemplate(LettuceConnectionFactory connectionFactory) {
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            DeviceIndexListener deviceIndexListener,
+            DroughtIndexListener droughtIndexListener,
+            @Qualifier("redisListenerExecutor") Executor redisListenerExecutor
+    ) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(redisListenerExecutor);
+        container.addMessageListener(deviceIndexListener, new PatternTopic(DeviceIndexListener.STATE_KEYSPACE_PATTERN));
+        container.addMessageListener(droughtIndexListener, new PatternTopic(DroughtIndexListener.STREAK_KEYSPACE_PATTERN));
+        return container;
+    }
 }
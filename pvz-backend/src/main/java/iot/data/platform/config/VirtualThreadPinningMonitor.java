@@ -0,0 +1,82 @@
+package iot.data.platform.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Streams JFR {@code jdk.VirtualThreadPinned} events while the application runs, so a virtual thread
+ * that blocks while pinned to its carrier (a monitor held across I/O, a native frame) shows up as a
+ * metric and a log line with the offending frames instead of as unexplained tail latency.
+ */
+@Component
+@ConditionalOnProperty(name = "pvz.virtual-threads.pinning-monitor.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Duration threshold;
+    private final Counter pinnedEvents;
+    private final Timer pinnedTime;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(
+            @Value("${pvz.virtual-threads.pinning-monitor.threshold-ms:20}") long thresholdMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.threshold = Duration.ofMillis(thresholdMs);
+        this.pinnedEvents = meterRegistry.counter("pvz.jvm.virtual_threads.pinned");
+        this.pinnedTime = meterRegistry.timer("pvz.jvm.virtual_threads.pinned.duration");
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        pinnedTime.record(event.getDuration());
+
+        StringBuilder frames = new StringBuilder();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null) {
+            List<RecordedFrame> recorded = stackTrace.getFrames();
+            for (int i = 0; i < Math.min(LOGGED_FRAMES, recorded.size()); i++) {
+                RecordedFrame f = recorded.get(i);
+                frames.append("\n\tat ")
+                        .append(f.getMethod().getType().getName())
+                        .append('.')
+                        .append(f.getMethod().getName())
+                        .append(':')
+                        .append(f.getLineNumber());
+            }
+        }
+        log.warn("Virtual thread pinned for {} ms{}", event.getDuration().toMillis(), frames);
+    }
+}
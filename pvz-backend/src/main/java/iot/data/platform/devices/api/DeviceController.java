@@ -2,9 +2,19 @@ package iot.data.platform.devices.api;
 
 import iot.data.platform.devices.core.DeviceState;
 import iot.data.platform.devices.core.DeviceMetricsService;
+import iot.data.platform.devices.core.DownsampleMode;
 import iot.data.platform.devices.core.MetricsBucket;
+import iot.data.platform.devices.core.MetricsQueryCache;
+import iot.data.platform.devices.core.TenantChangeLog;
+import iot.data.platform.devices.core.TenantGeoGrid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -13,23 +23,115 @@ import java.util.List;
 public class DeviceController {
     private final DeviceService deviceService;
     private final DeviceMetricsService deviceMetricsService;
+    private final DeviceStreamHub deviceStreamHub;
+    private final DeviceMapService deviceMapService;
+    private final SnapshotBodyCache snapshotBodyCache;
+    private final int maxPointsLimit;
+    private final int droughtTopKLimit;
+    private final List<Double> droughtHistogramBounds;
+    private final int mapMaxDevices;
 
     public DeviceController(DeviceService deviceService,
-                            DeviceMetricsService deviceMetricsService) {
+                            DeviceMetricsService deviceMetricsService,
+                            DeviceStreamHub deviceStreamHub,
+                            DeviceMapService deviceMapService,
+                            SnapshotBodyCache snapshotBodyCache,
+                            @Value("${pvz.metrics.downsample.max-points-limit:10000}") int maxPointsLimit,
+                            @Value("${pvz.drought.top-k-limit:100}") int droughtTopKLimit,
+                            @Value("${pvz.drought.histogram-bounds-days:1,3,7,14,30}") List<Double> droughtHistogramBounds,
+                            @Value("${pvz.map.max-devices:2000}") int mapMaxDevices) {
         this.deviceService = deviceService;
         this.deviceMetricsService = deviceMetricsService;
+        this.deviceStreamHub = deviceStreamHub;
+        this.deviceMapService = deviceMapService;
+        this.snapshotBodyCache = snapshotBodyCache;
+        this.maxPointsLimit = maxPointsLimit;
+        this.droughtTopKLimit = droughtTopKLimit;
+        this.droughtHistogramBounds = droughtHistogramBounds.stream().sorted().toList();
+        this.mapMaxDevices = mapMaxDevices;
     }
 
+    /**
+     * The ETag is the tenant's change-log version token, so a poll with a current {@code If-None-Match}
+     * is answered 304 from memory, before any snapshot is read. The body format follows
+     * {@link SnapshotEncoding#fromAccept} and is served from {@link SnapshotBodyCache}.
+     */
     @GetMapping
-    public ResponseEntity<List<DeviceStateResponse>> getAllDevices(
+    public ResponseEntity<byte[]> getAllDevices(
+            @PathVariable String env,
+            @PathVariable String tenantId,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        return snapshotBody(env, tenantId, SnapshotBodyCache.View.DEVICES, accept, acceptEncoding, ifNoneMatch);
+    }
+
+    @GetMapping(params = "since")
+    public ResponseEntity<DeviceDeltaResponse> getDevicesSince(
+            @PathVariable String env,
+            @PathVariable String tenantId,
+            @RequestParam String since
+    ) {
+        TenantChangeLog.Delta delta = deviceService.getChangesSince(env, tenantId, since);
+        if (delta == null) {
+            long version = deviceService.getVersion(env, tenantId);
+            List<DeviceStateResponse> devices = deviceService.getAllDevices(env, tenantId).stream()
+                    .map(DeviceStateResponse::from)
+                    .toList();
+            return ResponseEntity.ok(new DeviceDeltaResponse(
+                    env, tenantId, deviceService.versionToken(version), true, devices, List.of()));
+        }
+        List<DeviceStateResponse> devices = delta.updated().isEmpty()
+                ? List.of()
+                : deviceService.getDevices(env, tenantId, delta.updated()).stream()
+                        .map(DeviceStateResponse::from)
+                        .toList();
+        return ResponseEntity.ok(new DeviceDeltaResponse(
+                env, tenantId, deviceService.versionToken(delta.version()), false, devices, delta.removed()));
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDevices(
             @PathVariable String env,
             @PathVariable String tenantId
     ) {
-        List<DeviceState> states = deviceService.getAllDevices(env, tenantId);
-        List<DeviceStateResponse> response = states.stream()
-                .map(DeviceStateResponse::from)
-                .toList();
-        return ResponseEntity.ok(response);
+        return deviceStreamHub.subscribe(env, tenantId);
+    }
+
+    @GetMapping("/map")
+    public ResponseEntity<MapDevicesView> getMapDevices(
+            @PathVariable String env,
+            @PathVariable String tenantId,
+            @RequestParam double south,
+            @RequestParam double west,
+            @RequestParam double north,
+            @RequestParam double east,
+            @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        TenantGeoGrid.Box box = box(south, west, north, east);
+        if (box == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        int max = limit == null ? mapMaxDevices : Math.max(1, Math.min(limit, mapMaxDevices));
+        return ResponseEntity.ok(deviceMapService.getDevices(env, tenantId, box, max));
+    }
+
+    @GetMapping("/map/clusters")
+    public ResponseEntity<MapClustersResponse> getMapClusters(
+            @PathVariable String env,
+            @PathVariable String tenantId,
+            @RequestParam double south,
+            @RequestParam double west,
+            @RequestParam double north,
+            @RequestParam double east,
+            @RequestParam int zoom
+    ) {
+        TenantGeoGrid.Box box = box(south, west, north, east);
+        if (box == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(deviceMapService.getClusters(env, tenantId, box, Math.max(0, Math.min(zoom, 22))));
     }
 
     @GetMapping("/{deviceId}")
@@ -52,10 +154,15 @@ public class DeviceController {
             @PathVariable String deviceId,
             @RequestParam(name = "bucket", defaultValue = "HOUR") MetricsBucket bucket,
             @RequestParam(name = "from", required = false) Long from,
-            @RequestParam(name = "to", required = false) Long to
+            @RequestParam(name = "to", required = false) Long to,
+            @RequestParam(name = "maxPoints", required = false) Integer maxPoints,
+            @RequestParam(name = "downsample", defaultValue = "LTTB") DownsampleMode downsample
     ) {
-        DeviceMetricsResponse response =
-                deviceMetricsService.getMetrics(env, tenantId, deviceId, bucket, from, to);
+        DeviceMetricsResponse response = maxPoints == null
+                ? deviceMetricsService.getMetrics(env, tenantId, deviceId, bucket, from, to)
+                : deviceMetricsService.getDownsampledMetrics(
+                        env, tenantId, deviceId, bucket, from, to,
+                        Math.max(4, Math.min(maxPoints, maxPointsLimit)), downsample);
         return ResponseEntity.ok(response);
     }
 
@@ -70,13 +177,14 @@ public class DeviceController {
     }
 
     @GetMapping("/recent")
-    public ResponseEntity<List<RecentDeviceSnapshotResponse>> getRecentSnapshots(
+    public ResponseEntity<byte[]> getRecentSnapshots(
             @PathVariable String env,
-            @PathVariable String tenantId
+            @PathVariable String tenantId,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
-        List<RecentDeviceSnapshotResponse> response =
-                deviceService.getRecentSnapshots(env, tenantId);
-        return ResponseEntity.ok(response);
+        return snapshotBody(env, tenantId, SnapshotBodyCache.View.RECENT, accept, acceptEncoding, ifNoneMatch);
     }
 
     @GetMapping("/{deviceId}/drought")
@@ -96,4 +204,62 @@ public class DeviceController {
     ) {
         return ResponseEntity.ok(deviceService.getDroughtSummary(env, tenantId));
     }
+
+    @GetMapping("/summary/drought/top")
+    public ResponseEntity<DroughtLeaderboardResponse> getDroughtLeaderboard(
+            @PathVariable String env,
+            @PathVariable String tenantId,
+            @RequestParam(name = "k", defaultValue = "10") int k
+    ) {
+        return ResponseEntity.ok(deviceService.getDroughtLeaderboard(
+                env, tenantId, Math.max(1, Math.min(k, droughtTopKLimit)), droughtHistogramBounds));
+    }
+
+    @GetMapping("/summary/metrics-cache")
+    public ResponseEntity<MetricsCacheStatsResponse> getMetricsCacheStats(
+            @PathVariable String env,
+            @PathVariable String tenantId
+    ) {
+        MetricsQueryCache.Stats stats = deviceMetricsService.getCacheStats(env, tenantId);
+        long lookups = stats.hits() + stats.misses();
+        return ResponseEntity.ok(new MetricsCacheStatsResponse(
+                env,
+                tenantId,
+                stats.hits(),
+                stats.misses(),
+                lookups == 0 ? null : (double) stats.hits() / lookups
+        ));
+    }
+
+    private ResponseEntity<byte[]> snapshotBody(String env, String tenantId, SnapshotBodyCache.View view,
+                                                String accept, String acceptEncoding, String ifNoneMatch) {
+        SnapshotEncoding encoding = SnapshotEncoding.fromAccept(accept);
+        String current = encoding.etag(deviceService.versionToken(deviceService.getVersion(env, tenantId)));
+        if (ifNoneMatch != null && ifNoneMatch.contains(current)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(current)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        SnapshotBodyCache.Body body = snapshotBodyCache.get(env, tenantId, view, encoding);
+        boolean gzip = body.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(encoding.mediaType())
+                .eTag(encoding.etag(deviceService.versionToken(body.version())))
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? body.gzip() : body.bytes());
+    }
+
+    /** Leaflet bounds; {@code west > east} is a box crossing the antimeridian. */
+    private static TenantGeoGrid.Box box(double south, double west, double north, double east) {
+        if (!(south <= north) || south < -90 || north > 90 || west < -180 || west > 180 || east < -180 || east > 180) {
+            return null;
+        }
+        return new TenantGeoGrid.Box(south, west, north, east);
+    }
 }
@@ -0,0 +1,17 @@
+package iot.data.platform.devices.api;
+
+import java.util.List;
+
+/**
+ * Devices changed after the requested version token; {@code version} is the token to send as the next
+ * {@code since}. {@code full} means the change log could not answer (stale, foreign or future token)
+ * and {@code devices} is the whole tenant, to be applied as a reset.
+ */
+public record DeviceDeltaResponse(
+        String env,
+        String tenantId,
+        String version,
+        boolean full,
+        List<DeviceStateResponse> devices,
+        List<String> removed
+) {}
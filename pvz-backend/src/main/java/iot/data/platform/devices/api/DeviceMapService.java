@@ -0,0 +1,92 @@
+package iot.data.platform.devices.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import iot.data.platform.devices.core.TenantGeoGrid;
+import iot.data.platform.devices.core.TenantSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Viewport queries for the map. Each tenant's {@link TenantGeoGrid} is kept next to the snapshot it
+ * was built from. At most once per {@code grid-max-age-ms} the tenant's change-log version is
+ * compared with the snapshot's; only when it moved is a snapshot fetched (from Redis when the
+ * in-memory store is not serving) and the grid rebuilt. Map requests then cost in proportion to the
+ * viewport (cells and devices inside it), not to the tenant.
+ */
+@Service
+public class DeviceMapService {
+    /** Clusters are cells three levels below the map zoom: 8 x 8 per 256 px tile, about 32 px apart. */
+    private static final int CLUSTER_LEVEL_OFFSET = 3;
+
+    private record TenantKey(String env, String tenantId) {
+    }
+
+    private record CachedGrid(TenantGeoGrid grid, long checkedAtMs) {
+    }
+
+    private final DeviceService deviceService;
+    private final long gridMaxAgeMs;
+    private final Map<TenantKey, CachedGrid> grids = new ConcurrentHashMap<>();
+    private final Counter gridBuilds;
+
+    public DeviceMapService(DeviceService deviceService,
+                            @Value("${pvz.map.grid-max-age-ms:1000}") long gridMaxAgeMs,
+                            MeterRegistry meterRegistry) {
+        this.deviceService = deviceService;
+        this.gridMaxAgeMs = gridMaxAgeMs;
+        this.gridBuilds = meterRegistry.counter("pvz.map.grid.builds");
+    }
+
+    public MapDevicesView getDevices(String env, String tenantId, TenantGeoGrid.Box box, int limit) {
+        TenantGeoGrid grid = grid(env, tenantId);
+        TenantGeoGrid.Hits hits = grid.within(box, limit);
+        return new MapDevicesView(grid.snapshot(), hits.rows(), hits.truncated());
+    }
+
+    public MapClustersResponse getClusters(String env, String tenantId, TenantGeoGrid.Box box, int zoom) {
+        TenantGeoGrid grid = grid(env, tenantId);
+        TenantSnapshot snapshot = grid.snapshot();
+        List<TenantGeoGrid.Cluster> cells = grid.clusters(box, zoom + CLUSTER_LEVEL_OFFSET);
+
+        List<MapClusterResponse> clusters = new ArrayList<>(cells.size());
+        int devices = 0;
+        for (TenantGeoGrid.Cluster c : cells) {
+            devices += c.count();
+            clusters.add(new MapClusterResponse(c.lat(), c.lon(), c.count(), c.online(), c.avgHumidity(),
+                    c.row() < 0 ? null : snapshot.deviceId(c.row())));
+        }
+        return new MapClustersResponse(env, tenantId, zoom, devices, clusters);
+    }
+
+    private TenantGeoGrid grid(String env, String tenantId) {
+        TenantKey key = new TenantKey(env, tenantId);
+        long now = System.currentTimeMillis();
+        CachedGrid cached = grids.get(key);
+        if (cached != null && now - cached.checkedAtMs < gridMaxAgeMs) {
+            return cached.grid;
+        }
+
+        if (cached != null && cached.grid.snapshot().version() == deviceService.getVersion(env, tenantId)) {
+            grids.put(key, new CachedGrid(cached.grid, now));
+            return cached.grid;
+        }
+
+        TenantSnapshot snapshot = deviceService.getSnapshot(env, tenantId);
+        TenantGeoGrid grid;
+        // The in-memory store may still hand out its previous snapshot within its own max age.
+        if (cached != null && cached.grid.snapshot() == snapshot) {
+            grid = cached.grid;
+        } else {
+            gridBuilds.increment();
+            grid = TenantGeoGrid.of(snapshot);
+        }
+        grids.put(key, new CachedGrid(grid, now));
+        return grid;
+    }
+}
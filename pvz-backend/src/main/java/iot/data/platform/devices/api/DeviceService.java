@@ -1,26 +1,77 @@
 package iot.data.platform.devices.api;
 
 import iot.data.platform.devices.core.DeviceState;
+import iot.data.platform.devices.core.DeviceStateChangedEvent;
+import iot.data.platform.devices.core.TenantChangeLog;
+import iot.data.platform.devices.core.TenantSnapshot;
+import iot.data.platform.devices.infra.InMemoryDeviceStateStore;
+import iot.data.platform.devices.infra.KafkaDeviceStateConsumer;
 import iot.data.platform.devices.infra.RedisDeviceRepository;
+import iot.data.platform.devices.infra.RedisDroughtIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * Device reads for the servlet API. With Kafka ingest enabled they are served from
+ * {@link InMemoryDeviceStateStore} while {@link KafkaDeviceStateConsumer} is caught up, and from Redis
+ * otherwise, where the Connect sink keeps writing regardless.
+ */
 @Service
 public class DeviceService {
     private final RedisDeviceRepository redisDeviceRepository;
+    private final RedisDroughtIndex droughtIndex;
+    private final InMemoryDeviceStateStore stateStore;
+    private final KafkaDeviceStateConsumer consumer;
+    private final TenantChangeLog changeLog;
 
-    public DeviceService(RedisDeviceRepository redisDeviceRepository) {
+    public DeviceService(RedisDeviceRepository redisDeviceRepository,
+                         RedisDroughtIndex droughtIndex,
+                         ObjectProvider<InMemoryDeviceStateStore> stateStore,
+                         ObjectProvider<KafkaDeviceStateConsumer> consumer,
+                         TenantChangeLog changeLog) {
         this.redisDeviceRepository = redisDeviceRepository;
+        this.droughtIndex = droughtIndex;
+        this.stateStore = stateStore.getIfAvailable();
+        this.consumer = consumer.getIfAvailable();
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Redis keyspace changes drive the change log unless the in-memory store records its own, which
+     * it does not while reads fall back to Redis.
+     */
+    @EventListener
+    public void onDeviceStateChanged(DeviceStateChangedEvent event) {
+        if (memory() == null) {
+            changeLog.record(event.env(), event.tenantId(), event.deviceId(), event.removed());
+        }
     }
 
     public List<DeviceState> getAllDevices(String env, String tenantId) {
+        InMemoryDeviceStateStore memory = memory();
+        if (memory != null) {
+            return memory.findAllByTenant(env, tenantId);
+        }
         return redisDeviceRepository.findAllByTenant(env, tenantId);
     }
 
+    public List<DeviceState> getDevices(String env, String tenantId, Collection<String> deviceIds) {
+        InMemoryDeviceStateStore memory = memory();
+        if (memory != null) {
+            return memory.findByIds(env, tenantId, deviceIds);
+        }
+        return redisDeviceRepository.findByIds(env, tenantId, deviceIds);
+    }
+
     public DeviceState getDevice(String env, String tenantId, String deviceId) {
+        InMemoryDeviceStateStore memory = memory();
+        if (memory != null) {
+            return memory.findById(env, tenantId, deviceId);
+        }
         return redisDeviceRepository.findById(env, tenantId, deviceId);
     }
 
@@ -33,37 +84,38 @@ public class DeviceService {
     }
 
     public DroughtSummaryResponse getDroughtSummary(String env, String tenantId) {
-        return redisDeviceRepository.findDroughtSummary(env, tenantId);
+        return droughtIndex.summary(env, tenantId);
     }
 
-    public List<RecentDeviceSnapshotResponse> getRecentSnapshots(
-            String env,
-            String tenantId
-    ) {
-        List<DeviceState> states = redisDeviceRepository.findAllByTenant(env, tenantId);
-
-        List<RecentDeviceSnapshotResponse> result = new ArrayList<>();
-
-        for (DeviceState s : states) {
-            Long tsHt = s.tsHt();
-            Long tsState = s.tsState();
-
-            long lastSeen = 0L;
-            if (tsHt != null) lastSeen = tsHt;
-            if (tsState != null) lastSeen = Math.max(lastSeen, tsState);
-
-            result.add(new RecentDeviceSnapshotResponse(
-                    s.deviceId(),
-                    lastSeen,
-                    s.t(),
-                    s.h(),
-                    s.online(),
-                    s.rssi() == null ? null : s.rssi().intValue(),
-                    s.snr(),
-                    s.bat()
-            ));
+    public DroughtLeaderboardResponse getDroughtLeaderboard(String env, String tenantId, int k, List<Double> boundsDays) {
+        return droughtIndex.leaderboard(env, tenantId, k, boundsDays);
+    }
+
+    public TenantSnapshot getSnapshot(String env, String tenantId) {
+        InMemoryDeviceStateStore memory = memory();
+        if (memory != null) {
+            return memory.snapshot(env, tenantId);
         }
+        long version = changeLog.version(env, tenantId);
+        return redisDeviceRepository.findSnapshotByTenant(env, tenantId).withVersion(version);
+    }
+
+    public long getVersion(String env, String tenantId) {
+        return changeLog.version(env, tenantId);
+    }
+
+    /** {@code version} as handed to clients, see {@link TenantChangeLog#token}. */
+    public String versionToken(long version) {
+        return changeLog.token(version);
+    }
+
+    /** Changes after {@code since}, or {@code null} when the log cannot tell and the client must resync. */
+    public TenantChangeLog.Delta getChangesSince(String env, String tenantId, String since) {
+        return changeLog.since(env, tenantId, since);
+    }
 
-        return result;
+    /** The in-memory store while it reflects the topic, else {@code null} to read from Redis. */
+    private InMemoryDeviceStateStore memory() {
+        return stateStore != null && consumer != null && consumer.isCaughtUp() ? stateStore : null;
     }
 }
@@ -0,0 +1,30 @@
+package iot.data.platform.devices.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import iot.data.platform.devices.core.TenantSnapshot;
+
+import java.io.IOException;
+
+/**
+ * {@code GET /devices} body backed by a {@link TenantSnapshot}. Serializes to the same array of
+ * {@link DeviceStateResponse} objects, written field by field from the snapshot columns.
+ */
+@JsonSerialize(using = DeviceStatesView.Serializer.class)
+public record DeviceStatesView(TenantSnapshot snapshot) {
+
+    static final class Serializer extends JsonSerializer<DeviceStatesView> {
+        @Override
+        public void serialize(DeviceStatesView view, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            TenantSnapshot s = view.snapshot();
+            gen.writeStartArray(view, s.size());
+            for (int row = 0; row < s.size(); row++) {
+                SnapshotJson.writeDeviceState(gen, s, row);
+            }
+            gen.writeEndArray();
+        }
+    }
+}
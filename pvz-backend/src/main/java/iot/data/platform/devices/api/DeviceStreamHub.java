@@ -0,0 +1,333 @@
+package iot.data.platform.devices.api;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import iot.data.platform.devices.core.DeviceState;
+import iot.data.platform.devices.core.DeviceStateChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fans device state changes out to SSE subscribers.
+ * <p>
+ * Each tenant with at least one subscriber has a single {@link TenantStream} that collects changed
+ * device ids from {@link DeviceStateChangedEvent}s, reads them from Redis once per flush and pushes
+ * only the states that actually changed to every subscriber. Subscribers conflate pending updates per
+ * device, so a slow client gets the latest state instead of an ever-growing backlog and never blocks
+ * the flush.
+ */
+@Component
+public class DeviceStreamHub {
+    private record TenantKey(String env, String tenantId) {
+    }
+
+    private final DeviceService deviceService;
+    private final long emitterTimeoutMs;
+    private final ExecutorService sendExecutor;
+    private final Map<TenantKey, TenantStream> streams = new ConcurrentHashMap<>();
+
+    public DeviceStreamHub(
+            DeviceService deviceService,
+            @Value("${pvz.stream.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.deviceService = deviceService;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        // One virtual thread per drain: a subscriber blocked on a slow socket no longer holds a
+        // platform thread that other subscribers are waiting for.
+        this.sendExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("device-stream-sender-", 0).factory());
+        Gauge.builder("pvz.stream.tenants", streams, Map::size).register(meterRegistry);
+        Gauge.builder("pvz.stream.subscribers", streams,
+                m -> m.values().stream().mapToInt(s -> s.subscribers.size()).sum()).register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(String env, String tenantId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        TenantKey key = new TenantKey(env, tenantId);
+        Subscriber subscriber = new Subscriber(emitter);
+
+        TenantStream stream = streams.compute(key, (k, existing) -> {
+            TenantStream s = existing != null ? existing : new TenantStream(env, tenantId);
+            s.subscribers.add(subscriber);
+            return s;
+        });
+
+        Runnable unsubscribe = () -> unsubscribe(key, subscriber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+
+        stream.attach(subscriber);
+        return emitter;
+    }
+
+    @EventListener
+    public void onDeviceStateChanged(DeviceStateChangedEvent event) {
+        TenantStream stream = streams.get(new TenantKey(event.env(), event.tenantId()));
+        if (stream != null) {
+            stream.changed.put(event.deviceId(), event.removed());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pvz.stream.flush-interval-ms:1000}")
+    public void flush() {
+        for (TenantStream stream : streams.values()) {
+            stream.flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pvz.stream.summary-interval-ms:10000}")
+    public void refreshSummaries() {
+        for (TenantStream stream : streams.values()) {
+            stream.refreshSummaries();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+        for (TenantStream stream : streams.values()) {
+            for (Subscriber s : stream.subscribers) {
+                s.emitter.complete();
+            }
+        }
+    }
+
+    private void unsubscribe(TenantKey key, Subscriber subscriber) {
+        subscriber.closed = true;
+        streams.computeIfPresent(key, (k, s) -> {
+            s.subscribers.remove(subscriber);
+            return s.subscribers.isEmpty() ? null : s;
+        });
+    }
+
+    private final class TenantStream {
+        private final String env;
+        private final String tenantId;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final Map<String, Boolean> changed = new ConcurrentHashMap<>();
+        private final Map<String, DeviceStateResponse> current = new LinkedHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile RecentSummaryResponse summary;
+        private volatile DroughtSummaryResponse drought;
+        private volatile boolean loaded;
+
+        private TenantStream(String env, String tenantId) {
+            this.env = env;
+            this.tenantId = tenantId;
+        }
+
+        private void ensureLoaded() {
+            if (loaded) return;
+            for (DeviceState state : deviceService.getAllDevices(env, tenantId)) {
+                current.put(state.deviceId(), DeviceStateResponse.from(state));
+            }
+            summary = deviceService.getRecentSummary(env, tenantId);
+            drought = deviceService.getDroughtSummary(env, tenantId);
+            loaded = true;
+        }
+
+        private void attach(Subscriber subscriber) {
+            lock.lock();
+            try {
+                ensureLoaded();
+                subscriber.offerSnapshot(new ArrayList<>(current.values()), summary, drought);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flush() {
+            if (!loaded || changed.isEmpty()) return;
+            lock.lock();
+            try {
+                flushChanged();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Reads the changed devices from Redis while holding {@link #lock}. This is a
+         * {@link ReentrantLock} rather than a monitor because {@link #attach} runs on request threads,
+         * which are virtual, and blocking I/O inside {@code synchronized} would pin their carrier.
+         */
+        private void flushChanged() {
+            Set<String> updatedIds = new LinkedHashSet<>();
+            Set<String> removedIds = new LinkedHashSet<>();
+            for (String deviceId : new ArrayList<>(changed.keySet())) {
+                Boolean removed = changed.remove(deviceId);
+                if (Boolean.TRUE.equals(removed)) {
+                    removedIds.add(deviceId);
+                } else {
+                    updatedIds.add(deviceId);
+                }
+            }
+
+            List<DeviceStateResponse> updates = new ArrayList<>();
+            for (DeviceState state : deviceService.getDevices(env, tenantId, updatedIds)) {
+                DeviceStateResponse response = DeviceStateResponse.from(state);
+                if (!response.equals(current.put(state.deviceId(), response))) {
+                    updates.add(response);
+                }
+            }
+
+            List<String> removals = new ArrayList<>();
+            for (String deviceId : removedIds) {
+                if (current.remove(deviceId) != null) {
+                    removals.add(deviceId);
+                }
+            }
+
+            if (updates.isEmpty() && removals.isEmpty()) return;
+            for (Subscriber s : subscribers) {
+                s.offerChanges(updates, removals);
+            }
+        }
+
+        private void refreshSummaries() {
+            if (!loaded) return;
+
+            RecentSummaryResponse newSummary = deviceService.getRecentSummary(env, tenantId);
+            DroughtSummaryResponse newDrought = deviceService.getDroughtSummary(env, tenantId);
+            RecentSummaryResponse summaryChange = Objects.equals(newSummary, summary) ? null : newSummary;
+            DroughtSummaryResponse droughtChange = Objects.equals(newDrought, drought) ? null : newDrought;
+            summary = newSummary;
+            drought = newDrought;
+
+            for (Subscriber s : subscribers) {
+                s.offerSummaries(summaryChange, droughtChange);
+            }
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private List<DeviceStateResponse> pendingSnapshot;
+        private final Map<String, DeviceStateResponse> pendingUpdates = new LinkedHashMap<>();
+        private final Set<String> pendingRemovals = new LinkedHashSet<>();
+        private RecentSummaryResponse pendingSummary;
+        private DroughtSummaryResponse pendingDrought;
+        private boolean pendingHeartbeat;
+        private boolean draining;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offerSnapshot(
+                List<DeviceStateResponse> snapshot,
+                RecentSummaryResponse summary,
+                DroughtSummaryResponse drought
+        ) {
+            synchronized (this) {
+                pendingSnapshot = snapshot;
+                pendingUpdates.clear();
+                pendingRemovals.clear();
+                pendingSummary = summary;
+                pendingDrought = drought;
+            }
+            scheduleDrain();
+        }
+
+        private void offerChanges(List<DeviceStateResponse> updates, List<String> removals) {
+            synchronized (this) {
+                for (DeviceStateResponse u : updates) {
+                    pendingRemovals.remove(u.deviceId());
+                    pendingUpdates.put(u.deviceId(), u);
+                }
+                for (String deviceId : removals) {
+                    pendingUpdates.remove(deviceId);
+                    pendingRemovals.add(deviceId);
+                }
+            }
+            scheduleDrain();
+        }
+
+        private void offerSummaries(RecentSummaryResponse summary, DroughtSummaryResponse drought) {
+            synchronized (this) {
+                if (summary != null) pendingSummary = summary;
+                if (drought != null) pendingDrought = drought;
+                if (summary == null && drought == null) pendingHeartbeat = true;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            synchronized (this) {
+                if (draining || closed) return;
+                draining = true;
+            }
+            sendExecutor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                List<DeviceStateResponse> snapshot;
+                List<DeviceStateResponse> updates;
+                List<String> removals;
+                RecentSummaryResponse summary;
+                DroughtSummaryResponse drought;
+                boolean heartbeat;
+
+                synchronized (this) {
+                    snapshot = pendingSnapshot;
+                    updates = pendingUpdates.isEmpty() ? null : new ArrayList<>(pendingUpdates.values());
+                    removals = pendingRemovals.isEmpty() ? null : new ArrayList<>(pendingRemovals);
+                    summary = pendingSummary;
+                    drought = pendingDrought;
+                    heartbeat = pendingHeartbeat;
+
+                    pendingSnapshot = null;
+                    pendingUpdates.clear();
+                    pendingRemovals.clear();
+                    pendingSummary = null;
+                    pendingDrought = null;
+                    pendingHeartbeat = false;
+
+                    if (closed || (snapshot == null && updates == null && removals == null
+                            && summary == null && drought == null && !heartbeat)) {
+                        draining = false;
+                        return;
+                    }
+                }
+
+                try {
+                    if (snapshot != null) emitter.send(SseEmitter.event().name("snapshot").data(snapshot));
+                    if (updates != null) emitter.send(SseEmitter.event().name("devices").data(updates));
+                    if (removals != null) emitter.send(SseEmitter.event().name("removed").data(removals));
+                    if (summary != null) emitter.send(SseEmitter.event().name("summary").data(summary));
+                    if (drought != null) emitter.send(SseEmitter.event().name("drought").data(drought));
+                    if (heartbeat) emitter.send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    synchronized (this) {
+                        closed = true;
+                        draining = false;
+                    }
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package iot.data.platform.devices.api;
+
+/** Devices whose streak is in {@code [fromDays, toDays)}; {@code toDays} is null for the last bucket. */
+public record DroughtHistogramBucketResponse(
+        double fromDays,
+        Double toDays,
+        long devices
+) {
+}
@@ -0,0 +1,13 @@
+package iot.data.platform.devices.api;
+
+import java.util.List;
+
+public record DroughtLeaderboardResponse(
+        String env,
+        String tenantId,
+        Double threshold,
+        int devicesInDrought,
+        List<DroughtStreakEntryResponse> top,
+        List<DroughtHistogramBucketResponse> histogram
+) {
+}
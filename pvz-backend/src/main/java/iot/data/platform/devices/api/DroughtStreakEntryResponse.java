@@ -0,0 +1,7 @@
+package iot.data.platform.devices.api;
+
+public record DroughtStreakEntryResponse(
+        String deviceId,
+        double streakDays
+) {
+}
@@ -0,0 +1,31 @@
+package iot.data.platform.devices.api;
+
+import iot.data.platform.devices.core.FleetMetricsService;
+import iot.data.platform.devices.core.MetricsBucket;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/{env}/{tenantId}/fleet")
+public class FleetController {
+    private final FleetMetricsService fleetMetricsService;
+
+    public FleetController(FleetMetricsService fleetMetricsService) {
+        this.fleetMetricsService = fleetMetricsService;
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<FleetMetricsResponse> getFleetMetrics(
+            @PathVariable String env,
+            @PathVariable String tenantId,
+            @RequestParam(name = "deviceIds", required = false) List<String> deviceIds,
+            @RequestParam(name = "bucket", defaultValue = "HOUR") MetricsBucket bucket,
+            @RequestParam(name = "from", required = false) Long from,
+            @RequestParam(name = "to", required = false) Long to
+    ) {
+        return ResponseEntity.ok(
+                fleetMetricsService.getFleetMetrics(env, tenantId, deviceIds, bucket, from, to));
+    }
+}
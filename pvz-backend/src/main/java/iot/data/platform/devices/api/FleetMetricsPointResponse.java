@@ -0,0 +1,22 @@
+package iot.data.platform.devices.api;
+
+public record FleetMetricsPointResponse(
+        long ts,
+        int devices,
+        Double tAvg,
+        Double tMin,
+        Double tMax,
+        Double tP10,
+        Double tP50,
+        Double tP90,
+        Double hAvg,
+        Double hMin,
+        Double hMax,
+        Double hP10,
+        Double hP50,
+        Double hP90,
+        long totalCount,
+        Double okRatio,
+        Double errorRatio
+) {
+}
@@ -0,0 +1,14 @@
+package iot.data.platform.devices.api;
+
+import iot.data.platform.devices.core.MetricsBucket;
+
+import java.util.List;
+
+public record FleetMetricsResponse(
+        String env,
+        String tenantId,
+        MetricsBucket bucket,
+        int deviceCount,
+        List<FleetMetricsPointResponse> points
+) {
+}
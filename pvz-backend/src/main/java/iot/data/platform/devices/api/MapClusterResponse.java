@@ -0,0 +1,10 @@
+package iot.data.platform.devices.api;
+
+public record MapClusterResponse(
+        double lat,
+        double lon,
+        int count,
+        int online,
+        Double avgHumidity,
+        String deviceId
+) {}
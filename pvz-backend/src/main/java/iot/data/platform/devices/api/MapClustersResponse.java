@@ -0,0 +1,11 @@
+package iot.data.platform.devices.api;
+
+import java.util.List;
+
+public record MapClustersResponse(
+        String env,
+        String tenantId,
+        int zoom,
+        int devices,
+        List<MapClusterResponse> clusters
+) {}
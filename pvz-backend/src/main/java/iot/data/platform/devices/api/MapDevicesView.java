@@ -0,0 +1,35 @@
+package iot.data.platform.devices.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import iot.data.platform.devices.core.TenantSnapshot;
+
+import java.io.IOException;
+
+/**
+ * {@code GET /map} body: the devices inside the requested box, written from the snapshot rows like
+ * {@link DeviceStatesView}. {@code truncated} is set when the box held more than the row limit.
+ */
+@JsonSerialize(using = MapDevicesView.Serializer.class)
+public record MapDevicesView(TenantSnapshot snapshot, int[] rows, boolean truncated) {
+
+    static final class Serializer extends JsonSerializer<MapDevicesView> {
+        @Override
+        public void serialize(MapDevicesView view, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            TenantSnapshot s = view.snapshot();
+            gen.writeStartObject();
+            gen.writeStringField("env", s.env());
+            gen.writeStringField("tenantId", s.tenantId());
+            gen.writeBooleanField("truncated", view.truncated());
+            gen.writeArrayFieldStart("devices");
+            for (int row : view.rows()) {
+                SnapshotJson.writeDeviceState(gen, s, row);
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package iot.data.platform.devices.api;
+
+import iot.data.platform.devices.core.ExportFormat;
+import iot.data.platform.devices.core.MeasurementExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/api/{env}/{tenantId}/export")
+public class MeasurementExportController {
+    private final MeasurementExportService exportService;
+
+    public MeasurementExportController(MeasurementExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/measurements")
+    public ResponseEntity<StreamingResponseBody> exportMeasurements(
+            @PathVariable String env,
+            @PathVariable String tenantId,
+            @RequestParam(name = "deviceId", required = false) String deviceId,
+            @RequestParam(name = "from") Long from,
+            @RequestParam(name = "to") Long to,
+            @RequestParam(name = "format", defaultValue = "NDJSON") ExportFormat format
+    ) {
+        if (from >= to) {
+            return ResponseEntity.badRequest().build();
+        }
+        Instant fromTs = Instant.ofEpochSecond(from);
+        Instant toTs = Instant.ofEpochSecond(to);
+
+        String filename = "measurements-" + env + "-" + tenantId
+                + (deviceId == null ? "" : "-" + deviceId)
+                + "." + format.extension();
+
+        StreamingResponseBody body = out ->
+                exportService.export(env, tenantId, deviceId, fromTs, toTs, format, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
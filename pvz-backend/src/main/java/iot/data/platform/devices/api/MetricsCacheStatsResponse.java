@@ -0,0 +1,10 @@
+package iot.data.platform.devices.api;
+
+public record MetricsCacheStatsResponse(
+        String env,
+        String tenantId,
+        long hits,
+        long misses,
+        Double hitRatio
+) {
+}
@@ -0,0 +1,98 @@
+package iot.data.platform.devices.api;
+
+import iot.data.platform.devices.core.DeviceMetricsService;
+import iot.data.platform.devices.core.DownsampleMode;
+import iot.data.platform.devices.core.MetricsBucket;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The dashboard's first-load endpoints on the non-blocking read path, mounted next to
+ * {@link DeviceController} under {@code /api/reactive} so both can be load-tested side by side.
+ * <p>
+ * Handlers return {@link Mono}s, which Spring MVC completes as async requests: the request thread is
+ * released as soon as the Redis commands are written and the response is resumed by the Lettuce event
+ * loop. Device metrics still come from JPA; that blocking call runs on {@code queryExecutor} so it
+ * never ties up the event loop.
+ */
+@RestController
+@RequestMapping("/api/reactive/{env}/{tenantId}/devices")
+@ConditionalOnProperty(name = "pvz.api.reactive.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveDeviceController {
+    private final ReactiveDeviceService deviceService;
+    private final DeviceMetricsService deviceMetricsService;
+    private final Scheduler queryScheduler;
+    private final int maxPointsLimit;
+
+    public ReactiveDeviceController(ReactiveDeviceService deviceService,
+                                    DeviceMetricsService deviceMetricsService,
+                                    @Qualifier("queryExecutor") Executor queryExecutor,
+                                    @Value("${pvz.metrics.downsample.max-points-limit:10000}") int maxPointsLimit) {
+        this.deviceService = deviceService;
+        this.deviceMetricsService = deviceMetricsService;
+        this.queryScheduler = Schedulers.fromExecutor(queryExecutor);
+        this.maxPointsLimit = maxPointsLimit;
+    }
+
+    @GetMapping
+    public Mono<DeviceStatesView> getAllDevices(
+            @PathVariable String env,
+            @PathVariable String tenantId
+    ) {
+        return deviceService.getSnapshot(env, tenantId).map(DeviceStatesView::new);
+    }
+
+    @GetMapping("/recent")
+    public Mono<RecentSnapshotsView> getRecentSnapshots(
+            @PathVariable String env,
+            @PathVariable String tenantId
+    ) {
+        return deviceService.getSnapshot(env, tenantId).map(RecentSnapshotsView::new);
+    }
+
+    @GetMapping("/summary/recent")
+    public Mono<RecentSummaryResponse> getRecentSummary(
+            @PathVariable String env,
+            @PathVariable String tenantId
+    ) {
+        return deviceService.getRecentSummary(env, tenantId);
+    }
+
+    @GetMapping("/summary/drought")
+    public Mono<DroughtSummaryResponse> getDroughtSummary(
+            @PathVariable String env,
+            @PathVariable String tenantId
+    ) {
+        return deviceService.getDroughtSummary(env, tenantId);
+    }
+
+    @GetMapping("/{deviceId}/metrics")
+    public Mono<DeviceMetricsResponse> getDeviceMetrics(
+            @PathVariable String env,
+            @PathVariable String tenantId,
+            @PathVariable String deviceId,
+            @RequestParam(name = "bucket", defaultValue = "HOUR") MetricsBucket bucket,
+            @RequestParam(name = "from", required = false) Long from,
+            @RequestParam(name = "to", required = false) Long to,
+            @RequestParam(name = "maxPoints", required = false) Integer maxPoints,
+            @RequestParam(name = "downsample", defaultValue = "LTTB") DownsampleMode downsample
+    ) {
+        return Mono.fromCallable(() -> maxPoints == null
+                        ? deviceMetricsService.getMetrics(env, tenantId, deviceId, bucket, from, to)
+                        : deviceMetricsService.getDownsampledMetrics(
+                                env, tenantId, deviceId, bucket, from, to,
+                                Math.max(4, Math.min(maxPoints, maxPointsLimit)), downsample))
+                .subscribeOn(queryScheduler);
+    }
+}
@@ -0,0 +1,59 @@
+package iot.data.platform.devices.api;
+
+import iot.data.platform.devices.core.TenantSnapshot;
+import iot.data.platform.devices.infra.InMemoryDeviceStateStore;
+import iot.data.platform.devices.infra.KafkaDeviceStateConsumer;
+import iot.data.platform.devices.infra.ReactiveRedisDeviceRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link DeviceService} for the reactive read path. With the Kafka-fed state store enabled and caught
+ * up, tenant lists are already in memory and are served as is; otherwise they are read from Redis
+ * without blocking.
+ * <p>
+ * A tenant the store has not warmed yet is first loaded from Redis with blocking calls, so that one
+ * snapshot is taken on {@code redisReadExecutor} instead of on the subscribing thread, which may be a
+ * Lettuce event loop.
+ */
+@Service
+@ConditionalOnProperty(name = "pvz.api.reactive.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveDeviceService {
+    private final ReactiveRedisDeviceRepository redisDeviceRepository;
+    private final InMemoryDeviceStateStore stateStore;
+    private final KafkaDeviceStateConsumer consumer;
+    private final Scheduler warmUpScheduler;
+
+    public ReactiveDeviceService(ReactiveRedisDeviceRepository redisDeviceRepository,
+                                 ObjectProvider<InMemoryDeviceStateStore> stateStore,
+                                 ObjectProvider<KafkaDeviceStateConsumer> consumer,
+                                 @Qualifier("redisReadExecutor") Executor redisReadExecutor) {
+        this.redisDeviceRepository = redisDeviceRepository;
+        this.stateStore = stateStore.getIfAvailable();
+        this.consumer = consumer.getIfAvailable();
+        this.warmUpScheduler = Schedulers.fromExecutor(redisReadExecutor);
+    }
+
+    public Mono<TenantSnapshot> getSnapshot(String env, String tenantId) {
+        if (stateStore != null && consumer != null && consumer.isCaughtUp()) {
+            Mono<TenantSnapshot> snapshot = Mono.fromSupplier(() -> stateStore.snapshot(env, tenantId));
+            return stateStore.isWarm(env, tenantId) ? snapshot : snapshot.subscribeOn(warmUpScheduler);
+        }
+        return redisDeviceRepository.findSnapshotByTenant(env, tenantId);
+    }
+
+    public Mono<RecentSummaryResponse> getRecentSummary(String env, String tenantId) {
+        return redisDeviceRepository.findRecentSummary(env, tenantId);
+    }
+
+    public Mono<DroughtSummaryResponse> getDroughtSummary(String env, String tenantId) {
+        return redisDeviceRepository.findDroughtSummary(env, tenantId);
+    }
+}
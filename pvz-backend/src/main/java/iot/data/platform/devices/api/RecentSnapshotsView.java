@@ -0,0 +1,39 @@
+package iot.data.platform.devices.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import iot.data.platform.devices.core.TenantSnapshot;
+
+import java.io.IOException;
+
+/**
+ * {@code GET /recent} body backed by a {@link TenantSnapshot}. Serializes to the same array of
+ * {@link RecentDeviceSnapshotResponse} objects without building one per device.
+ */
+@JsonSerialize(using = RecentSnapshotsView.Serializer.class)
+public record RecentSnapshotsView(TenantSnapshot snapshot) {
+
+    static final class Serializer extends JsonSerializer<RecentSnapshotsView> {
+        @Override
+        public void serialize(RecentSnapshotsView view, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            TenantSnapshot s = view.snapshot();
+            gen.writeStartArray(view, s.size());
+            for (int row = 0; row < s.size(); row++) {
+                gen.writeStartObject();
+                gen.writeStringField("deviceId", s.deviceId(row));
+                gen.writeNumberField("lastSeenTs", s.lastSeen(row));
+                SnapshotJson.writeDouble(gen, "t", s, TenantSnapshot.T, row);
+                SnapshotJson.writeDouble(gen, "h", s, TenantSnapshot.H, row);
+                SnapshotJson.writeOnline(gen, s, row);
+                SnapshotJson.writeInt(gen, "rssi", s, TenantSnapshot.RSSI, row);
+                SnapshotJson.writeDouble(gen, "snr", s, TenantSnapshot.SNR, row);
+                SnapshotJson.writeDouble(gen, "bat", s, TenantSnapshot.BAT, row);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
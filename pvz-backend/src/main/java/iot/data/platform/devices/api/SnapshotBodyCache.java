@@ -0,0 +1,133 @@
+package iot.data.platform.devices.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import iot.data.platform.devices.core.TenantSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded {@code /devices} and {@code /recent} bodies, kept per tenant, view and
+ * {@link SnapshotEncoding} together with the snapshot version they were written from.
+ * <p>
+ * A request whose tenant version still matches is served the stored bytes without reading a
+ * snapshot or running a serializer, and the gzip copy is compressed once per version rather than by
+ * the container on every response. A body is re-encoded when the tenant has changed, or after
+ * {@code max-age-ms} regardless, so a missed change notification cannot pin a stale body. Bodies no
+ * longer requested are dropped by the same age, so memory follows the tenants being polled.
+ */
+@Service
+public class SnapshotBodyCache {
+    public enum View {
+        DEVICES, RECENT
+    }
+
+    /** {@code gzip} is {@code null} when the body is below {@code gzip-min-bytes}. */
+    public record Body(long version, SnapshotEncoding encoding, byte[] bytes, byte[] gzip) {
+    }
+
+    private record Key(String env, String tenantId, View view, SnapshotEncoding encoding) {
+    }
+
+    private record Cached(Body body, long builtAtMs) {
+    }
+
+    private final DeviceService deviceService;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final long maxAgeMs;
+    private final int gzipMinBytes;
+    private final Map<Key, Cached> bodies = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public SnapshotBodyCache(DeviceService deviceService,
+                             ObjectMapper objectMapper,
+                             @Value("${pvz.api.encoding.max-age-ms:30000}") long maxAgeMs,
+                             @Value("${pvz.api.encoding.gzip-min-bytes:2048}") int gzipMinBytes,
+                             MeterRegistry meterRegistry) {
+        this.deviceService = deviceService;
+        this.jsonMapper = objectMapper;
+        this.cborMapper = new CBORMapper();
+        this.maxAgeMs = maxAgeMs;
+        this.gzipMinBytes = gzipMinBytes;
+        this.hits = meterRegistry.counter("pvz.api.encoded_bodies.requests", "result", "hit");
+        this.misses = meterRegistry.counter("pvz.api.encoded_bodies.requests", "result", "miss");
+        Gauge.builder("pvz.api.encoded_bodies.bytes", bodies, SnapshotBodyCache::totalBytes).register(meterRegistry);
+    }
+
+    public Body get(String env, String tenantId, View view, SnapshotEncoding encoding) {
+        Key key = new Key(env, tenantId, view, encoding);
+        long now = System.currentTimeMillis();
+        Cached cached = bodies.get(key);
+        if (cached != null && now - cached.builtAtMs < maxAgeMs
+                && cached.body.version() == deviceService.getVersion(env, tenantId)) {
+            hits.increment();
+            return cached.body;
+        }
+
+        misses.increment();
+        TenantSnapshot snapshot = deviceService.getSnapshot(env, tenantId);
+        if (cached != null && now - cached.builtAtMs < maxAgeMs && cached.body.version() == snapshot.version()) {
+            // The store handed out the snapshot these bytes were written from (it may lag the log).
+            return cached.body;
+        }
+        byte[] bytes = encode(snapshot, view, encoding);
+        Body body = new Body(snapshot.version(), encoding, bytes, bytes.length < gzipMinBytes ? null : gzip(bytes));
+        bodies.put(key, new Cached(body, now));
+        return body;
+    }
+
+    @Scheduled(fixedDelayString = "${pvz.api.encoding.max-age-ms:30000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        bodies.values().removeIf(c -> c.builtAtMs < cutoff);
+    }
+
+    private byte[] encode(TenantSnapshot snapshot, View view, SnapshotEncoding encoding) {
+        Object value;
+        if (encoding.columns()) {
+            value = new SnapshotColumnsView(
+                    snapshot, deviceService.versionToken(snapshot.version()), view == View.RECENT);
+        } else if (view == View.RECENT) {
+            value = new RecentSnapshotsView(snapshot);
+        } else {
+            value = new DeviceStatesView(snapshot);
+        }
+        try {
+            return (encoding.cbor() ? cborMapper : jsonMapper).writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode snapshot of " + snapshot.tenantId(), e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out, 8192)) {
+            gz.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static long totalBytes(Map<Key, Cached> bodies) {
+        long total = 0;
+        for (Cached c : bodies.values()) {
+            total += c.body.bytes().length + (c.body.gzip() == null ? 0 : c.body.gzip().length);
+        }
+        return total;
+    }
+}
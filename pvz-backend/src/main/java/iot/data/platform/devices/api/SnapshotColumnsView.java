@@ -0,0 +1,63 @@
+package iot.data.platform.devices.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import iot.data.platform.devices.core.TenantSnapshot;
+
+import java.io.IOException;
+
+/**
+ * Columnar body for {@code GET /devices} ({@code recent == false}) and {@code GET /recent}: the
+ * snapshot columns written as one array per field, index-aligned with {@code deviceId}, instead of
+ * one object per device. Field names and the tenant are written once rather than once per row.
+ */
+@JsonSerialize(using = SnapshotColumnsView.Serializer.class)
+public record SnapshotColumnsView(TenantSnapshot snapshot, String version, boolean recent) {
+
+    static final class Serializer extends JsonSerializer<SnapshotColumnsView> {
+        @Override
+        public void serialize(SnapshotColumnsView view, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            TenantSnapshot s = view.snapshot();
+            gen.writeStartObject();
+            gen.writeStringField("env", s.env());
+            gen.writeStringField("tenantId", s.tenantId());
+            gen.writeStringField("version", view.version());
+            gen.writeNumberField("size", s.size());
+            gen.writeFieldName("deviceId");
+            gen.writeStartArray(null, s.size());
+            for (int row = 0; row < s.size(); row++) {
+                gen.writeString(s.deviceId(row));
+            }
+            gen.writeEndArray();
+            if (view.recent()) {
+                gen.writeFieldName("lastSeenTs");
+                gen.writeStartArray(null, s.size());
+                for (int row = 0; row < s.size(); row++) {
+                    gen.writeNumber(s.lastSeen(row));
+                }
+                gen.writeEndArray();
+                SnapshotJson.writeDoubleColumn(gen, "t", s, TenantSnapshot.T);
+                SnapshotJson.writeDoubleColumn(gen, "h", s, TenantSnapshot.H);
+                SnapshotJson.writeOnlineColumn(gen, s);
+                SnapshotJson.writeIntColumn(gen, "rssi", s, TenantSnapshot.RSSI);
+                SnapshotJson.writeDoubleColumn(gen, "snr", s, TenantSnapshot.SNR);
+                SnapshotJson.writeDoubleColumn(gen, "bat", s, TenantSnapshot.BAT);
+            } else {
+                SnapshotJson.writeDoubleColumn(gen, "lat", s, TenantSnapshot.LAT);
+                SnapshotJson.writeDoubleColumn(gen, "lon", s, TenantSnapshot.LON);
+                SnapshotJson.writeDoubleColumn(gen, "h", s, TenantSnapshot.H);
+                SnapshotJson.writeDoubleColumn(gen, "t", s, TenantSnapshot.T);
+                SnapshotJson.writeLongColumn(gen, "tsHt", s, TenantSnapshot.TS_HT);
+                SnapshotJson.writeIntColumn(gen, "rssi", s, TenantSnapshot.RSSI);
+                SnapshotJson.writeDoubleColumn(gen, "snr", s, TenantSnapshot.SNR);
+                SnapshotJson.writeDoubleColumn(gen, "bat", s, TenantSnapshot.BAT);
+                SnapshotJson.writeOnlineColumn(gen, s);
+                SnapshotJson.writeLongColumn(gen, "tsState", s, TenantSnapshot.TS_STATE);
+            }
+            gen.writeEndObject();
+        }
+    }
+}
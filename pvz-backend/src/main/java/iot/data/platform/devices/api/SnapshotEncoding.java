@@ -0,0 +1,58 @@
+package iot.data.platform.devices.api;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Representations of the bulk snapshot endpoints, chosen from the {@code Accept} header. Row
+ * layouts keep the {@link DeviceStateResponse} / {@link RecentDeviceSnapshotResponse} object shape;
+ * the columns layout is {@link SnapshotColumnsView}. Anything unrecognised gets plain JSON rows.
+ */
+public enum SnapshotEncoding {
+    JSON(MediaType.APPLICATION_JSON, false, ""),
+    CBOR(MediaType.APPLICATION_CBOR, false, "-cbor"),
+    COLUMNS_JSON(MediaType.parseMediaType("application/vnd.pvz.columns+json"), true, "-columns"),
+    COLUMNS_CBOR(MediaType.parseMediaType("application/vnd.pvz.columns+cbor"), true, "-columns-cbor");
+
+    private final MediaType mediaType;
+    private final boolean columns;
+    private final String etagSuffix;
+
+    SnapshotEncoding(MediaType mediaType, boolean columns, String etagSuffix) {
+        this.mediaType = mediaType;
+        this.columns = columns;
+        this.etagSuffix = etagSuffix;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public boolean columns() {
+        return columns;
+    }
+
+    public boolean cbor() {
+        return this == CBOR || this == COLUMNS_CBOR;
+    }
+
+    /** Strong ETag of this representation of a snapshot {@code version}. */
+    public String etag(String version) {
+        return "\"" + version + etagSuffix + "\"";
+    }
+
+    /** First concrete type in {@code accept} that names an encoding; wildcards and JSON fall back to {@link #JSON}. */
+    public static SnapshotEncoding fromAccept(String accept) {
+        if (accept == null || accept.isBlank()) return JSON;
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.isWildcardType() || type.isWildcardSubtype()) continue;
+                for (SnapshotEncoding encoding : values()) {
+                    if (encoding.mediaType.equalsTypeAndSubtype(type)) return encoding;
+                }
+            }
+        } catch (InvalidMediaTypeException ignored) {
+        }
+        return JSON;
+    }
+}
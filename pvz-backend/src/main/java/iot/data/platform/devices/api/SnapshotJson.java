@@ -0,0 +1,109 @@
+package iot.data.platform.devices.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import iot.data.platform.devices.core.TenantSnapshot;
+
+import java.io.IOException;
+
+/** Writes {@link TenantSnapshot} cells, rows and columns, emitting {@code null} where the presence bit is clear. */
+final class SnapshotJson {
+    private SnapshotJson() {
+    }
+
+    /** One {@link DeviceStateResponse}-shaped object for {@code row}. */
+    static void writeDeviceState(JsonGenerator gen, TenantSnapshot s, int row) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("deviceId", s.deviceId(row));
+        gen.writeStringField("env", s.env());
+        gen.writeStringField("tenantId", s.tenantId());
+        writeDouble(gen, "lat", s, TenantSnapshot.LAT, row);
+        writeDouble(gen, "lon", s, TenantSnapshot.LON, row);
+        writeDouble(gen, "h", s, TenantSnapshot.H, row);
+        writeDouble(gen, "t", s, TenantSnapshot.T, row);
+        writeLong(gen, "tsHt", s, TenantSnapshot.TS_HT, row);
+        writeInt(gen, "rssi", s, TenantSnapshot.RSSI, row);
+        writeDouble(gen, "snr", s, TenantSnapshot.SNR, row);
+        writeDouble(gen, "bat", s, TenantSnapshot.BAT, row);
+        writeOnline(gen, s, row);
+        writeLong(gen, "tsState", s, TenantSnapshot.TS_STATE, row);
+        gen.writeEndObject();
+    }
+
+    static void writeDouble(JsonGenerator gen, String field, TenantSnapshot s, int column, int row)
+            throws IOException {
+        if (s.hasDouble(column, row)) {
+            gen.writeNumberField(field, s.getDouble(column, row));
+        } else {
+            gen.writeNullField(field);
+        }
+    }
+
+    static void writeLong(JsonGenerator gen, String field, TenantSnapshot s, int column, int row)
+            throws IOException {
+        if (s.hasLong(column, row)) {
+            gen.writeNumberField(field, s.getLong(column, row));
+        } else {
+            gen.writeNullField(field);
+        }
+    }
+
+    static void writeInt(JsonGenerator gen, String field, TenantSnapshot s, int column, int row)
+            throws IOException {
+        if (s.hasLong(column, row)) {
+            gen.writeNumberField(field, (int) s.getLong(column, row));
+        } else {
+            gen.writeNullField(field);
+        }
+    }
+
+    static void writeOnline(JsonGenerator gen, TenantSnapshot s, int row) throws IOException {
+        if (s.hasOnline(row)) {
+            gen.writeBooleanField("online", s.isOnline(row));
+        } else {
+            gen.writeNullField("online");
+        }
+    }
+
+    static void writeDoubleColumn(JsonGenerator gen, String field, TenantSnapshot s, int column)
+            throws IOException {
+        gen.writeFieldName(field);
+        gen.writeStartArray(null, s.size());
+        for (int row = 0; row < s.size(); row++) {
+            if (s.hasDouble(column, row)) gen.writeNumber(s.getDouble(column, row));
+            else gen.writeNull();
+        }
+        gen.writeEndArray();
+    }
+
+    static void writeLongColumn(JsonGenerator gen, String field, TenantSnapshot s, int column)
+            throws IOException {
+        gen.writeFieldName(field);
+        gen.writeStartArray(null, s.size());
+        for (int row = 0; row < s.size(); row++) {
+            if (s.hasLong(column, row)) gen.writeNumber(s.getLong(column, row));
+            else gen.writeNull();
+        }
+        gen.writeEndArray();
+    }
+
+    static void writeIntColumn(JsonGenerator gen, String field, TenantSnapshot s, int column)
+            throws IOException {
+        gen.writeFieldName(field);
+        gen.writeStartArray(null, s.size());
+        for (int row = 0; row < s.size(); row++) {
+            if (s.hasLong(column, row)) gen.writeNumber((int) s.getLong(column, row));
+            else gen.writeNull();
+        }
+        gen.writeEndArray();
+    }
+
+    static void writeOnlineColumn(JsonGenerator gen, TenantSnapshot s) throws IOException {
+        gen.writeFieldName("online");
+        gen.writeStartArray(null, s.size());
+        for (int row = 0; row < s.size(); row++) {
+            if (s.hasOnline(row)) gen.writeBoolean(s.isOnline(row));
+            else gen.writeNull();
+        }
+        gen.writeEndArray();
+    }
+}
@@ -29,7 +29,7 @@ public record AggregatedPoint(
         );
     }
     
-    private static Instant convertToInstant(Object value) {
+    static Instant convertToInstant(Object value) {
         if (value instanceof Instant i) {
             return i;
         }
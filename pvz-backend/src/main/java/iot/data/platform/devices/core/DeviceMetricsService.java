@@ -1,21 +1,47 @@
 package iot.data.platform.devices.core;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import iot.data.platform.devices.api.DeviceMetricsPointResponse;
 import iot.data.platform.devices.api.DeviceMetricsResponse;
 import iot.data.platform.devices.infra.DeviceMeasurementRepository;
+import iot.data.platform.devices.infra.MeasurementRollupRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 @Service
 public class DeviceMetricsService {
 
     private final DeviceMeasurementRepository repository;
+    private final MeasurementRollupRepository rollupRepository;
+    private final MetricsQueryCache queryCache;
+    private final DistributionSummary rollupRows;
+    private final DistributionSummary rawRows;
 
-    public DeviceMetricsService(DeviceMeasurementRepository repository) {
+    public DeviceMetricsService(DeviceMeasurementRepository repository,
+                                MeasurementRollupRepository rollupRepository,
+                                MetricsQueryCache queryCache,
+                                MeterRegistry meterRegistry) {
         this.repository = repository;
+        this.rollupRepository = rollupRepository;
+        this.queryCache = queryCache;
+        this.rollupRows = DistributionSummary.builder("pvz.metrics.query.rows")
+                .tag("source", "rollup")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rawRows = DistributionSummary.builder("pvz.metrics.query.rows")
+                .tag("source", "raw")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     public DeviceMetricsResponse getMetrics(
@@ -27,38 +53,174 @@ public class DeviceMetricsService {
             Long toTs
     ) {
         Instant now = Instant.now();
-        Instant from;
-        Instant to;
+        Window window = resolveWindow(bucket, fromTs, toTs, now);
+        Instant windowFrom = window.bucketFrom(bucket);
+        Instant windowTo = window.bucketTo(bucket);
 
+        List<DeviceMetricsPointResponse> points = queryCache.getPoints(
+                env, tenantId, deviceId, bucket, windowFrom, windowTo, now,
+                (rangeFrom, rangeTo) -> loadPoints(env, tenantId, deviceId, bucket, rangeFrom, rangeTo)
+        );
+
+        return new DeviceMetricsResponse(deviceId, bucket, points);
+    }
+
+    /**
+     * Like {@link #getMetrics} but returns at most {@code maxPoints} points. When the requested bucket
+     * already fits, the regular bucketed series is returned. Otherwise the finest source that is still
+     * coarser than one output column (raw rows or a rollup granularity) is streamed through a cursor
+     * into a {@link MetricsDownsampler}, so the full series is never materialized.
+     */
+    @Transactional(readOnly = true)
+    public DeviceMetricsResponse getDownsampledMetrics(
+            String env,
+            String tenantId,
+            String deviceId,
+            MetricsBucket bucket,
+            Long fromTs,
+            Long toTs,
+            int maxPoints,
+            DownsampleMode mode
+    ) {
+        Window window = resolveWindow(bucket, fromTs, toTs, Instant.now());
+        long from = window.from().getEpochSecond();
+        long to = window.to().getEpochSecond();
+        // Count the floor/ceil-snapped buckets getMetrics returns, not the unsnapped range.
+        long buckets = Duration.between(window.bucketFrom(bucket), window.bucketTo(bucket)).toSeconds()
+                / bucket.seconds();
+        if (buckets <= maxPoints) {
+            return getMetrics(env, tenantId, deviceId, bucket, fromTs, toTs);
+        }
+
+        MetricsDownsampler downsampler = MetricsDownsampler.create(mode, from, to, maxPoints);
+        MetricsBucket source = null;
+        for (MetricsBucket b : MetricsBucket.values()) {
+            if (b.seconds() <= downsampler.columnWidth()) source = b;
+        }
+
+        long rows = 0;
+        if (source == null) {
+            try (Stream<MeasurementRow> stream =
+                         repository.streamDeviceRows(env, tenantId, deviceId, window.from(), window.to())) {
+                for (MeasurementRow r : (Iterable<MeasurementRow>) stream::iterator) {
+                    downsampler.accept(new DeviceMetricsPointResponse(
+                            r.ts().getEpochSecond(), r.temperature(), r.humidity()));
+                    rows++;
+                }
+            }
+            rawRows.record(rows);
+        } else {
+            try (Stream<RollupPoint> stream = rollupRepository.streamRollups(
+                    env, tenantId, deviceId, source.postgresUnit(),
+                    source.floor(window.from()), window.to())) {
+                for (RollupPoint p : (Iterable<RollupPoint>) stream::iterator) {
+                    downsampler.accept(new DeviceMetricsPointResponse(
+                            p.bucketStart().getEpochSecond(), p.tAvg(), p.hAvg()));
+                    rows++;
+                }
+            }
+            rollupRows.record(rows);
+        }
+
+        return new DeviceMetricsResponse(deviceId, bucket, downsampler.finish());
+    }
+
+    public MetricsQueryCache.Stats getCacheStats(String env, String tenantId) {
+        return queryCache.stats(env, tenantId);
+    }
+
+    private record Window(Instant from, Instant to) {
+        Instant bucketFrom(MetricsBucket bucket) {
+            return bucket.floor(from);
+        }
+
+        Instant bucketTo(MetricsBucket bucket) {
+            return bucket.ceil(to.plus(1, ChronoUnit.MICROS));
+        }
+    }
+
+    private Window resolveWindow(MetricsBucket bucket, Long fromTs, Long toTs, Instant now) {
         if (fromTs != null && toTs != null && fromTs < toTs) {
-            from = Instant.ofEpochSecond(fromTs);
-            to = Instant.ofEpochSecond(toTs);
+            return new Window(Instant.ofEpochSecond(fromTs), Instant.ofEpochSecond(toTs));
+        }
+        return new Window(bucket.defaultFrom(now), now);
+    }
+
+    private List<DeviceMetricsPointResponse> loadPoints(
+            String env,
+            String tenantId,
+            String deviceId,
+            MetricsBucket bucket,
+            Instant from,
+            Instant toExclusive
+    ) {
+        List<RollupPoint> parts = new ArrayList<>();
+        Instant fullFrom = bucket.ceil(from);
+        Instant fullTo = bucket.floor(toExclusive);
+
+        if (fullFrom.isBefore(fullTo)) {
+            parts.addAll(recordRows(rollupRows, rollupRepository.aggregateRollups(
+                    env, tenantId, deviceId,
+                    bucket.postgresUnit(), bucket.postgresUnit(),
+                    fullFrom, fullTo
+            )));
+            parts.addAll(aggregateEdge(env, tenantId, deviceId, bucket, from, fullFrom));
+            parts.addAll(aggregateEdge(env, tenantId, deviceId, bucket, fullTo, toExclusive));
         } else {
-            to = now;
-            from = switch (bucket) {
-                case HOUR -> now.minus(24, ChronoUnit.HOURS);
-                case DAY -> now.minus(30, ChronoUnit.DAYS);
-                case WEEK -> now.minus(26, ChronoUnit.WEEKS);
-            };
+            parts.addAll(aggregateEdge(env, tenantId, deviceId, bucket, from, toExclusive));
         }
 
-        List<AggregatedPoint> aggregated = repository.aggregateByTime(
-                env,
-                tenantId,
-                deviceId,
-                bucket.postgresUnit(),
-                from,
-                to
-        );
+        Map<Instant, RollupPoint> merged = new TreeMap<>();
+        for (RollupPoint p : parts) {
+            merged.merge(p.bucketStart(), p, RollupPoint::merge);
+        }
 
-        List<DeviceMetricsPointResponse> points = aggregated.stream()
+        return merged.values().stream()
                 .map(p -> new DeviceMetricsPointResponse(
                         p.bucketStart().getEpochSecond(),
                         p.tAvg(),
                         p.hAvg()
                 ))
                 .toList();
+    }
 
-        return new DeviceMetricsResponse(deviceId, bucket, points);
+    private List<RollupPoint> aggregateEdge(
+            String env,
+            String tenantId,
+            String deviceId,
+            MetricsBucket bucket,
+            Instant start,
+            Instant end
+    ) {
+        if (!start.isBefore(end)) {
+            return List.of();
+        }
+
+        Instant hourFrom = MetricsBucket.HOUR.ceil(start);
+        Instant hourTo = MetricsBucket.HOUR.floor(end);
+        if (bucket == MetricsBucket.HOUR || !hourFrom.isBefore(hourTo)) {
+            return recordRows(rawRows,
+                    repository.aggregatePartialByTime(env, tenantId, deviceId, bucket.postgresUnit(), start, end));
+        }
+
+        List<RollupPoint> parts = new ArrayList<>(recordRows(rollupRows, rollupRepository.aggregateRollups(
+                env, tenantId, deviceId,
+                MetricsBucket.HOUR.postgresUnit(), bucket.postgresUnit(),
+                hourFrom, hourTo
+        )));
+        if (start.isBefore(hourFrom)) {
+            parts.addAll(recordRows(rawRows,
+                    repository.aggregatePartialByTime(env, tenantId, deviceId, bucket.postgresUnit(), start, hourFrom)));
+        }
+        if (hourTo.isBefore(end)) {
+            parts.addAll(recordRows(rawRows,
+                    repository.aggregatePartialByTime(env, tenantId, deviceId, bucket.postgresUnit(), hourTo, end)));
+        }
+        return parts;
+    }
+
+    private List<RollupPoint> recordRows(DistributionSummary summary, List<RollupPoint> rows) {
+        summary.record(rows.size());
+        return rows;
     }
 }
@@ -0,0 +1,9 @@
+package iot.data.platform.devices.core;
+
+public record DeviceStateChangedEvent(
+        String env,
+        String tenantId,
+        String deviceId,
+        boolean removed
+) {
+}
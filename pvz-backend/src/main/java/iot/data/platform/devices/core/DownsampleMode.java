@@ -0,0 +1,8 @@
+package iot.data.platform.devices.core;
+
+public enum DownsampleMode {
+    /** Largest-triangle-three-buckets: keeps the points that best preserve the visual shape. */
+    LTTB,
+    /** Keeps the extreme samples of every pixel column, so spikes are never averaged away. */
+    MINMAX
+}
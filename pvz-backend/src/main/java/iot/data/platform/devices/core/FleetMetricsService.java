@@ -0,0 +1,220 @@
+package iot.data.platform.devices.core;
+
+import iot.data.platform.devices.api.FleetMetricsPointResponse;
+import iot.data.platform.devices.api.FleetMetricsResponse;
+import iot.data.platform.devices.infra.MeasurementRollupRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Bucketed temperature/humidity aggregates across a tenant's fleet (or a subset of devices).
+ * <p>
+ * Reads come from the rollup partition matching the bucket, where every row is one device's bucket.
+ * Devices are split into groups that are queried concurrently; each group is folded into per-bucket
+ * partial aggregates and the partials are merged here. Percentiles are taken over the per-device
+ * bucket averages, i.e. they describe the spread of the fleet, not of individual samples.
+ */
+@Service
+public class FleetMetricsService {
+    private final MeasurementRollupRepository rollupRepository;
+    private final Executor queryExecutor;
+    private final int groupSize;
+
+    public FleetMetricsService(
+            MeasurementRollupRepository rollupRepository,
+            @Qualifier("queryExecutor") Executor queryExecutor,
+            @Value("${pvz.fleet.group-size:250}") int groupSize
+    ) {
+        this.rollupRepository = rollupRepository;
+        this.queryExecutor = queryExecutor;
+        this.groupSize = Math.max(1, groupSize);
+    }
+
+    public FleetMetricsResponse getFleetMetrics(
+            String env,
+            String tenantId,
+            Collection<String> deviceIds,
+            MetricsBucket bucket,
+            Long fromTs,
+            Long toTs
+    ) {
+        Instant to;
+        Instant from;
+        if (fromTs != null && toTs != null && fromTs < toTs) {
+            from = Instant.ofEpochSecond(fromTs);
+            to = Instant.ofEpochSecond(toTs);
+        } else {
+            to = Instant.now();
+            from = bucket.defaultFrom(to);
+        }
+        Instant windowFrom = bucket.floor(from);
+        Instant windowTo = bucket.ceil(to.plus(1, ChronoUnit.MICROS));
+        String granularity = bucket.postgresUnit();
+
+        List<String> devices = deviceIds == null || deviceIds.isEmpty()
+                ? rollupRepository.findDeviceIds(env, tenantId, granularity, windowFrom, windowTo)
+                : List.copyOf(deviceIds);
+
+        List<CompletableFuture<Map<Instant, BucketAccumulator>>> groups = new ArrayList<>();
+        for (int i = 0; i < devices.size(); i += groupSize) {
+            List<String> group = devices.subList(i, Math.min(devices.size(), i + groupSize));
+            groups.add(CompletableFuture.supplyAsync(() -> accumulate(
+                    rollupRepository.findDeviceBuckets(env, tenantId, group, granularity, windowFrom, windowTo)
+            ), queryExecutor));
+        }
+
+        Map<Instant, BucketAccumulator> merged = new TreeMap<>();
+        try {
+            for (CompletableFuture<Map<Instant, BucketAccumulator>> group : groups) {
+                group.join().forEach((ts, acc) -> merged.merge(ts, acc, BucketAccumulator::merge));
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DataAccessException dae) throw dae;
+            throw e;
+        }
+
+        List<FleetMetricsPointResponse> points = new ArrayList<>(merged.size());
+        merged.forEach((ts, acc) -> points.add(acc.toResponse(ts)));
+        return new FleetMetricsResponse(env, tenantId, bucket, devices.size(), points);
+    }
+
+    private Map<Instant, BucketAccumulator> accumulate(List<RollupPoint> rows) {
+        Map<Instant, BucketAccumulator> buckets = new TreeMap<>();
+        for (RollupPoint row : rows) {
+            buckets.computeIfAbsent(row.bucketStart(), k -> new BucketAccumulator()).add(row);
+        }
+        return buckets;
+    }
+
+    private static final class BucketAccumulator {
+        private int devices;
+        private double tSum;
+        private long tCount;
+        private Double tMin;
+        private Double tMax;
+        private double hSum;
+        private long hCount;
+        private Double hMin;
+        private Double hMax;
+        private long totalCount;
+        private long okCount;
+        private long errorCount;
+        private final DoubleBuffer tAverages = new DoubleBuffer();
+        private final DoubleBuffer hAverages = new DoubleBuffer();
+
+        private void add(RollupPoint row) {
+            devices++;
+            tSum += row.tSum();
+            tCount += row.tCount();
+            tMin = min(tMin, row.tMin());
+            tMax = max(tMax, row.tMax());
+            hSum += row.hSum();
+            hCount += row.hCount();
+            hMin = min(hMin, row.hMin());
+            hMax = max(hMax, row.hMax());
+            totalCount += row.totalCount();
+            okCount += row.okCount();
+            errorCount += row.errorCount();
+            if (row.tAvg() != null) tAverages.add(row.tAvg());
+            if (row.hAvg() != null) hAverages.add(row.hAvg());
+        }
+
+        private BucketAccumulator merge(BucketAccumulator other) {
+            devices += other.devices;
+            tSum += other.tSum;
+            tCount += other.tCount;
+            tMin = min(tMin, other.tMin);
+            tMax = max(tMax, other.tMax);
+            hSum += other.hSum;
+            hCount += other.hCount;
+            hMin = min(hMin, other.hMin);
+            hMax = max(hMax, other.hMax);
+            totalCount += other.totalCount;
+            okCount += other.okCount;
+            errorCount += other.errorCount;
+            tAverages.addAll(other.tAverages);
+            hAverages.addAll(other.hAverages);
+            return this;
+        }
+
+        private FleetMetricsPointResponse toResponse(Instant ts) {
+            double[] t = tAverages.sorted();
+            double[] h = hAverages.sorted();
+            return new FleetMetricsPointResponse(
+                    ts.getEpochSecond(),
+                    devices,
+                    tCount == 0 ? null : tSum / tCount,
+                    tMin,
+                    tMax,
+                    percentile(t, 0.10),
+                    percentile(t, 0.50),
+                    percentile(t, 0.90),
+                    hCount == 0 ? null : hSum / hCount,
+                    hMin,
+                    hMax,
+                    percentile(h, 0.10),
+                    percentile(h, 0.50),
+                    percentile(h, 0.90),
+                    totalCount,
+                    totalCount == 0 ? null : (double) okCount / totalCount,
+                    totalCount == 0 ? null : (double) errorCount / totalCount
+            );
+        }
+
+        private static Double percentile(double[] sorted, double p) {
+            if (sorted.length == 0) return null;
+            int rank = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+        }
+
+        private static Double min(Double a, Double b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            return Math.min(a, b);
+        }
+
+        private static Double max(Double a, Double b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            return Math.max(a, b);
+        }
+    }
+
+    private static final class DoubleBuffer {
+        private double[] values = new double[16];
+        private int size;
+
+        private void add(double v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        private void addAll(DoubleBuffer other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        private double[] sorted() {
+            double[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package iot.data.platform.devices.core;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import iot.data.platform.devices.infra.DeviceMeasurementRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes raw measurements straight from a database cursor to the response body. Rows are never
+ * collected, so memory use does not depend on the exported range.
+ */
+@Service
+public class MeasurementExportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DeviceMeasurementRepository repository;
+    private final ObjectMapper objectMapper;
+
+    public MeasurementExportService(DeviceMeasurementRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public void export(
+            String env,
+            String tenantId,
+            String deviceId,
+            Instant from,
+            Instant to,
+            ExportFormat format,
+            OutputStream out
+    ) throws IOException {
+        try (Stream<MeasurementRow> rows = deviceId == null
+                ? repository.streamTenantRows(env, tenantId, from, to)
+                : repository.streamDeviceRows(env, tenantId, deviceId, from, to)) {
+            switch (format) {
+                case NDJSON -> writeNdjson(env, tenantId, rows.iterator(), out);
+                case CSV -> writeCsv(env, tenantId, rows.iterator(), out);
+            }
+        }
+    }
+
+    private void writeNdjson(String env, String tenantId, Iterator<MeasurementRow> rows, OutputStream out)
+            throws IOException {
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.setRootValueSeparator(null);
+            while (rows.hasNext()) {
+                MeasurementRow row = rows.next();
+                gen.writeStartObject();
+                gen.writeStringField("env", env);
+                gen.writeStringField("tenantId", tenantId);
+                gen.writeStringField("deviceId", row.deviceId());
+                gen.writeStringField("ts", row.ts().toString());
+                writeNumberOrNull(gen, "temperature", row.temperature());
+                writeNumberOrNull(gen, "humidity", row.humidity());
+                gen.writeStringField("status", row.status() == null ? null : row.status().name());
+                gen.writeEndObject();
+                gen.writeRaw('\n');
+            }
+        }
+    }
+
+    private void writeCsv(String env, String tenantId, Iterator<MeasurementRow> rows, OutputStream out)
+            throws IOException {
+        String prefix = csvField(env) + "," + csvField(tenantId) + ",";
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        w.write("env,tenant_id,device_id,ts,temperature,humidity,status\n");
+        while (rows.hasNext()) {
+            MeasurementRow row = rows.next();
+            w.write(prefix);
+            w.write(csvField(row.deviceId()));
+            w.write(',');
+            w.write(row.ts().toString());
+            w.write(',');
+            if (row.temperature() != null) w.write(row.temperature().toString());
+            w.write(',');
+            if (row.humidity() != null) w.write(row.humidity().toString());
+            w.write(',');
+            if (row.status() != null) w.write(row.status().name());
+            w.write('\n');
+        }
+        w.flush();
+    }
+
+    private void writeNumberOrNull(JsonGenerator gen, String field, Double value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(field);
+        } else {
+            gen.writeNumberField(field, value);
+        }
+    }
+
+    private String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,12 @@
+package iot.data.platform.devices.core;
+
+import java.time.Instant;
+
+public record MeasurementRow(
+        String deviceId,
+        Instant ts,
+        Double temperature,
+        Double humidity,
+        DeviceStatus status
+) {
+}
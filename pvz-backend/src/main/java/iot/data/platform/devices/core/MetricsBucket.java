@@ -1,5 +1,11 @@
 package iot.data.platform.devices.core;
 
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
 public enum MetricsBucket {
     HOUR("hour"),
     DAY("day"),
@@ -14,4 +20,45 @@ public enum MetricsBucket {
     public String postgresUnit() {
         return postgresUnit;
     }
+
+    public long seconds() {
+        return switch (this) {
+            case HOUR -> 3600L;
+            case DAY -> 86_400L;
+            case WEEK -> 604_800L;
+        };
+    }
+
+    /** Start of the window shown when no explicit range is requested. */
+    public Instant defaultFrom(Instant now) {
+        return switch (this) {
+            case HOUR -> now.minus(24, ChronoUnit.HOURS);
+            case DAY -> now.minus(30, ChronoUnit.DAYS);
+            case WEEK -> now.minus(26, ChronoUnit.WEEKS);
+        };
+    }
+
+    public Instant floor(Instant ts) {
+        return switch (this) {
+            case HOUR -> ts.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> ts.truncatedTo(ChronoUnit.DAYS);
+            case WEEK -> ts.atZone(ZoneOffset.UTC)
+                    .truncatedTo(ChronoUnit.DAYS)
+                    .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    .toInstant();
+        };
+    }
+
+    public Instant ceil(Instant ts) {
+        Instant floor = floor(ts);
+        return floor.equals(ts) ? ts : next(floor);
+    }
+
+    public Instant next(Instant bucketStart) {
+        return switch (this) {
+            case HOUR -> bucketStart.plus(1, ChronoUnit.HOURS);
+            case DAY -> bucketStart.plus(1, ChronoUnit.DAYS);
+            case WEEK -> bucketStart.plus(7, ChronoUnit.DAYS);
+        };
+    }
 }
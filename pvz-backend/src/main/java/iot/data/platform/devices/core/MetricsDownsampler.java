@@ -0,0 +1,216 @@
+package iot.data.platform.devices.core;
+
+import iot.data.platform.devices.api.DeviceMetricsPointResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reduces a time-ordered stream of points to at most {@code maxPoints} points without holding the
+ * series in memory. The range is split into fixed-width pixel columns; only the points of the
+ * columns currently being decided are buffered.
+ * <p>
+ * Every emitted point is a real sample carrying both series, so a column may contribute one sample
+ * per series and extreme: LTTB uses {@code maxPoints / 2} columns, min/max uses {@code maxPoints / 4}.
+ */
+abstract sealed class MetricsDownsampler
+        permits MetricsDownsampler.Lttb, MetricsDownsampler.MinMax {
+    private static final List<Function<DeviceMetricsPointResponse, Double>> SERIES =
+            List.of(DeviceMetricsPointResponse::tAvg, DeviceMetricsPointResponse::hAvg);
+
+    private final long fromTs;
+    private final int columns;
+    private final long columnWidth;
+    protected final List<DeviceMetricsPointResponse> result = new ArrayList<>();
+
+    private MetricsDownsampler(long fromTs, long toTs, int columns) {
+        this.fromTs = fromTs;
+        this.columns = columns;
+        this.columnWidth = Math.max(1, (toTs - fromTs + columns - 1) / columns);
+    }
+
+    static MetricsDownsampler create(DownsampleMode mode, long fromTs, long toTs, int maxPoints) {
+        return switch (mode) {
+            case LTTB -> new Lttb(fromTs, toTs, Math.max(1, maxPoints / SERIES.size()));
+            case MINMAX -> new MinMax(fromTs, toTs, Math.max(1, maxPoints / (2 * SERIES.size())));
+        };
+    }
+
+    long columnWidth() {
+        return columnWidth;
+    }
+
+    abstract void accept(DeviceMetricsPointResponse point);
+
+    abstract List<DeviceMetricsPointResponse> finish();
+
+    /**
+     * Column of a point, clamped to the range: a rollup bucket starting before {@code fromTs} (the
+     * stream starts at the bucket floor) or a sample at {@code toTs} must not open a column of its own.
+     */
+    protected long column(DeviceMetricsPointResponse point) {
+        return Math.clamp(Math.floorDiv(point.ts() - fromTs, columnWidth), 0, columns - 1);
+    }
+
+    protected void emit(List<DeviceMetricsPointResponse> selected) {
+        selected.stream()
+                .distinct()
+                .sorted(Comparator.comparingLong(DeviceMetricsPointResponse::ts))
+                .forEach(result::add);
+    }
+
+    static final class Lttb extends MetricsDownsampler {
+        private List<DeviceMetricsPointResponse> current = new ArrayList<>();
+        private List<DeviceMetricsPointResponse> next = new ArrayList<>();
+        private long currentColumn;
+        private long nextColumn;
+        private final DeviceMetricsPointResponse[] anchors = new DeviceMetricsPointResponse[SERIES.size()];
+
+        private Lttb(long fromTs, long toTs, int columns) {
+            super(fromTs, toTs, columns);
+        }
+
+        @Override
+        void accept(DeviceMetricsPointResponse point) {
+            long c = column(point);
+            if (current.isEmpty()) {
+                currentColumn = c;
+                current.add(point);
+            } else if (c == currentColumn && next.isEmpty()) {
+                current.add(point);
+            } else if (next.isEmpty() || c == nextColumn) {
+                nextColumn = c;
+                next.add(point);
+            } else {
+                selectCurrent(next, false);
+                current = next;
+                currentColumn = nextColumn;
+                next = new ArrayList<>();
+                nextColumn = c;
+                next.add(point);
+            }
+        }
+
+        @Override
+        List<DeviceMetricsPointResponse> finish() {
+            if (!current.isEmpty()) {
+                selectCurrent(next, next.isEmpty());
+            }
+            if (!next.isEmpty()) {
+                current = next;
+                next = new ArrayList<>();
+                selectCurrent(next, true);
+            }
+            return result;
+        }
+
+        private void selectCurrent(List<DeviceMetricsPointResponse> following, boolean last) {
+            List<DeviceMetricsPointResponse> selected = new ArrayList<>(SERIES.size());
+            for (int s = 0; s < SERIES.size(); s++) {
+                DeviceMetricsPointResponse chosen = selectFor(SERIES.get(s), anchors[s], following, last);
+                if (chosen != null) {
+                    anchors[s] = chosen;
+                    selected.add(chosen);
+                }
+            }
+            emit(selected);
+        }
+
+        private DeviceMetricsPointResponse selectFor(
+                Function<DeviceMetricsPointResponse, Double> value,
+                DeviceMetricsPointResponse anchor,
+                List<DeviceMetricsPointResponse> following,
+                boolean last
+        ) {
+            DeviceMetricsPointResponse first = null;
+            DeviceMetricsPointResponse lastPoint = null;
+            for (DeviceMetricsPointResponse p : current) {
+                if (value.apply(p) == null) continue;
+                if (first == null) first = p;
+                lastPoint = p;
+            }
+            if (first == null) return null;
+            if (anchor == null) return first;
+            if (last) return lastPoint;
+
+            double ax = anchor.ts();
+            double ay = value.apply(anchor);
+            double cx = 0;
+            double cy = 0;
+            int n = 0;
+            for (DeviceMetricsPointResponse p : following) {
+                Double y = value.apply(p);
+                if (y == null) continue;
+                cx += p.ts();
+                cy += y;
+                n++;
+            }
+
+            DeviceMetricsPointResponse best = null;
+            double bestArea = -1;
+            for (DeviceMetricsPointResponse p : current) {
+                Double y = value.apply(p);
+                if (y == null) continue;
+                double area = n == 0
+                        ? Math.abs(y - ay)
+                        : Math.abs((ax - cx / n) * (y - ay) - (ax - p.ts()) * (cy / n - ay));
+                if (area > bestArea) {
+                    bestArea = area;
+                    best = p;
+                }
+            }
+            return best;
+        }
+    }
+
+    static final class MinMax extends MetricsDownsampler {
+        // Per series: [2s] holds the minimum sample of the current column, [2s + 1] the maximum.
+        private final DeviceMetricsPointResponse[] extremes = new DeviceMetricsPointResponse[2 * SERIES.size()];
+        private long currentColumn = Long.MIN_VALUE;
+
+        private MinMax(long fromTs, long toTs, int columns) {
+            super(fromTs, toTs, columns);
+        }
+
+        @Override
+        void accept(DeviceMetricsPointResponse point) {
+            long c = column(point);
+            if (c != currentColumn) {
+                flush();
+                currentColumn = c;
+            }
+            for (int s = 0; s < SERIES.size(); s++) {
+                Function<DeviceMetricsPointResponse, Double> value = SERIES.get(s);
+                Double y = value.apply(point);
+                if (y == null) continue;
+                if (extremes[2 * s] == null || y < value.apply(extremes[2 * s])) {
+                    extremes[2 * s] = point;
+                }
+                if (extremes[2 * s + 1] == null || y > value.apply(extremes[2 * s + 1])) {
+                    extremes[2 * s + 1] = point;
+                }
+            }
+        }
+
+        @Override
+        List<DeviceMetricsPointResponse> finish() {
+            flush();
+            return result;
+        }
+
+        private void flush() {
+            List<DeviceMetricsPointResponse> selected = new ArrayList<>(extremes.length);
+            for (int i = 0; i < extremes.length; i++) {
+                if (extremes[i] != null) {
+                    selected.add(extremes[i]);
+                    extremes[i] = null;
+                }
+            }
+            if (!selected.isEmpty()) {
+                emit(selected);
+            }
+        }
+    }
+}
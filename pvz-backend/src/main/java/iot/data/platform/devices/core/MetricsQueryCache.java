@@ -0,0 +1,230 @@
+package iot.data.platform.devices.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import iot.data.platform.devices.api.DeviceMetricsPointResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bucket-aligned cache of device metrics series.
+ * <p>
+ * Buckets that ended more than {@code closed-grace} ago are cached per device and bucket size and
+ * reused by every later window that covers them; only the still-open trailing buckets are loaded on
+ * each request. The cache is bounded by the total number of cached points and evicts whole series in
+ * LRU order.
+ * <p>
+ * "Closed" is only a heuristic: the emulator backfills history and the Kafka sink redelivers, so rows
+ * (and the rollups built from them) can still change long after their bucket ended. Writes go straight
+ * from Kafka Connect to Postgres, so the backend cannot see them; instead a series is reloaded once
+ * it is older than {@code closed-ttl}, which bounds how long a late row stays invisible.
+ */
+@Component
+public class MetricsQueryCache {
+    public interface Loader {
+        List<DeviceMetricsPointResponse> load(Instant from, Instant toExclusive);
+    }
+
+    public record Stats(long hits, long misses) {
+    }
+
+    private record SeriesKey(String env, String tenantId, String deviceId, MetricsBucket bucket) {
+    }
+
+    private static final class Series {
+        private Instant from;
+        private Instant to;
+        private final NavigableMap<Long, DeviceMetricsPointResponse> points = new TreeMap<>();
+        private final long createdAtMs = System.currentTimeMillis();
+
+        private Series(Instant from, Instant to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final Counter hitMeter;
+        private final Counter missMeter;
+
+        private Counters(MeterRegistry meterRegistry, String env, String tenantId) {
+            this.hitMeter = meterRegistry.counter("pvz.metrics.cache.requests",
+                    "env", env, "tenant", tenantId, "result", "hit");
+            this.missMeter = meterRegistry.counter("pvz.metrics.cache.requests",
+                    "env", env, "tenant", tenantId, "result", "miss");
+        }
+
+        private void hit() {
+            hits.increment();
+            hitMeter.increment();
+        }
+
+        private void miss() {
+            misses.increment();
+            missMeter.increment();
+        }
+    }
+
+    private final long maxPoints;
+    private final Duration closedGrace;
+    private final Duration closedTtl;
+    private final LinkedHashMap<SeriesKey, Series> series = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private volatile long cachedPoints;
+
+    public MetricsQueryCache(
+            @Value("${pvz.metrics.cache.max-points:200000}") long maxPoints,
+            @Value("${pvz.metrics.cache.closed-grace:PT5M}") Duration closedGrace,
+            @Value("${pvz.metrics.cache.closed-ttl:PT10M}") Duration closedTtl,
+            MeterRegistry meterRegistry
+    ) {
+        this.maxPoints = maxPoints;
+        this.closedGrace = closedGrace;
+        if (closedTtl.isZero() || closedTtl.isNegative()) {
+            throw new IllegalArgumentException("pvz.metrics.cache.closed-ttl must be positive");
+        }
+        this.closedTtl = closedTtl;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("pvz.metrics.cache.points", this, c -> c.cachedPoints).register(meterRegistry);
+    }
+
+    public List<DeviceMetricsPointResponse> getPoints(
+            String env,
+            String tenantId,
+            String deviceId,
+            MetricsBucket bucket,
+            Instant from,
+            Instant toExclusive,
+            Instant now,
+            Loader loader
+    ) {
+        Instant closedEnd = bucket.floor(now.minus(closedGrace));
+        Instant closedTo = closedEnd.isBefore(toExclusive) ? closedEnd : toExclusive;
+
+        List<DeviceMetricsPointResponse> result = new ArrayList<>();
+        if (from.isBefore(closedTo)) {
+            result.addAll(getClosed(new SeriesKey(env, tenantId, deviceId, bucket), from, closedTo, loader));
+        }
+
+        Instant openFrom = closedTo.isAfter(from) ? closedTo : from;
+        if (openFrom.isBefore(toExclusive)) {
+            result.addAll(loader.load(openFrom, toExclusive));
+        }
+        return result;
+    }
+
+    public Stats stats(String env, String tenantId) {
+        Counters c = counters.get(env + ":" + tenantId);
+        return c == null ? new Stats(0, 0) : new Stats(c.hits.sum(), c.misses.sum());
+    }
+
+    private List<DeviceMetricsPointResponse> getClosed(
+            SeriesKey key,
+            Instant from,
+            Instant to,
+            Loader loader
+    ) {
+        Counters c = counters.computeIfAbsent(key.env() + ":" + key.tenantId(),
+                k -> new Counters(meterRegistry, key.env(), key.tenantId()));
+
+        Instant cachedFrom;
+        Instant cachedTo;
+        synchronized (this) {
+            Series s = series.get(key);
+            if (s != null && isExpired(s)) {
+                removeSeries(key);
+                s = null;
+            }
+            if (s != null && !s.from.isAfter(from) && !s.to.isBefore(to)) {
+                c.hit();
+                return slice(s, from, to);
+            }
+            cachedFrom = s == null ? null : s.from;
+            cachedTo = s == null ? null : s.to;
+        }
+        c.miss();
+
+        boolean overlaps = cachedFrom != null && !cachedFrom.isAfter(to) && !cachedTo.isBefore(from);
+        List<DeviceMetricsPointResponse> prefix = List.of();
+        List<DeviceMetricsPointResponse> suffix = List.of();
+        List<DeviceMetricsPointResponse> full = List.of();
+        if (overlaps) {
+            if (from.isBefore(cachedFrom)) prefix = loader.load(from, cachedFrom);
+            if (to.isAfter(cachedTo)) suffix = loader.load(cachedTo, to);
+        } else {
+            full = loader.load(from, to);
+        }
+
+        synchronized (this) {
+            Series s = series.get(key);
+            if (!overlaps) {
+                removeSeries(key);
+                s = new Series(from, to);
+                putAll(s, full);
+                series.put(key, s);
+                evictIfNeeded(key);
+                return slice(s, from, to);
+            }
+            if (s != null && s.from.equals(cachedFrom) && s.to.equals(cachedTo)) {
+                putAll(s, prefix);
+                putAll(s, suffix);
+                if (from.isBefore(s.from)) s.from = from;
+                if (to.isAfter(s.to)) s.to = to;
+                evictIfNeeded(key);
+                return slice(s, from, to);
+            }
+        }
+
+        // The series was evicted or extended concurrently while the missing edges were loading.
+        return loader.load(from, to);
+    }
+
+    private boolean isExpired(Series s) {
+        return System.currentTimeMillis() - s.createdAtMs > closedTtl.toMillis();
+    }
+
+    private void putAll(Series s, List<DeviceMetricsPointResponse> points) {
+        for (DeviceMetricsPointResponse p : points) {
+            if (s.points.put(p.ts(), p) == null) {
+                cachedPoints++;
+            }
+        }
+    }
+
+    private List<DeviceMetricsPointResponse> slice(Series s, Instant from, Instant to) {
+        return new ArrayList<>(s.points.subMap(from.getEpochSecond(), true, to.getEpochSecond(), false).values());
+    }
+
+    private void removeSeries(SeriesKey key) {
+        Series removed = series.remove(key);
+        if (removed != null) {
+            cachedPoints -= removed.points.size();
+        }
+    }
+
+    private void evictIfNeeded(SeriesKey keep) {
+        Iterator<Map.Entry<SeriesKey, Series>> it = series.entrySet().iterator();
+        while (cachedPoints > maxPoints && it.hasNext()) {
+            Map.Entry<SeriesKey, Series> e = it.next();
+            if (e.getKey().equals(keep)) continue;
+            cachedPoints -= e.getValue().points.size();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package iot.data.platform.devices.core;
+
+import java.time.Instant;
+
+public record RollupPoint(
+        Instant bucketStart,
+        double tSum,
+        long tCount,
+        Double tMin,
+        Double tMax,
+        double hSum,
+        long hCount,
+        Double hMin,
+        Double hMax,
+        long totalCount,
+        long okCount,
+        long errorCount
+) {
+    public RollupPoint(
+            Object bucketStart,
+            Double tSum,
+            Long tCount,
+            Double tMin,
+            Double tMax,
+            Double hSum,
+            Long hCount,
+            Double hMin,
+            Double hMax,
+            Long totalCount,
+            Long okCount,
+            Long errorCount
+    ) {
+        this(
+                AggregatedPoint.convertToInstant(bucketStart),
+                tSum == null ? 0.0 : tSum,
+                tCount == null ? 0L : tCount,
+                tMin,
+                tMax,
+                hSum == null ? 0.0 : hSum,
+                hCount == null ? 0L : hCount,
+                hMin,
+                hMax,
+                totalCount == null ? 0L : totalCount,
+                okCount == null ? 0L : okCount,
+                errorCount == null ? 0L : errorCount
+        );
+    }
+
+    public RollupPoint merge(RollupPoint other) {
+        return new RollupPoint(
+                bucketStart,
+                tSum + other.tSum,
+                tCount + other.tCount,
+                min(tMin, other.tMin),
+                max(tMax, other.tMax),
+                hSum + other.hSum,
+                hCount + other.hCount,
+                min(hMin, other.hMin),
+                max(hMax, other.hMax),
+                totalCount + other.totalCount,
+                okCount + other.okCount,
+                errorCount + other.errorCount
+        );
+    }
+
+    public Double tAvg() {
+        return tCount == 0 ? null : tSum / tCount;
+    }
+
+    public Double hAvg() {
+        return hCount == 0 ? null : hSum / hCount;
+    }
+
+    private static Double min(Double a, Double b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return Math.min(a, b);
+    }
+
+    private static Double max(Double a, Double b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return Math.max(a, b);
+    }
+}
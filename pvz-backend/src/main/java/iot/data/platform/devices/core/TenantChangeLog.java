@@ -0,0 +1,120 @@
+package iot.data.platform.devices.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Monotonic version per tenant plus the version at which each device last changed.
+ * <p>
+ * Every recorded change bumps the tenant's version and moves the device to the tail of an
+ * insertion-ordered map, so "what changed since v" walks back from the tail and stops at the first
+ * older entry: the cost is the churn, not the tenant size. Each device appears at most once, and a
+ * removal is kept as a tombstone until the device returns or the log is trimmed. Trimming drops the
+ * oldest entries beyond {@code max-entries} and raises the floor below which deltas are unavailable.
+ * <p>
+ * Versions are only meaningful within one process, so clients see them as tokens
+ * {@code <epoch>-<version>} (see {@link #token}), where the epoch is drawn at random on startup. A
+ * token issued before a restart or by another instance carries a foreign epoch and asks the client
+ * for a full resync, as does one outside {@code [floor, version]}, instead of silently returning a
+ * wrong delta.
+ */
+@Component
+public class TenantChangeLog {
+    public record Change(long version, boolean removed) {
+    }
+
+    /** Devices changed after the requested token; {@code null} from {@link #since} means resync. */
+    public record Delta(long version, List<String> updated, List<String> removed) {
+    }
+
+    private record TenantKey(String env, String tenantId) {
+    }
+
+    private static final class TenantLog {
+        private final LinkedHashMap<String, Change> changes = new LinkedHashMap<>();
+        private volatile long version;
+        private long floor;
+
+    }
+
+    private final int maxEntries;
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    private final Map<TenantKey, TenantLog> logs = new ConcurrentHashMap<>();
+    private final Counter changes;
+    private final Counter resyncs;
+
+    public TenantChangeLog(
+            @Value("${pvz.devices.change-log.max-entries:200000}") int maxEntries,
+            MeterRegistry meterRegistry
+    ) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.changes = meterRegistry.counter("pvz.devices.change_log.changes");
+        this.resyncs = meterRegistry.counter("pvz.devices.change_log.resyncs");
+    }
+
+    public void record(String env, String tenantId, String deviceId, boolean removed) {
+        TenantLog log = log(env, tenantId);
+        synchronized (log) {
+            long version = log.version + 1;
+            log.changes.remove(deviceId);
+            log.changes.put(deviceId, new Change(version, removed));
+            while (log.changes.size() > maxEntries) {
+                Map.Entry<String, Change> eldest = log.changes.pollFirstEntry();
+                log.floor = eldest.getValue().version();
+            }
+            log.version = version;
+        }
+        changes.increment();
+    }
+
+    public long version(String env, String tenantId) {
+        return log(env, tenantId).version;
+    }
+
+    /** Opaque form of {@code version} for ETags and {@code since} parameters. */
+    public String token(long version) {
+        return epoch + "-" + version;
+    }
+
+    public Delta since(String env, String tenantId, String token) {
+        long since = parse(token);
+        TenantLog log = log(env, tenantId);
+        synchronized (log) {
+            if (since < log.floor || since > log.version) {
+                resyncs.increment();
+                return null;
+            }
+            List<String> updated = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (Map.Entry<String, Change> e : log.changes.sequencedEntrySet().reversed()) {
+                if (e.getValue().version() <= since) break;
+                (e.getValue().removed() ? removed : updated).add(e.getKey());
+            }
+            return new Delta(log.version, updated, removed);
+        }
+    }
+
+    /** Version of a token from this process, or -1 (below every floor) for a foreign or malformed one. */
+    private long parse(String token) {
+        int sep = token.lastIndexOf('-');
+        if (sep != epoch.length() || !token.startsWith(epoch)) return -1;
+        try {
+            return Long.parseLong(token, sep + 1, token.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private TenantLog log(String env, String tenantId) {
+        return logs.computeIfAbsent(new TenantKey(env, tenantId), k -> new TenantLog());
+    }
+}
@@ -0,0 +1,245 @@
+package iot.data.platform.devices.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spatial index over the positioned devices of one {@link TenantSnapshot}.
+ * <p>
+ * Every device is placed on the Web Mercator tile grid at {@link #MAX_LEVEL} and its rows are sorted
+ * by the Morton (Z-order) code of that cell. A map tile at any coarser zoom is then one contiguous
+ * range of the sorted codes, found with two binary searches. Prefix sums over the sorted order give
+ * each range's online count, humidity average and centroid in O(log N), so clustering a viewport
+ * costs per cluster cell, not per device.
+ * <p>
+ * Immutable and shared between requests like the snapshot it indexes.
+ */
+public final class TenantGeoGrid {
+    /** Finest cell: Web Mercator zoom 20, about 38 m at the equator. */
+    public static final int MAX_LEVEL = 20;
+    private static final int ROW_BITS = 64 - 2 * MAX_LEVEL;
+    private static final long ROW_MASK = (1L << ROW_BITS) - 1;
+    private static final double MAX_LAT = 85.05112878;
+    private static final int MAX_CELLS_PER_QUERY = 1 << 16;
+
+    public record Box(double south, double west, double north, double east) {
+        public boolean contains(double lat, double lon) {
+            if (lat < south || lat > north) return false;
+            return west <= east ? lon >= west && lon <= east : lon >= west || lon <= east;
+        }
+    }
+
+    /** One marker: {@code row} is the device's snapshot row when the cluster holds a single device, else -1. */
+    public record Cluster(double lat, double lon, int count, int online, Double avgHumidity, int row) {
+    }
+
+    /** Snapshot rows inside a box, in Z-order; {@code truncated} when {@code limit} cut the scan short. */
+    public record Hits(int[] rows, boolean truncated) {
+    }
+
+    private final TenantSnapshot snapshot;
+    private final long[] codes;
+    private final int[] rows;
+    private final int[] onlinePrefix;
+    private final int[] humidityCountPrefix;
+    private final double[] humiditySumPrefix;
+    private final double[] latSumPrefix;
+    private final double[] lonSumPrefix;
+
+    private TenantGeoGrid(TenantSnapshot snapshot, long[] codes, int[] rows) {
+        this.snapshot = snapshot;
+        this.codes = codes;
+        this.rows = rows;
+        int n = rows.length;
+        this.onlinePrefix = new int[n + 1];
+        this.humidityCountPrefix = new int[n + 1];
+        this.humiditySumPrefix = new double[n + 1];
+        this.latSumPrefix = new double[n + 1];
+        this.lonSumPrefix = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            int row = rows[i];
+            boolean online = snapshot.hasOnline(row) && snapshot.isOnline(row);
+            boolean hasH = snapshot.hasDouble(TenantSnapshot.H, row);
+            onlinePrefix[i + 1] = onlinePrefix[i] + (online ? 1 : 0);
+            humidityCountPrefix[i + 1] = humidityCountPrefix[i] + (hasH ? 1 : 0);
+            humiditySumPrefix[i + 1] = humiditySumPrefix[i] + (hasH ? snapshot.getDouble(TenantSnapshot.H, row) : 0.0);
+            latSumPrefix[i + 1] = latSumPrefix[i] + snapshot.getDouble(TenantSnapshot.LAT, row);
+            lonSumPrefix[i + 1] = lonSumPrefix[i] + snapshot.getDouble(TenantSnapshot.LON, row);
+        }
+    }
+
+    public static TenantGeoGrid of(TenantSnapshot snapshot) {
+        if (snapshot.size() > ROW_MASK + 1) {
+            throw new IllegalArgumentException("Too many devices for a geo grid: " + snapshot.size());
+        }
+        // Cell code in the high bits, snapshot row in the low ROW_BITS: one primitive sort orders both.
+        // The top Morton bit lands in the sign bit, so it is flipped to keep the signed sort unsigned.
+        long[] packed = new long[snapshot.size()];
+        int n = 0;
+        for (int row = 0; row < snapshot.size(); row++) {
+            if (!snapshot.hasDouble(TenantSnapshot.LAT, row) || !snapshot.hasDouble(TenantSnapshot.LON, row)) continue;
+            long code = morton(
+                    tileX(snapshot.getDouble(TenantSnapshot.LON, row), MAX_LEVEL),
+                    tileY(snapshot.getDouble(TenantSnapshot.LAT, row), MAX_LEVEL));
+            packed[n++] = ((code << ROW_BITS) | row) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(packed, 0, n);
+
+        long[] codes = new long[n];
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            long entry = packed[i] ^ Long.MIN_VALUE;
+            codes[i] = entry >>> ROW_BITS;
+            rows[i] = (int) (entry & ROW_MASK);
+        }
+        return new TenantGeoGrid(snapshot, codes, rows);
+    }
+
+    public TenantSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /** Number of devices with a position. */
+    public int size() {
+        return rows.length;
+    }
+
+    public Hits within(Box box, int limit) {
+        int level = coveringLevel(box);
+        List<long[]> ranges = cellRanges(box, level);
+        int[] hits = new int[Math.min(limit, rows.length)];
+        int count = 0;
+        for (long[] range : ranges) {
+            int from = lowerBound(range[0]);
+            int to = lowerBound(range[1]);
+            for (int i = from; i < to; i++) {
+                int row = rows[i];
+                if (!box.contains(snapshot.getDouble(TenantSnapshot.LAT, row), snapshot.getDouble(TenantSnapshot.LON, row))) {
+                    continue;
+                }
+                if (count == hits.length) {
+                    return new Hits(hits, true);
+                }
+                hits[count++] = row;
+            }
+        }
+        return new Hits(Arrays.copyOf(hits, count), false);
+    }
+
+    /**
+     * Aggregates the devices in {@code box} into one cluster per cell at {@code level}. Cells on the
+     * edge of the box are aggregated whole, so markers do not jump while panning.
+     */
+    public List<Cluster> clusters(Box box, int level) {
+        level = Math.max(0, Math.min(level, MAX_LEVEL));
+        while (level > 0 && cellCount(box, level) > MAX_CELLS_PER_QUERY) {
+            level--;
+        }
+
+        List<Cluster> clusters = new ArrayList<>();
+        for (long[] range : cellRanges(box, level)) {
+            int from = lowerBound(range[0]);
+            int to = lowerBound(range[1]);
+            int count = to - from;
+            if (count == 0) continue;
+
+            int hCount = humidityCountPrefix[to] - humidityCountPrefix[from];
+            clusters.add(new Cluster(
+                    (latSumPrefix[to] - latSumPrefix[from]) / count,
+                    (lonSumPrefix[to] - lonSumPrefix[from]) / count,
+                    count,
+                    onlinePrefix[to] - onlinePrefix[from],
+                    hCount == 0 ? null : (humiditySumPrefix[to] - humiditySumPrefix[from]) / hCount,
+                    count == 1 ? rows[from] : -1));
+        }
+        return clusters;
+    }
+
+    /** Finest level at which {@code box} touches at most 64 cells, for exact scans. */
+    private int coveringLevel(Box box) {
+        int level = MAX_LEVEL;
+        while (level > 0 && cellCount(box, level) > 64) {
+            level--;
+        }
+        return level;
+    }
+
+    private static long cellCount(Box box, int level) {
+        long total = 0;
+        for (Box part : split(box)) {
+            long xs = (long) tileX(part.east(), level) - tileX(part.west(), level) + 1;
+            long ys = (long) tileY(part.south(), level) - tileY(part.north(), level) + 1;
+            total += xs * ys;
+        }
+        return total;
+    }
+
+    /** Morton code ranges {@code [lo, hi)} at {@link #MAX_LEVEL} of every cell at {@code level} touching the box. */
+    private static List<long[]> cellRanges(Box box, int level) {
+        int shift = 2 * (MAX_LEVEL - level);
+        List<long[]> ranges = new ArrayList<>();
+        for (Box part : split(box)) {
+            int x0 = tileX(part.west(), level);
+            int x1 = tileX(part.east(), level);
+            int y0 = tileY(part.north(), level);
+            int y1 = tileY(part.south(), level);
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    long cell = morton(x, y);
+                    ranges.add(new long[]{cell << shift, (cell + 1) << shift});
+                }
+            }
+        }
+        return ranges;
+    }
+
+    private static List<Box> split(Box box) {
+        if (box.west() <= box.east()) return List.of(box);
+        return List.of(
+                new Box(box.south(), box.west(), box.north(), 180.0),
+                new Box(box.south(), -180.0, box.north(), box.east()));
+    }
+
+    private int lowerBound(long code) {
+        int lo = 0;
+        int hi = codes.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (codes[mid] < code) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    static int tileX(double lon, int level) {
+        double x = (Math.max(-180.0, Math.min(180.0, lon)) + 180.0) / 360.0;
+        return clampTile(x, level);
+    }
+
+    static int tileY(double lat, int level) {
+        double rad = Math.toRadians(Math.max(-MAX_LAT, Math.min(MAX_LAT, lat)));
+        double y = (1.0 - Math.log(Math.tan(rad) + 1.0 / Math.cos(rad)) / Math.PI) / 2.0;
+        return clampTile(y, level);
+    }
+
+    private static int clampTile(double unit, int level) {
+        int tiles = 1 << level;
+        return (int) Math.max(0, Math.min(tiles - 1, Math.floor(unit * tiles)));
+    }
+
+    /** Interleaves the bits of {@code x} (even positions) and {@code y} (odd positions). */
+    static long morton(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static long spread(int v) {
+        long x = v & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+}
@@ -0,0 +1,218 @@
+package iot.data.platform.devices.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Structure-of-arrays view of every device state of one tenant: one primitive column per field with
+ * a presence bitmap standing in for {@code null}, plus the device-id dictionary indexed by row.
+ * A snapshot of N devices is a dozen arrays instead of N records of boxed fields, and the API writes
+ * JSON directly from the columns.
+ * <p>
+ * Instances are immutable once {@link Builder#build()} returns and can be shared between requests.
+ * {@link #version()} is the {@link TenantChangeLog} version read before the rows were, so every
+ * change after it is reported by {@link TenantChangeLog#since}.
+ */
+public final class TenantSnapshot {
+    public static final int LAT = 0;
+    public static final int LON = 1;
+    public static final int H = 2;
+    public static final int T = 3;
+    public static final int SNR = 4;
+    public static final int BAT = 5;
+    private static final int DOUBLE_COLUMNS = 6;
+
+    public static final int TS_HT = 0;
+    public static final int TS_STATE = 1;
+    public static final int RSSI = 2;
+    private static final int LONG_COLUMNS = 3;
+
+    private final String env;
+    private final String tenantId;
+    private final int size;
+    private final String[] deviceIds;
+    private final double[][] doubles;
+    private final BitSet[] doublePresent;
+    private final long[][] longs;
+    private final BitSet[] longPresent;
+    private final BitSet onlinePresent;
+    private final BitSet online;
+    private final long version;
+
+    private TenantSnapshot(TenantSnapshot s, long version) {
+        this.env = s.env;
+        this.tenantId = s.tenantId;
+        this.size = s.size;
+        this.deviceIds = s.deviceIds;
+        this.doubles = s.doubles;
+        this.doublePresent = s.doublePresent;
+        this.longs = s.longs;
+        this.longPresent = s.longPresent;
+        this.onlinePresent = s.onlinePresent;
+        this.online = s.online;
+        this.version = version;
+    }
+
+    private TenantSnapshot(Builder b) {
+        this.env = b.env;
+        this.tenantId = b.tenantId;
+        this.size = b.size;
+        this.deviceIds = b.deviceIds;
+        this.doubles = b.doubles;
+        this.doublePresent = b.doublePresent;
+        this.longs = b.longs;
+        this.longPresent = b.longPresent;
+        this.onlinePresent = b.onlinePresent;
+        this.online = b.online;
+        this.version = 0L;
+    }
+
+    public static TenantSnapshot of(String env, String tenantId, Collection<DeviceState> states) {
+        Builder b = new Builder(env, tenantId, states.size());
+        for (DeviceState s : states) {
+            b.add(s);
+        }
+        return b.build();
+    }
+
+    public String env() {
+        return env;
+    }
+
+    public String tenantId() {
+        return tenantId;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /** Same rows, sharing the columns, stamped with {@code version}. */
+    public TenantSnapshot withVersion(long version) {
+        return new TenantSnapshot(this, version);
+    }
+
+    public String deviceId(int row) {
+        return deviceIds[row];
+    }
+
+    public boolean hasDouble(int column, int row) {
+        return doublePresent[column].get(row);
+    }
+
+    public double getDouble(int column, int row) {
+        return doubles[column][row];
+    }
+
+    public boolean hasLong(int column, int row) {
+        return longPresent[column].get(row);
+    }
+
+    public long getLong(int column, int row) {
+        return longs[column][row];
+    }
+
+    public boolean hasOnline(int row) {
+        return onlinePresent.get(row);
+    }
+
+    public boolean isOnline(int row) {
+        return online.get(row);
+    }
+
+    /** Latest of {@code ts_ht} and {@code ts_state}, or 0 when neither is known. */
+    public long lastSeen(int row) {
+        long ts = 0L;
+        if (hasLong(TS_HT, row)) ts = getLong(TS_HT, row);
+        if (hasLong(TS_STATE, row)) ts = Math.max(ts, getLong(TS_STATE, row));
+        return ts;
+    }
+
+    public static final class Builder {
+        private final String env;
+        private final String tenantId;
+        private int size;
+        private String[] deviceIds;
+        private double[][] doubles;
+        private final BitSet[] doublePresent = new BitSet[DOUBLE_COLUMNS];
+        private long[][] longs;
+        private final BitSet[] longPresent = new BitSet[LONG_COLUMNS];
+        private final BitSet onlinePresent = new BitSet();
+        private final BitSet online = new BitSet();
+
+        public Builder(String env, String tenantId, int capacity) {
+            this.env = env;
+            this.tenantId = tenantId;
+            int cap = Math.max(1, capacity);
+            this.deviceIds = new String[cap];
+            this.doubles = new double[DOUBLE_COLUMNS][cap];
+            this.longs = new long[LONG_COLUMNS][cap];
+            for (int i = 0; i < DOUBLE_COLUMNS; i++) doublePresent[i] = new BitSet(cap);
+            for (int i = 0; i < LONG_COLUMNS; i++) longPresent[i] = new BitSet(cap);
+        }
+
+        public int addRow(String deviceId) {
+            if (size == deviceIds.length) grow();
+            deviceIds[size] = deviceId;
+            return size++;
+        }
+
+        public int add(DeviceState s) {
+            int row = addRow(s.deviceId());
+            setDouble(LAT, row, s.lat());
+            setDouble(LON, row, s.lon());
+            setDouble(H, row, s.h());
+            setDouble(T, row, s.t());
+            setDouble(SNR, row, s.snr());
+            setDouble(BAT, row, s.bat());
+            setLong(TS_HT, row, s.tsHt());
+            setLong(TS_STATE, row, s.tsState());
+            setLong(RSSI, row, s.rssi());
+            setOnline(row, s.online());
+            return row;
+        }
+
+        public void setDouble(int column, int row, Double value) {
+            if (value != null) setDouble(column, row, value.doubleValue());
+        }
+
+        public void setDouble(int column, int row, double value) {
+            doubles[column][row] = value;
+            doublePresent[column].set(row);
+        }
+
+        public void setLong(int column, int row, Long value) {
+            if (value != null) setLong(column, row, value.longValue());
+        }
+
+        public void setLong(int column, int row, long value) {
+            longs[column][row] = value;
+            longPresent[column].set(row);
+        }
+
+        public void setOnline(int row, Boolean value) {
+            if (value != null) setOnline(row, value.booleanValue());
+        }
+
+        public void setOnline(int row, boolean value) {
+            onlinePresent.set(row);
+            online.set(row, value);
+        }
+
+        public TenantSnapshot build() {
+            return new TenantSnapshot(this);
+        }
+
+        private void grow() {
+            int cap = deviceIds.length * 2;
+            deviceIds = Arrays.copyOf(deviceIds, cap);
+            for (int i = 0; i < DOUBLE_COLUMNS; i++) doubles[i] = Arrays.copyOf(doubles[i], cap);
+            for (int i = 0; i < LONG_COLUMNS; i++) longs[i] = Arrays.copyOf(longs[i], cap);
+        }
+    }
+}
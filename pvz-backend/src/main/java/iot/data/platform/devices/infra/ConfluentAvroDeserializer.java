@@ -0,0 +1,81 @@
+package iot.data.platform.devices.infra;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes values written in the Confluent Schema Registry wire format (magic byte {@code 0}, 4-byte
+ * schema id, Avro binary body) into {@link GenericRecord}s. Writer schemas are fetched from the
+ * registry once per id and cached.
+ */
+public class ConfluentAvroDeserializer implements Deserializer<GenericRecord> {
+    private static final byte MAGIC_BYTE = 0;
+
+    private final String registryUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Map<Integer, GenericDatumReader<GenericRecord>> readers = new ConcurrentHashMap<>();
+    private BinaryDecoder decoder;
+
+    public ConfluentAvroDeserializer(String registryUrl, ObjectMapper objectMapper) {
+        this.registryUrl = registryUrl.endsWith("/") ? registryUrl.substring(0, registryUrl.length() - 1) : registryUrl;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    @Override
+    public GenericRecord deserialize(String topic, byte[] data) {
+        if (data == null) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (data.length < 5 || buffer.get() != MAGIC_BYTE) {
+            throw new SerializationException("Not a schema registry encoded record on " + topic);
+        }
+        int schemaId = buffer.getInt();
+
+        GenericDatumReader<GenericRecord> reader = readers.computeIfAbsent(schemaId, this::fetchReader);
+        try {
+            decoder = DecoderFactory.get().binaryDecoder(data, 5, data.length - 5, decoder);
+            return reader.read(null, decoder);
+        } catch (IOException e) {
+            throw new SerializationException("Cannot decode record with schema id " + schemaId, e);
+        }
+    }
+
+    private GenericDatumReader<GenericRecord> fetchReader(int schemaId) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(registryUrl + "/schemas/ids/" + schemaId))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new SerializationException(
+                        "Schema registry returned " + response.statusCode() + " for schema id " + schemaId);
+            }
+            JsonNode body = objectMapper.readTree(response.body());
+            return new GenericDatumReader<>(new Schema.Parser().parse(body.get("schema").asText()));
+        } catch (IOException e) {
+            throw new SerializationException("Cannot fetch schema id " + schemaId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SerializationException("Interrupted while fetching schema id " + schemaId, e);
+        }
+    }
+}
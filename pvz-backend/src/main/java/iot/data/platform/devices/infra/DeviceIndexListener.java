@@ -0,0 +1,66 @@
+package iot.data.platform.devices.infra;
+
+import iot.data.platform.devices.core.DeviceStateChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps {@link RedisDeviceIndex} in sync with the device state hashes by listening to Redis
+ * keyspace notifications ({@code notify-keyspace-events Khgxe}; the {@code e} flag is what delivers
+ * {@code evicted}), and republishes every change as a {@link DeviceStateChangedEvent}.
+ */
+@Component
+public class DeviceIndexListener implements MessageListener {
+    public static final String STATE_KEYSPACE_PATTERN = "__keyspace@*__:pvz:*:*:device:*:state";
+
+    private final RedisDeviceIndex deviceIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DeviceIndexListener(RedisDeviceIndex deviceIndex,
+                               ApplicationEventPublisher eventPublisher) {
+        this.deviceIndex = deviceIndex;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String event = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        int keyIdx = channel.indexOf("__:");
+        if (keyIdx < 0) return;
+        String stateKey = channel.substring(keyIdx + 3);
+
+        String[] parts = stateKey.split(":", 4);
+        if (parts.length < 4 || !"pvz".equals(parts[0])) return;
+        String env = parts[1];
+        String tenantId = parts[2];
+        String deviceId = RedisKeys.deviceIdFromStateKey(stateKey);
+        if (deviceId == null) return;
+
+        boolean removed;
+        switch (event) {
+            case "hset" -> removed = false;
+            case "del", "expired", "evicted" -> removed = true;
+            default -> {
+                return;
+            }
+        }
+
+        try {
+            if (removed) {
+                deviceIndex.remove(env, tenantId, deviceId);
+            } else {
+                deviceIndex.touch(env, tenantId, deviceId, System.currentTimeMillis());
+            }
+        } catch (DataAccessException ignored) {
+        }
+
+        eventPublisher.publishEvent(new DeviceStateChangedEvent(env, tenantId, deviceId, removed));
+    }
+}
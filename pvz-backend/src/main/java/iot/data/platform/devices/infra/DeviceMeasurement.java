@@ -7,14 +7,19 @@ import java.time.Instant;
 
 @Entity
 @Table(name = "device_measurements")
+@IdClass(DeviceMeasurementId.class)
 public class DeviceMeasurement {
 
+    @Id
+    @Column(name = "env", nullable = false)
     private String env;
 
-    @Column(name = "tenant_id")
+    @Id
+    @Column(name = "tenant_id", nullable = false)
     private String tenantId;
 
-    @Column(name = "device_id")
+    @Id
+    @Column(name = "device_id", nullable = false)
     private String deviceId;
 
     @Id
@@ -0,0 +1,37 @@
+package iot.data.platform.devices.infra;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+public class DeviceMeasurementId implements Serializable {
+    private String env;
+    private String tenantId;
+    private String deviceId;
+    private Instant ts;
+
+    protected DeviceMeasurementId() {
+    }
+
+    public DeviceMeasurementId(String env, String tenantId, String deviceId, Instant ts) {
+        this.env = env;
+        this.tenantId = tenantId;
+        this.deviceId = deviceId;
+        this.ts = ts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DeviceMeasurementId that)) return false;
+        return Objects.equals(env, that.env)
+                && Objects.equals(tenantId, that.tenantId)
+                && Objects.equals(deviceId, that.deviceId)
+                && Objects.equals(ts, that.ts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(env, tenantId, deviceId, ts);
+    }
+}
@@ -1,19 +1,30 @@
 package iot.data.platform.devices.infra;
 
-import iot.data.platform.devices.core.AggregatedPoint;
+import iot.data.platform.devices.core.MeasurementRow;
+import iot.data.platform.devices.core.RollupPoint;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface DeviceMeasurementRepository extends JpaRepository<DeviceMeasurement, Long> {
+public interface DeviceMeasurementRepository extends JpaRepository<DeviceMeasurement, DeviceMeasurementId> {
     @Query("""
-            select new iot.data.platform.devices.core.AggregatedPoint(
+            select new iot.data.platform.devices.core.RollupPoint(
                 function('date_trunc', :bucket, m.ts),
-                avg(m.temperature),
-                avg(m.humidity),
+                sum(m.temperature),
+                count(m.temperature),
+                min(m.temperature),
+                max(m.temperature),
+                sum(m.humidity),
+                count(m.humidity),
+                min(m.humidity),
+                max(m.humidity),
                 count(m.status),
                 sum(case when m.status = 'OK' then 1 else 0 end),
                 sum(case when m.status = 'ERROR' then 1 else 0 end)
@@ -22,11 +33,12 @@ public interface DeviceMeasurementRepository extends JpaRepository<DeviceMeasure
             where m.env = :env
               and m.tenantId = :tenantId
               and m.deviceId = :deviceId
-              and m.ts between :fromTs and :toTs
+              and m.ts >= :fromTs
+              and m.ts < :toTs
             group by 1
             order by 1
             """)
-    List<AggregatedPoint> aggregateByTime(
+    List<RollupPoint> aggregatePartialByTime(
             @Param("env") String env,
             @Param("tenantId") String tenantId,
             @Param("deviceId") String deviceId,
@@ -35,4 +47,47 @@ public interface DeviceMeasurementRepository extends JpaRepository<DeviceMeasure
             @Param("toTs") Instant toTs
     );
 
+    /**
+     * Forward-only cursor over one device's raw rows. Must be consumed inside a transaction so the
+     * driver fetches {@code HINT_FETCH_SIZE} rows at a time instead of the whole result set.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "2000"))
+    @Query("""
+            select new iot.data.platform.devices.core.MeasurementRow(
+                m.deviceId, m.ts, m.temperature, m.humidity, m.status
+            )
+            from DeviceMeasurement m
+            where m.env = :env
+              and m.tenantId = :tenantId
+              and m.deviceId = :deviceId
+              and m.ts >= :fromTs
+              and m.ts < :toTs
+            order by m.ts
+            """)
+    Stream<MeasurementRow> streamDeviceRows(
+            @Param("env") String env,
+            @Param("tenantId") String tenantId,
+            @Param("deviceId") String deviceId,
+            @Param("fromTs") Instant fromTs,
+            @Param("toTs") Instant toTs
+    );
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "2000"))
+    @Query("""
+            select new iot.data.platform.devices.core.MeasurementRow(
+                m.deviceId, m.ts, m.temperature, m.humidity, m.status
+            )
+            from DeviceMeasurement m
+            where m.env = :env
+              and m.tenantId = :tenantId
+              and m.ts >= :fromTs
+              and m.ts < :toTs
+            order by m.deviceId, m.ts
+            """)
+    Stream<MeasurementRow> streamTenantRows(
+            @Param("env") String env,
+            @Param("tenantId") String tenantId,
+            @Param("fromTs") Instant fromTs,
+            @Param("toTs") Instant toTs
+    );
 }
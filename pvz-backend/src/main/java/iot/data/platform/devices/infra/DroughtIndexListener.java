@@ -0,0 +1,50 @@
+package iot.data.platform.devices.infra;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps {@link RedisDroughtIndex} in sync with the humidity streak hashes written by the Kafka
+ * Connect sink, from the same keyspace notifications {@link DeviceIndexListener} uses.
+ */
+@Component
+public class DroughtIndexListener implements MessageListener {
+    public static final String STREAK_KEYSPACE_PATTERN = "__keyspace@*__:pvz:*:*:device:*:humidity_low_streak";
+
+    private final RedisDroughtIndex droughtIndex;
+
+    public DroughtIndexListener(RedisDroughtIndex droughtIndex) {
+        this.droughtIndex = droughtIndex;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String event = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        int keyIdx = channel.indexOf("__:");
+        if (keyIdx < 0) return;
+        String streakKey = channel.substring(keyIdx + 3);
+
+        String[] parts = streakKey.split(":", 4);
+        if (parts.length < 4 || !"pvz".equals(parts[0])) return;
+        String env = parts[1];
+        String tenantId = parts[2];
+        String deviceId = RedisKeys.deviceIdFromHumidityLowStreakKey(streakKey);
+        if (deviceId == null) return;
+
+        try {
+            switch (event) {
+                case "hset" -> droughtIndex.update(env, tenantId, deviceId);
+                case "del", "expired", "evicted" -> droughtIndex.remove(env, tenantId, deviceId);
+                default -> {
+                }
+            }
+        } catch (DataAccessException ignored) {
+        }
+    }
+}
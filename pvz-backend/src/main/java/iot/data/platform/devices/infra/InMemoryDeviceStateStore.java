@@ -0,0 +1,203 @@
+package iot.data.platform.devices.infra;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import iot.data.platform.devices.core.DeviceState;
+import iot.data.platform.devices.core.TenantChangeLog;
+import iot.data.platform.devices.core.TenantSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Device states kept in memory, sharded by tenant and fed directly from the {@code mqtt_enriched}
+ * topic by {@link KafkaDeviceStateConsumer}. States are stored already typed, so reads involve no
+ * Redis round trip and no string parsing.
+ * <p>
+ * A tenant's shard is warmed from Redis on first access; after that Kafka keeps it current, and
+ * {@link #invalidate} has it warmed again when the consumer had to skip ahead. Updates only replace
+ * a state when they are at least as new, so a warm-up racing with the consumer never rolls a device
+ * back. Entries expire after {@code state-ttl} without updates, like the Redis hashes.
+ * <p>
+ * Each shard also keeps its last columnar {@link TenantSnapshot}. It is rebuilt when the shard has
+ * changed since, but at most once per {@code snapshot-max-age-ms}, so list endpoints under a steady
+ * ingest rate share one snapshot instead of re-copying the tenant on every request.
+ * <p>
+ * Every state that replaces another and every expiry is recorded in the {@link TenantChangeLog},
+ * whose tenant version doubles as the shard's change counter.
+ */
+@Component
+@ConditionalOnProperty(name = "pvz.ingest.kafka.enabled", havingValue = "true")
+public class InMemoryDeviceStateStore {
+    private record TenantKey(String env, String tenantId) {
+    }
+
+    private record Entry(DeviceState state, long lastSeen, long updatedAtMs) {
+    }
+
+    private record CachedSnapshot(TenantSnapshot snapshot, long version, long builtAtMs) {
+    }
+
+    private static final class Shard {
+        private final Map<String, Entry> devices = new ConcurrentHashMap<>();
+        private final ReentrantLock warmLock = new ReentrantLock();
+        private volatile boolean warm;
+        private volatile CachedSnapshot snapshot;
+    }
+
+    private final RedisDeviceRepository redisDeviceRepository;
+    private final TenantChangeLog changeLog;
+    private final long ttlMs;
+    private final long snapshotMaxAgeMs;
+    private final Map<TenantKey, Shard> shards = new ConcurrentHashMap<>();
+    private final Counter redisWarmups;
+    private final Counter snapshotBuilds;
+
+    public InMemoryDeviceStateStore(
+            RedisDeviceRepository redisDeviceRepository,
+            TenantChangeLog changeLog,
+            @Value("${pvz.ingest.kafka.state-ttl:PT10M}") Duration ttl,
+            @Value("${pvz.ingest.kafka.snapshot-max-age-ms:1000}") long snapshotMaxAgeMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisDeviceRepository = redisDeviceRepository;
+        this.changeLog = changeLog;
+        this.ttlMs = ttl.toMillis();
+        this.snapshotMaxAgeMs = snapshotMaxAgeMs;
+        this.redisWarmups = meterRegistry.counter("pvz.state_store.warmups");
+        this.snapshotBuilds = meterRegistry.counter("pvz.state_store.snapshot.builds");
+        Gauge.builder("pvz.state_store.devices", shards,
+                m -> m.values().stream().mapToInt(s -> s.devices.size()).sum()).register(meterRegistry);
+    }
+
+    public void apply(DeviceState state) {
+        Shard shard = shards.computeIfAbsent(new TenantKey(state.env(), state.tenantId()), k -> new Shard());
+        put(state.env(), state.tenantId(), shard, state, System.currentTimeMillis());
+    }
+
+    public List<DeviceState> findAllByTenant(String env, String tenantId) {
+        Shard shard = warmShard(env, tenantId);
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        List<DeviceState> result = new ArrayList<>(shard.devices.size());
+        for (Entry e : shard.devices.values()) {
+            if (e.updatedAtMs >= cutoff) result.add(e.state);
+        }
+        return result;
+    }
+
+    public TenantSnapshot snapshot(String env, String tenantId) {
+        Shard shard = warmShard(env, tenantId);
+        long now = System.currentTimeMillis();
+        long version = changeLog.version(env, tenantId);
+        CachedSnapshot cached = shard.snapshot;
+        if (cached != null && (cached.version == version || now - cached.builtAtMs < snapshotMaxAgeMs)) {
+            return cached.snapshot;
+        }
+
+        snapshotBuilds.increment();
+        long cutoff = now - ttlMs;
+        TenantSnapshot.Builder builder = new TenantSnapshot.Builder(env, tenantId, shard.devices.size());
+        for (Entry e : shard.devices.values()) {
+            if (e.updatedAtMs >= cutoff) builder.add(e.state);
+        }
+        TenantSnapshot snapshot = builder.build().withVersion(version);
+        shard.snapshot = new CachedSnapshot(snapshot, version, now);
+        return snapshot;
+    }
+
+    public List<DeviceState> findByIds(String env, String tenantId, Collection<String> deviceIds) {
+        Shard shard = warmShard(env, tenantId);
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        List<DeviceState> result = new ArrayList<>(deviceIds.size());
+        for (String deviceId : deviceIds) {
+            Entry e = shard.devices.get(deviceId);
+            if (e != null && e.updatedAtMs >= cutoff) result.add(e.state);
+        }
+        return result;
+    }
+
+    public DeviceState findById(String env, String tenantId, String deviceId) {
+        Shard shard = warmShard(env, tenantId);
+        Entry e = shard.devices.get(deviceId);
+        return e == null || e.updatedAtMs < System.currentTimeMillis() - ttlMs ? null : e.state;
+    }
+
+    /**
+     * Re-warms every shard from Redis on its next read, after the consumer skipped part of the topic.
+     * States already held are only replaced by newer ones, as on the first warm-up.
+     */
+    public void invalidate() {
+        for (Shard shard : shards.values()) {
+            shard.warm = false;
+        }
+    }
+
+    /** Whether a read of the tenant is served from memory without a Redis warm-up first. */
+    public boolean isWarm(String env, String tenantId) {
+        Shard shard = shards.get(new TenantKey(env, tenantId));
+        return shard != null && shard.warm;
+    }
+
+    @Scheduled(fixedDelayString = "${pvz.ingest.kafka.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        for (Map.Entry<TenantKey, Shard> tenant : shards.entrySet()) {
+            TenantKey key = tenant.getKey();
+            Iterator<Map.Entry<String, Entry>> it = tenant.getValue().devices.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                if (e.getValue().updatedAtMs < cutoff) {
+                    it.remove();
+                    changeLog.record(key.env(), key.tenantId(), e.getKey(), true);
+                }
+            }
+        }
+    }
+
+    private Shard warmShard(String env, String tenantId) {
+        Shard shard = shards.computeIfAbsent(new TenantKey(env, tenantId), k -> new Shard());
+        if (!shard.warm) {
+            shard.warmLock.lock();
+            try {
+                if (!shard.warm) {
+                    redisWarmups.increment();
+                    long now = System.currentTimeMillis();
+                    for (DeviceState state : redisDeviceRepository.findAllByTenant(env, tenantId)) {
+                        put(env, tenantId, shard, state, now);
+                    }
+                    shard.warm = true;
+                }
+            } finally {
+                shard.warmLock.unlock();
+            }
+        }
+        return shard;
+    }
+
+    private void put(String env, String tenantId, Shard shard, DeviceState state, long now) {
+        Entry entry = new Entry(state, lastSeen(state), now);
+        Entry current = shard.devices.merge(state.deviceId(), entry,
+                (old, fresh) -> fresh.lastSeen >= old.lastSeen ? fresh : old);
+        if (current == entry) {
+            changeLog.record(env, tenantId, state.deviceId(), false);
+        }
+    }
+
+    private static long lastSeen(DeviceState s) {
+        long ts = 0L;
+        if (s.tsHt() != null) ts = s.tsHt();
+        if (s.tsState() != null) ts = Math.max(ts, s.tsState());
+        return ts;
+    }
+}
@@ -0,0 +1,270 @@
+package iot.data.platform.devices.infra;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import iot.data.platform.devices.core.DeviceState;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Supplier;
+
+/**
+ * Tails the {@code mqtt_enriched} topic and applies every record to {@link InMemoryDeviceStateStore}.
+ * <p>
+ * Each backend instance needs every device, so partitions are assigned manually (no consumer group)
+ * and reading starts at the end of the topic: earlier states come from the Redis warm-up. The
+ * consumer is created through a {@link Supplier} so an in-process stand-in such as Kafka's
+ * {@code MockConsumer} can replace the real client.
+ * <p>
+ * A record that cannot be deserialized or applied is counted as rejected and skipped. Any other
+ * failure closes the consumer and opens a new one after {@code restart-backoff-ms}, doubling up to
+ * {@code restart-backoff-max-ms}; it resumes at the positions already applied, so nothing is lost
+ * while the topic retains it. Until the consumer polls again within {@code max-lag-records} of the
+ * end of the topic, {@link #isCaughtUp()} is false and reads are served from Redis instead of from
+ * the store.
+ */
+@Component
+@ConditionalOnProperty(name = "pvz.ingest.kafka.enabled", havingValue = "true")
+public class KafkaDeviceStateConsumer implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(KafkaDeviceStateConsumer.class);
+
+    private final Supplier<Consumer<String, GenericRecord>> consumerFactory;
+    private final InMemoryDeviceStateStore store;
+    private final String topic;
+    private final Duration pollTimeout;
+    private final Counter records;
+    private final Counter rejected;
+    private final Counter restarts;
+    private final DistributionSummary batchSize;
+    private final long restartBackoffMs;
+    private final long restartBackoffMaxMs;
+    private final long maxLagRecords;
+    private final Map<TopicPartition, Long> positions = new HashMap<>();
+    private volatile Consumer<String, GenericRecord> consumer;
+    private volatile Thread worker;
+    private volatile boolean running;
+    private volatile long lag = -1;
+    private volatile long lastPollMs;
+
+    public KafkaDeviceStateConsumer(
+            Supplier<Consumer<String, GenericRecord>> deviceStateConsumerFactory,
+            InMemoryDeviceStateStore store,
+            @Value("${pvz.ingest.kafka.topic:mqtt_enriched}") String topic,
+            @Value("${pvz.ingest.kafka.poll-timeout-ms:500}") long pollTimeoutMs,
+            @Value("${pvz.ingest.kafka.restart-backoff-ms:1000}") long restartBackoffMs,
+            @Value("${pvz.ingest.kafka.restart-backoff-max-ms:30000}") long restartBackoffMaxMs,
+            @Value("${pvz.ingest.kafka.max-lag-records:10000}") long maxLagRecords,
+            MeterRegistry meterRegistry
+    ) {
+        this.consumerFactory = deviceStateConsumerFactory;
+        this.store = store;
+        this.topic = topic;
+        this.pollTimeout = Duration.ofMillis(pollTimeoutMs);
+        this.records = meterRegistry.counter("pvz.ingest.records", "result", "applied");
+        this.rejected = meterRegistry.counter("pvz.ingest.records", "result", "rejected");
+        this.restarts = meterRegistry.counter("pvz.ingest.restarts");
+        this.batchSize = meterRegistry.summary("pvz.ingest.batch.size");
+        this.restartBackoffMs = Math.max(1, restartBackoffMs);
+        this.restartBackoffMaxMs = Math.max(this.restartBackoffMs, restartBackoffMaxMs);
+        this.maxLagRecords = maxLagRecords;
+        Gauge.builder("pvz.ingest.lag", this, c -> c.lag).register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        consumer = consumerFactory.get();
+        worker = Thread.ofPlatform().name("device-state-consumer").daemon().start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Consumer<String, GenericRecord> c = consumer;
+        if (c != null) c.wakeup();
+        Thread t = worker;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(Duration.ofSeconds(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Whether the store reflects the topic: the consumer is running, has polled recently and is at
+     * most {@code max-lag-records} behind.
+     */
+    public boolean isCaughtUp() {
+        long currentLag = lag;
+        return running
+                && currentLag >= 0 && currentLag <= maxLagRecords
+                && System.currentTimeMillis() - lastPollMs <= pollTimeout.toMillis() * 10 + 1000;
+    }
+
+    private void run() {
+        long backoffMs = restartBackoffMs;
+        Consumer<String, GenericRecord> c = consumer;
+        while (running) {
+            long lastPollBefore = lastPollMs;
+            RuntimeException failure = null;
+            try {
+                consume(c);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                lag = -1;
+                closeQuietly(c);
+            }
+            if (!running) break;
+
+            // A consumer that got as far as polling starts the next round of failures from the short backoff.
+            if (lastPollMs != lastPollBefore) backoffMs = restartBackoffMs;
+            log.warn("Device state consumer failed, restarting in {} ms", backoffMs, failure);
+            restarts.increment();
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                break;
+            }
+            backoffMs = Math.min(backoffMs * 2, restartBackoffMaxMs);
+            try {
+                c = consumerFactory.get();
+                consumer = c;
+            } catch (RuntimeException e) {
+                log.warn("Device state consumer could not be created", e);
+                c = null;
+            }
+        }
+        running = false;
+    }
+
+    private void consume(Consumer<String, GenericRecord> c) {
+        if (c == null) throw new IllegalStateException("No consumer");
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (PartitionInfo p : c.partitionsFor(topic)) {
+            partitions.add(new TopicPartition(p.topic(), p.partition()));
+        }
+        c.assign(partitions);
+        List<TopicPartition> unknown = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            Long position = positions.get(partition);
+            if (position == null) {
+                unknown.add(partition);
+            } else {
+                c.seek(partition, position);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            c.seekToEnd(unknown);
+            // After a failure, whatever was published to these partitions in between is gone for us.
+            if (!positions.isEmpty()) store.invalidate();
+        }
+
+        while (running) {
+            ConsumerRecords<String, GenericRecord> batch;
+            try {
+                batch = c.poll(pollTimeout);
+            } catch (RecordDeserializationException e) {
+                rejected.increment();
+                log.warn("Skipping undecodable record {}@{}", e.topicPartition(), e.offset(), e);
+                c.seek(e.topicPartition(), e.offset() + 1);
+                continue;
+            }
+            if (!batch.isEmpty()) {
+                batchSize.record(batch.count());
+                for (ConsumerRecord<String, GenericRecord> record : batch) {
+                    apply(record);
+                }
+            }
+            long total = 0;
+            for (TopicPartition partition : partitions) {
+                positions.put(partition, c.position(partition));
+                OptionalLong partitionLag = c.currentLag(partition);
+                total = partitionLag.isPresent() && total >= 0 ? total + partitionLag.getAsLong() : -1;
+            }
+            lag = total;
+            lastPollMs = System.currentTimeMillis();
+        }
+    }
+
+    private void apply(ConsumerRecord<String, GenericRecord> record) {
+        DeviceState state;
+        try {
+            state = toDeviceState(record.value());
+        } catch (RuntimeException e) {
+            log.warn("Skipping malformed record {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+            state = null;
+        }
+        if (state == null) {
+            rejected.increment();
+        } else {
+            store.apply(state);
+            records.increment();
+        }
+    }
+
+    private static void closeQuietly(Consumer<String, GenericRecord> c) {
+        if (c == null) return;
+        try {
+            c.close(Duration.ofSeconds(5));
+        } catch (RuntimeException e) {
+            log.debug("Closing device state consumer failed", e);
+        }
+    }
+
+    public static DeviceState toDeviceState(GenericRecord r) {
+        if (r == null) return null;
+        String deviceId = string(r, "d");
+        String env = string(r, "env");
+        String tenantId = string(r, "tenant");
+        if (deviceId == null || env == null || tenantId == null) return null;
+
+        return new DeviceState(
+                deviceId,
+                env,
+                tenantId,
+                (Double) r.get("lat"),
+                (Double) r.get("lon"),
+                (Double) r.get("h"),
+                (Double) r.get("t"),
+                (Long) r.get("ts_ht"),
+                (Long) r.get("rssi"),
+                (Double) r.get("snr"),
+                (Double) r.get("bat"),
+                (Boolean) r.get("online"),
+                (Long) r.get("ts_state")
+        );
+    }
+
+    private static String string(GenericRecord r, String field) {
+        Object v = r.get(field);
+        return v == null ? null : v.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package iot.data.platform.devices.infra;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Keeps the monthly partitions of {@code device_measurements} (see {@code V3__partition_device_measurements.sql})
+ * prepared {@code premake-months} ahead and drops raw partitions that lie entirely outside the retention
+ * window. Rollups are not affected by retention, so older history stays available at hour granularity
+ * and coarser.
+ * <p>
+ * Partitions are also created back to the start of the retention window, so a backfill arriving after
+ * deployment (the emulator replays years of history) is routed straight into its months, and back to
+ * the oldest row still in the default partition, which moves rows written before their month existed
+ * (or, without retention, older than any partition) out of it. Old data then stays prunable and is
+ * removed by dropping partitions instead of deleting from the default one.
+ */
+@Component
+public class MeasurementPartitionMaintainer {
+    private static final Logger log = LoggerFactory.getLogger(MeasurementPartitionMaintainer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int premakeMonths;
+    private final Duration retention;
+
+    public MeasurementPartitionMaintainer(
+            JdbcTemplate jdbcTemplate,
+            @Value("${pvz.measurements.partitions.premake-months:3}") int premakeMonths,
+            @Value("${pvz.measurements.retention:P730D}") Duration retention
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.premakeMonths = Math.max(1, premakeMonths);
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${pvz.measurements.partitions.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        try {
+            // Drop first, so rows past retention are not moved into partitions only to be dropped.
+            Integer dropped = 0;
+            Integer created;
+            if (!retention.isZero()) {
+                dropped = jdbcTemplate.queryForObject(
+                        "select device_measurements_drop_partitions(localtimestamp - make_interval(secs => ?))",
+                        Integer.class, retention.toSeconds());
+                created = jdbcTemplate.queryForObject(
+                        "select device_measurements_create_partitions("
+                                + "least(localtimestamp - make_interval(secs => ?), "
+                                + "(select min(ts) from device_measurements_default)), "
+                                + "date_trunc('month', localtimestamp) + make_interval(months => ?))",
+                        Integer.class, retention.toSeconds(), premakeMonths);
+            } else {
+                created = jdbcTemplate.queryForObject(
+                        "select device_measurements_create_partitions("
+                                + "least(date_trunc('month', localtimestamp), "
+                                + "(select min(ts) from device_measurements_default)), "
+                                + "date_trunc('month', localtimestamp) + make_interval(months => ?))",
+                        Integer.class, premakeMonths);
+            }
+            if ((created != null && created > 0) || (dropped != null && dropped > 0)) {
+                log.info("device_measurements partitions: {} created, {} dropped", created, dropped);
+            }
+        } catch (DataAccessException e) {
+            log.warn("device_measurements partition maintenance failed", e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package iot.data.platform.devices.infra;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+
+/**
+ * Pre-aggregated measurements per device and time bucket. Rows are maintained by the
+ * {@code device_measurements_rollup} (insert) and {@code device_measurements_rollup_update} (upsert
+ * redeliveries) triggers, the backend only reads them.
+ */
+@Entity
+@Immutable
+@IdClass(MeasurementRollupId.class)
+@Table(name = "device_measurement_rollups")
+public class MeasurementRollup {
+
+    @Id
+    @Column(name = "granularity", nullable = false)
+    private String granularity;
+
+    @Id
+    @Column(name = "env", nullable = false)
+    private String env;
+
+    @Id
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Id
+    @Column(name = "device_id", nullable = false)
+    private String deviceId;
+
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Column(name = "t_sum", nullable = false)
+    private double tSum;
+
+    @Column(name = "t_count", nullable = false)
+    private long tCount;
+
+    @Column(name = "t_min")
+    private Double tMin;
+
+    @Column(name = "t_max")
+    private Double tMax;
+
+    @Column(name = "h_sum", nullable = false)
+    private double hSum;
+
+    @Column(name = "h_count", nullable = false)
+    private long hCount;
+
+    @Column(name = "h_min")
+    private Double hMin;
+
+    @Column(name = "h_max")
+    private Double hMax;
+
+    @Column(name = "total_count", nullable = false)
+    private long totalCount;
+
+    @Column(name = "ok_count", nullable = false)
+    private long okCount;
+
+    @Column(name = "error_count", nullable = false)
+    private long errorCount;
+
+    protected MeasurementRollup() {
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public String getEnv() {
+        return env;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public double getTSum() {
+        return tSum;
+    }
+
+    public long getTCount() {
+        return tCount;
+    }
+
+    public Double getTMin() {
+        return tMin;
+    }
+
+    public Double getTMax() {
+        return tMax;
+    }
+
+    public double getHSum() {
+        return hSum;
+    }
+
+    public long getHCount() {
+        return hCount;
+    }
+
+    public Double getHMin() {
+        return hMin;
+    }
+
+    public Double getHMax() {
+        return hMax;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getOkCount() {
+        return okCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+}
@@ -0,0 +1,46 @@
+package iot.data.platform.devices.infra;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+public class MeasurementRollupId implements Serializable {
+    private String granularity;
+    private String env;
+    private String tenantId;
+    private String deviceId;
+    private Instant bucketStart;
+
+    protected MeasurementRollupId() {
+    }
+
+    public MeasurementRollupId(
+            String granularity,
+            String env,
+            String tenantId,
+            String deviceId,
+            Instant bucketStart
+    ) {
+        this.granularity = granularity;
+        this.env = env;
+        this.tenantId = tenantId;
+        this.deviceId = deviceId;
+        this.bucketStart = bucketStart;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MeasurementRollupId that)) return false;
+        return Objects.equals(granularity, that.granularity)
+                && Objects.equals(env, that.env)
+                && Objects.equals(tenantId, that.tenantId)
+                && Objects.equals(deviceId, that.deviceId)
+                && Objects.equals(bucketStart, that.bucketStart);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(granularity, env, tenantId, deviceId, bucketStart);
+    }
+}
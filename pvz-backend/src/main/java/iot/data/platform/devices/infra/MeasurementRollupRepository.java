@@ -0,0 +1,138 @@
+package iot.data.platform.devices.infra;
+
+import iot.data.platform.devices.core.RollupPoint;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface MeasurementRollupRepository extends JpaRepository<MeasurementRollup, MeasurementRollupId> {
+    @Query("""
+            select new iot.data.platform.devices.core.RollupPoint(
+                function('date_trunc', :bucket, r.bucketStart),
+                sum(r.tSum),
+                sum(r.tCount),
+                min(r.tMin),
+                max(r.tMax),
+                sum(r.hSum),
+                sum(r.hCount),
+                min(r.hMin),
+                max(r.hMax),
+                sum(r.totalCount),
+                sum(r.okCount),
+                sum(r.errorCount)
+            )
+            from MeasurementRollup r
+            where r.granularity = :granularity
+              and r.env = :env
+              and r.tenantId = :tenantId
+              and r.deviceId = :deviceId
+              and r.bucketStart >= :fromTs
+              and r.bucketStart < :toTs
+            group by 1
+            order by 1
+            """)
+    List<RollupPoint> aggregateRollups(
+            @Param("env") String env,
+            @Param("tenantId") String tenantId,
+            @Param("deviceId") String deviceId,
+            @Param("granularity") String granularity,
+            @Param("bucket") String bucket,
+            @Param("fromTs") Instant fromTs,
+            @Param("toTs") Instant toTs
+    );
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "2000"))
+    @Query("""
+            select new iot.data.platform.devices.core.RollupPoint(
+                r.bucketStart,
+                r.tSum,
+                r.tCount,
+                r.tMin,
+                r.tMax,
+                r.hSum,
+                r.hCount,
+                r.hMin,
+                r.hMax,
+                r.totalCount,
+                r.okCount,
+                r.errorCount
+            )
+            from MeasurementRollup r
+            where r.granularity = :granularity
+              and r.env = :env
+              and r.tenantId = :tenantId
+              and r.deviceId = :deviceId
+              and r.bucketStart >= :fromTs
+              and r.bucketStart < :toTs
+            order by r.bucketStart
+            """)
+    Stream<RollupPoint> streamRollups(
+            @Param("env") String env,
+            @Param("tenantId") String tenantId,
+            @Param("deviceId") String deviceId,
+            @Param("granularity") String granularity,
+            @Param("fromTs") Instant fromTs,
+            @Param("toTs") Instant toTs
+    );
+
+    @Query("""
+            select distinct r.deviceId
+            from MeasurementRollup r
+            where r.granularity = :granularity
+              and r.env = :env
+              and r.tenantId = :tenantId
+              and r.bucketStart >= :fromTs
+              and r.bucketStart < :toTs
+            """)
+    List<String> findDeviceIds(
+            @Param("env") String env,
+            @Param("tenantId") String tenantId,
+            @Param("granularity") String granularity,
+            @Param("fromTs") Instant fromTs,
+            @Param("toTs") Instant toTs
+    );
+
+    /**
+     * One row per device and bucket for the given devices; {@code granularity} must equal the requested
+     * bucket so that every row is a single device's bucket.
+     */
+    @Query("""
+            select new iot.data.platform.devices.core.RollupPoint(
+                r.bucketStart,
+                r.tSum,
+                r.tCount,
+                r.tMin,
+                r.tMax,
+                r.hSum,
+                r.hCount,
+                r.hMin,
+                r.hMax,
+                r.totalCount,
+                r.okCount,
+                r.errorCount
+            )
+            from MeasurementRollup r
+            where r.granularity = :granularity
+              and r.env = :env
+              and r.tenantId = :tenantId
+              and r.deviceId in :deviceIds
+              and r.bucketStart >= :fromTs
+              and r.bucketStart < :toTs
+            """)
+    List<RollupPoint> findDeviceBuckets(
+            @Param("env") String env,
+            @Param("tenantId") String tenantId,
+            @Param("deviceIds") Collection<String> deviceIds,
+            @Param("granularity") String granularity,
+            @Param("fromTs") Instant fromTs,
+            @Param("toTs") Instant toTs
+    );
+}
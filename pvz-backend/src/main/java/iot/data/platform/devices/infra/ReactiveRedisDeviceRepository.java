@@ -0,0 +1,149 @@
+package iot.data.platform.devices.infra;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import iot.data.platform.devices.api.DroughtSummaryResponse;
+import iot.data.platform.devices.api.RecentSummaryResponse;
+import iot.data.platform.devices.core.TenantSnapshot;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking counterpart of the tenant-wide reads in {@link RedisDeviceRepository} and
+ * {@link RedisDroughtIndex}, built on {@link ReactiveRedisTemplate}.
+ * <p>
+ * Per-device HMGETs are issued as a stream over the shared Lettuce connection with at most
+ * {@code concurrency} in flight, so a large tenant neither blocks a thread per chunk nor floods the
+ * connection. Index rebuilds (SCAN) stay on the blocking implementations and are offloaded to
+ * {@code redisReadExecutor}; they only run when an index is missing.
+ */
+@Repository
+@ConditionalOnProperty(name = "pvz.api.reactive.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveRedisDeviceRepository {
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final ReactiveHashOperations<String, String, String> hashOps;
+    private final ReactiveZSetOperations<String, String> zSetOps;
+    private final RedisDeviceIndex deviceIndex;
+    private final RedisDroughtIndex droughtIndex;
+    private final int concurrency;
+    private final Scheduler blockingScheduler;
+    private final Counter hmgetCommands;
+
+    public ReactiveRedisDeviceRepository(
+            ReactiveStringRedisTemplate redisTemplate,
+            RedisDeviceIndex deviceIndex,
+            RedisDroughtIndex droughtIndex,
+            @Value("${pvz.api.reactive.redis-concurrency:256}") int concurrency,
+            @Qualifier("redisReadExecutor") Executor readExecutor,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.hashOps = redisTemplate.opsForHash();
+        this.zSetOps = redisTemplate.opsForZSet();
+        this.deviceIndex = deviceIndex;
+        this.droughtIndex = droughtIndex;
+        this.concurrency = Math.max(1, concurrency);
+        this.blockingScheduler = Schedulers.fromExecutor(readExecutor);
+        this.hmgetCommands = meterRegistry.counter("pvz.redis.commands", "command", "hmget");
+    }
+
+    public Mono<TenantSnapshot> findSnapshotByTenant(String env, String tenantId) {
+        return deviceIds(env, tenantId).flatMap(ids -> {
+            if (ids.isEmpty()) {
+                return Mono.just(new TenantSnapshot.Builder(env, tenantId, 0).build());
+            }
+            List<String> missing = new ArrayList<>();
+            return Flux.fromIterable(ids)
+                    .flatMap(id -> {
+                        hmgetCommands.increment();
+                        return hashOps.multiGet(RedisKeys.deviceState(env, tenantId, id), RedisDeviceRepository.STATE_FIELDS)
+                                .map(values -> Map.entry(id, values));
+                    }, concurrency)
+                    .collect(() -> new TenantSnapshot.Builder(env, tenantId, ids.size()), (builder, row) -> {
+                        if (!RedisDeviceRepository.addSnapshotRow(builder, row.getKey(), row.getValue())) {
+                            missing.add(row.getKey());
+                        }
+                    })
+                    .flatMap(builder -> prune(env, tenantId, missing).thenReturn(builder.build()));
+        }).onErrorResume(e -> Mono.just(new TenantSnapshot.Builder(env, tenantId, 0).build()));
+    }
+
+    public Mono<RecentSummaryResponse> findRecentSummary(String env, String tenantId) {
+        return hashOps.entries(RedisKeys.recentSummary(env, tenantId))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(map -> RedisDeviceRepository.toRecentSummary(env, tenantId, map))
+                .onErrorResume(e -> Mono.just(RedisDeviceRepository.emptySummary(env, tenantId)));
+    }
+
+    /**
+     * Same figures as {@link RedisDroughtIndex#summary}. A tenant whose sorted set does not exist yet
+     * is handed to the blocking implementation, which rebuilds it.
+     */
+    public Mono<DroughtSummaryResponse> findDroughtSummary(String env, String tenantId) {
+        String key = RedisKeys.droughtSet(env, tenantId);
+        return redisTemplate.hasKey(key).flatMap(exists -> {
+            if (!exists) {
+                return Mono.fromCallable(() -> droughtIndex.summary(env, tenantId)).subscribeOn(blockingScheduler);
+            }
+            Mono<Long> inDrought = zSetOps.count(key, Range.rightUnbounded(Range.Bound.exclusive(0.0)));
+            Mono<List<ZSetOperations.TypedTuple<String>>> top = zSetOps.reverseRangeWithScores(key, Range.closed(0L, 0L))
+                    .collectList();
+            Mono<String> threshold = hashOps.get(RedisKeys.droughtMeta(env, tenantId), "threshold")
+                    .defaultIfEmpty("");
+            return Mono.zip(inDrought, top, threshold).map(t -> {
+                double maxDays = 0.0;
+                String maxDeviceId = null;
+                if (!t.getT2().isEmpty()) {
+                    ZSetOperations.TypedTuple<String> max = t.getT2().get(0);
+                    if (max.getScore() != null && max.getScore() > 0) {
+                        maxDays = max.getScore();
+                        maxDeviceId = max.getValue();
+                    }
+                }
+                return new DroughtSummaryResponse(env, tenantId, parseDoubleOrNull(t.getT3()),
+                        t.getT1().intValue(), maxDays, maxDeviceId);
+            });
+        }).onErrorResume(e -> Mono.just(new DroughtSummaryResponse(env, tenantId, null, 0, 0.0, null)));
+    }
+
+    private Mono<List<String>> deviceIds(String env, String tenantId) {
+        return zSetOps.range(RedisKeys.devicesSet(env, tenantId), Range.unbounded())
+                .collectList()
+                .flatMap(ids -> ids.isEmpty()
+                        ? Mono.fromCallable(() -> (List<String>) new ArrayList<>(deviceIndex.deviceIds(env, tenantId)))
+                                .subscribeOn(blockingScheduler)
+                        : Mono.just(ids));
+    }
+
+    private Mono<Long> prune(String env, String tenantId, List<String> missing) {
+        if (missing.isEmpty()) return Mono.just(0L);
+        return zSetOps.remove(RedisKeys.devicesSet(env, tenantId), missing.toArray())
+                .onErrorReturn(0L);
+    }
+
+    private static Double parseDoubleOrNull(String v) {
+        if (v == null || v.isBlank()) return null;
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package iot.data.platform.devices.infra;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-tenant device index stored in {@link RedisKeys#devicesSet(String, String)} as a sorted set
+ * of device ids scored by last-seen time (epoch millis).
+ * <p>
+ * The index is fed by {@link DeviceIndexListener} from keyspace notifications on the state hashes
+ * written by the Kafka Connect sink. When a tenant's index is empty it is rebuilt with a cursor-based
+ * SCAN, so listing a tenant never falls back to a blocking KEYS call.
+ * <p>
+ * Pub/sub gives no delivery guarantee: a device first written while no backend was subscribed, or
+ * whose notification was lost across a listener reconnect, would stay missing until its key expires.
+ * Tenants that have been listed are therefore reconciled periodically with the same SCAN.
+ */
+@Repository
+public class RedisDeviceIndex {
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ZSetOperations<String, String> zSetOps;
+    private final int scanCount;
+    private final long rebuildIntervalMs;
+    private final Map<TenantKey, Long> lastRebuildAt = new ConcurrentHashMap<>();
+    private final Set<TenantKey> knownTenants = ConcurrentHashMap.newKeySet();
+    private final Counter rebuilds;
+    private final DistributionSummary rebuildKeys;
+    private final Counter reconcileAdded;
+    private final Counter reconcileRemoved;
+
+    private record TenantKey(String env, String tenantId) {
+    }
+
+    public RedisDeviceIndex(
+            RedisTemplate<String, String> redisTemplate,
+            @Value("${pvz.redis.device-index.scan-count:1000}") int scanCount,
+            @Value("${pvz.redis.device-index.rebuild-interval-ms:30000}") long rebuildIntervalMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.zSetOps = redisTemplate.opsForZSet();
+        this.scanCount = scanCount;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+        this.rebuilds = meterRegistry.counter("pvz.redis.device_index.rebuilds");
+        this.rebuildKeys = meterRegistry.summary("pvz.redis.device_index.rebuild.keys");
+        this.reconcileAdded = meterRegistry.counter("pvz.redis.device_index.reconcile", "result", "added");
+        this.reconcileRemoved = meterRegistry.counter("pvz.redis.device_index.reconcile", "result", "removed");
+    }
+
+    public Set<String> deviceIds(String env, String tenantId) {
+        knownTenants.add(new TenantKey(env, tenantId));
+        String indexKey = RedisKeys.devicesSet(env, tenantId);
+        Set<String> ids;
+        try {
+            ids = zSetOps.range(indexKey, 0, -1);
+        } catch (DataAccessException e) {
+            return Set.of();
+        }
+        if (ids != null && !ids.isEmpty()) {
+            return ids;
+        }
+        return rebuildIfDue(env, tenantId);
+    }
+
+    public void touch(String env, String tenantId, String deviceId, long lastSeenMs) {
+        zSetOps.add(RedisKeys.devicesSet(env, tenantId), deviceId, lastSeenMs);
+    }
+
+    public void remove(String env, String tenantId, String deviceId) {
+        zSetOps.remove(RedisKeys.devicesSet(env, tenantId), deviceId);
+    }
+
+    public Set<String> rebuild(String env, String tenantId) {
+        lastRebuildAt.put(new TenantKey(env, tenantId), System.currentTimeMillis());
+        rebuilds.increment();
+
+        Set<String> ids;
+        try {
+            ids = scanDeviceIds(env, tenantId);
+        } catch (DataAccessException e) {
+            return Set.of();
+        }
+
+        rebuildKeys.record(ids.size());
+        if (!ids.isEmpty()) {
+            zSetOps.add(RedisKeys.devicesSet(env, tenantId), tuples(ids, System.currentTimeMillis()));
+        }
+        return ids;
+    }
+
+    /**
+     * Adds state hashes the index is missing (without touching the last-seen score of indexed ones)
+     * and drops members whose hash is gone. A member is only dropped if it was not touched since the
+     * SCAN started, so a device written during the pass is never removed.
+     */
+    public void reconcile(String env, String tenantId) {
+        long startedAt = System.currentTimeMillis();
+        Set<String> ids = scanDeviceIds(env, tenantId);
+        String indexKey = RedisKeys.devicesSet(env, tenantId);
+
+        if (!ids.isEmpty()) {
+            Long added = zSetOps.addIfAbsent(indexKey, tuples(ids, startedAt));
+            if (added != null) reconcileAdded.increment(added);
+        }
+
+        Set<String> stale = new HashSet<>();
+        Set<String> before = zSetOps.rangeByScore(
+                indexKey, Double.NEGATIVE_INFINITY, Math.nextDown((double) startedAt));
+        if (before != null) {
+            for (String id : before) {
+                if (!ids.contains(id)) stale.add(id);
+            }
+        }
+        if (!stale.isEmpty()) {
+            Long removed = zSetOps.remove(indexKey, stale.toArray());
+            if (removed != null) reconcileRemoved.increment(removed);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pvz.redis.device-index.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        for (TenantKey tenant : knownTenants) {
+            try {
+                reconcile(tenant.env(), tenant.tenantId());
+            } catch (DataAccessException ignored) {
+            }
+        }
+    }
+
+    private Set<String> scanDeviceIds(String env, String tenantId) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(RedisKeys.deviceStatePattern(env, tenantId))
+                .count(scanCount)
+                .build();
+
+        Set<String> ids = new HashSet<>();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String deviceId = RedisKeys.deviceIdFromStateKey(cursor.next());
+                if (deviceId != null) {
+                    ids.add(deviceId);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static Set<ZSetOperations.TypedTuple<String>> tuples(Set<String> ids, long scoreMs) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(ids.size());
+        for (String id : ids) {
+            tuples.add(new DefaultTypedTuple<>(id, (double) scoreMs));
+        }
+        return tuples;
+    }
+
+    private Set<String> rebuildIfDue(String env, String tenantId) {
+        Long last = lastRebuildAt.get(new TenantKey(env, tenantId));
+        if (last != null && System.currentTimeMillis() - last < rebuildIntervalMs) {
+            return Set.of();
+        }
+        return rebuild(env, tenantId);
+    }
+}
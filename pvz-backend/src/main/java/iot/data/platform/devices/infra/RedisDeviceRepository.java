@@ -1,93 +1,325 @@
 package iot.data.platform.devices.infra;
 
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import iot.data.platform.devices.api.DroughtStreakResponse;
-import iot.data.platform.devices.api.DroughtSummaryResponse;
 import iot.data.platform.devices.api.RecentSummaryResponse;
 import iot.data.platform.devices.core.DeviceState;
+import iot.data.platform.devices.core.TenantSnapshot;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Repository
 public class RedisDeviceRepository {
+    static final List<String> STATE_FIELDS = List.of(
+            "lat", "lon", "h", "t", "ts_ht", "rssi", "snr", "bat", "online", "ts_state"
+    );
+
     private final RedisTemplate<String, String> redisTemplate;
     private final HashOperations<String, String, String> hashOps;
-
-    public RedisDeviceRepository(RedisTemplate<String, String> redisTemplate) {
+    private final RedisDeviceIndex deviceIndex;
+    private final RedisNearCache nearCache;
+    private final int bulkChunkSize;
+    private final Executor readExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Counter hmgetCommands;
+    private final Counter hgetallCommands;
+    private final Counter pipelines;
+
+    public RedisDeviceRepository(RedisTemplate<String, String> redisTemplate,
+                                 RedisDeviceIndex deviceIndex,
+                                 RedisNearCache nearCache,
+                                 @Value("${pvz.redis.bulk-read.chunk-size:500}") int bulkChunkSize,
+                                 @Qualifier("redisReadExecutor") Executor readExecutor,
+                                 MeterRegistry meterRegistry) {
         this.redisTemplate = redisTemplate;
         this.hashOps = redisTemplate.opsForHash();
+        this.deviceIndex = deviceIndex;
+        this.nearCache = nearCache;
+        this.bulkChunkSize = Math.max(1, bulkChunkSize);
+        this.readExecutor = readExecutor;
+        this.meterRegistry = meterRegistry;
+        this.hmgetCommands = meterRegistry.counter("pvz.redis.commands", "command", "hmget");
+        this.hgetallCommands = meterRegistry.counter("pvz.redis.commands", "command", "hgetall");
+        this.pipelines = meterRegistry.counter("pvz.redis.pipelines");
     }
 
+    @Timed(value = "pvz.redis.repository", extraTags = {"method", "findAllByTenant"}, histogram = true)
     public List<DeviceState> findAllByTenant(String env, String tenantId) {
-        String pattern = String.format("pvz:%s:%s:device:*:state", env, tenantId);
-        Set<String> stateKeys = redisTemplate.keys(pattern);
+        Set<String> deviceIds = deviceIndex.deviceIds(env, tenantId);
+
+        DistributionSummary.builder("pvz.devices.scanned")
+                .tags("env", env, "tenant", tenantId)
+                .register(meterRegistry)
+                .record(deviceIds.size());
 
-        if (stateKeys.isEmpty()) {
+        if (deviceIds.isEmpty()) {
             return List.of();
         }
 
-        List<DeviceState> result = new ArrayList<>();
-        for (String stateKey : stateKeys) {
-            String deviceId = extractDeviceId(stateKey);
-            if (deviceId == null) continue;
+        return readStates(env, tenantId, deviceIds, true);
+    }
 
-            DeviceState state = findById(env, tenantId, deviceId);
-            if (state != null) {
-                result.add(state);
+    /**
+     * Same read as {@link #findAllByTenant} but parses the HMGET replies straight into the columns of a
+     * {@link TenantSnapshot}, without materialising a {@link DeviceState} or a boxed field per device.
+     */
+    @Timed(value = "pvz.redis.repository", extraTags = {"method", "findSnapshotByTenant"}, histogram = true)
+    public TenantSnapshot findSnapshotByTenant(String env, String tenantId) {
+        Set<String> deviceIds = deviceIndex.deviceIds(env, tenantId);
+        if (deviceIds.isEmpty()) {
+            return new TenantSnapshot.Builder(env, tenantId, 0).build();
+        }
+
+        List<String> ids = new ArrayList<>(deviceIds);
+        List<String> keys = new ArrayList<>(ids.size());
+        for (String deviceId : ids) {
+            keys.add(RedisKeys.deviceState(env, tenantId, deviceId));
+        }
+
+        List<List<String>> rows;
+        try {
+            rows = multiGetFields(keys, STATE_FIELDS);
+        } catch (DataAccessException e) {
+            return new TenantSnapshot.Builder(env, tenantId, 0).build();
+        }
+
+        TenantSnapshot.Builder builder = new TenantSnapshot.Builder(env, tenantId, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            List<String> values = rows.get(i);
+            if (!addSnapshotRow(builder, ids.get(i), values)) {
+                deviceIndex.remove(env, tenantId, ids.get(i));
             }
         }
-        return result;
+        return builder.build();
     }
 
-    private String extractDeviceId(String stateKey) {
-        int deviceIdx = stateKey.indexOf(":device:");
-        int stateIdx = stateKey.lastIndexOf(":state");
-        if (deviceIdx < 0 || stateIdx < 0 || stateIdx <= deviceIdx + 8) {
-            return null;
+    @Timed(value = "pvz.redis.repository", extraTags = {"method", "findByIds"}, histogram = true)
+    public List<DeviceState> findByIds(String env, String tenantId, Collection<String> deviceIds) {
+        if (deviceIds.isEmpty()) {
+            return List.of();
+        }
+        return readStates(env, tenantId, deviceIds, false);
+    }
+
+    private List<DeviceState> readStates(
+            String env,
+            String tenantId,
+            Collection<String> deviceIds,
+            boolean pruneMissing
+    ) {
+        List<String> ids = new ArrayList<>(deviceIds);
+        List<String> keys = new ArrayList<>(ids.size());
+        for (String deviceId : ids) {
+            keys.add(RedisKeys.deviceState(env, tenantId, deviceId));
+        }
+
+        List<List<String>> rows;
+        try {
+            rows = multiGetFields(keys, STATE_FIELDS);
+        } catch (DataAccessException e) {
+            return List.of();
+        }
+
+        List<DeviceState> result = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            DeviceState state = toDeviceState(env, tenantId, ids.get(i), rows.get(i));
+            if (state != null) {
+                result.add(state);
+            } else if (pruneMissing) {
+                deviceIndex.remove(env, tenantId, ids.get(i));
+            }
         }
-        return stateKey.substring(deviceIdx + 8, stateIdx);
+        return result;
     }
 
+    /**
+     * Single-device reads go through {@link RedisNearCache}: the detail panel polls devices whose hash
+     * changes at most once per reporting interval, so most reads are served without a round trip.
+     */
+    @Timed(value = "pvz.redis.repository", extraTags = {"method", "findById"}, histogram = true)
     public DeviceState findById(String env, String tenantId, String deviceId) {
         String stateKey = RedisKeys.deviceState(env, tenantId, deviceId);
-        Map<String, String> map;
+        return nearCache.get(stateKey,
+                commands -> toDeviceState(env, tenantId, deviceId, hmget(commands, stateKey)),
+                () -> readState(env, tenantId, deviceId, stateKey));
+    }
+
+    private DeviceState readState(String env, String tenantId, String deviceId, String stateKey) {
+        List<String> values;
         try {
-            map = hashOps.entries(stateKey);
+            hmgetCommands.increment();
+            values = hashOps.multiGet(stateKey, STATE_FIELDS);
         } catch (DataAccessException e) {
             return null;
         }
-        if (map.isEmpty()) return null;
+        return toDeviceState(env, tenantId, deviceId, values);
+    }
+
+    private List<String> hmget(RedisCommands<String, String> commands, String key) {
+        hmgetCommands.increment();
+        List<String> values = new ArrayList<>(STATE_FIELDS.size());
+        for (KeyValue<String, String> kv : commands.hmget(key, STATE_FIELDS.toArray(String[]::new))) {
+            values.add(kv.getValueOrElse(null));
+        }
+        return values;
+    }
+
+    private DeviceState toDeviceState(String env, String tenantId, String deviceId, List<String> values) {
+        if (values == null || allNull(values)) return null;
 
         return new DeviceState(
                 deviceId,
                 env,
                 tenantId,
-                parseDoubleOrNull(map.get("lat")),
-                parseDoubleOrNull(map.get("lon")),
-                parseDoubleOrNull(map.get("h")),
-                parseDoubleOrNull(map.get("t")),
-                parseLongOrNull(map.get("ts_ht")),
-                parseLongOrNull(map.get("rssi")),
-                parseDoubleOrNull(map.get("snr")),
-                parseDoubleOrNull(map.get("bat")),
-                parseBoolOrNull(map.get("online")),
-                parseLongOrNull(map.get("ts_state"))
+                parseDoubleOrNull(values.get(0)),
+                parseDoubleOrNull(values.get(1)),
+                parseDoubleOrNull(values.get(2)),
+                parseDoubleOrNull(values.get(3)),
+                parseLongOrNull(values.get(4)),
+                parseLongOrNull(values.get(5)),
+                parseDoubleOrNull(values.get(6)),
+                parseDoubleOrNull(values.get(7)),
+                parseBoolOrNull(values.get(8)),
+                parseLongOrNull(values.get(9))
         );
     }
 
-    private Long parseLongOrNull(String v) {
+    /**
+     * Reads {@code fields} from every hash in {@code keys}, one pipeline per chunk. When there is more
+     * than one chunk the pipelines run concurrently on {@code readExecutor}, so a large tenant costs
+     * roughly one round trip instead of one per chunk.
+     */
+    private List<List<String>> multiGetFields(List<String> keys, List<String> fields) {
+        byte[][] rawFields = new byte[fields.size()][];
+        for (int i = 0; i < fields.size(); i++) {
+            rawFields[i] = fields.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+
+        if (keys.size() <= bulkChunkSize) {
+            return pipelineHmget(keys, rawFields, fields.size());
+        }
+
+        List<CompletableFuture<List<List<String>>>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += bulkChunkSize) {
+            List<String> chunk = keys.subList(from, Math.min(keys.size(), from + bulkChunkSize));
+            chunks.add(CompletableFuture.supplyAsync(
+                    () -> pipelineHmget(chunk, rawFields, fields.size()), readExecutor));
+        }
+
+        List<List<String>> rows = new ArrayList<>(keys.size());
+        try {
+            for (CompletableFuture<List<List<String>>> chunk : chunks) {
+                rows.addAll(chunk.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DataAccessException dae) throw dae;
+            throw e;
+        }
+        return rows;
+    }
+
+    private List<List<String>> pipelineHmget(List<String> keys, byte[][] rawFields, int fieldCount) {
+        hmgetCommands.increment(keys.size());
+        pipelines.increment();
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            hmgetAll(connection, keys, rawFields);
+            return null;
+        }, RedisSerializer.string());
+
+        List<List<String>> rows = new ArrayList<>(keys.size());
+        for (Object reply : replies) {
+            rows.add(toStringList(reply, fieldCount));
+        }
+        return rows;
+    }
+
+    private void hmgetAll(RedisConnection connection, List<String> keys, byte[][] rawFields) {
+        for (String key : keys) {
+            connection.hashCommands().hMGet(key.getBytes(StandardCharsets.UTF_8), rawFields);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> toStringList(Object reply, int size) {
+        if (reply instanceof List<?> list) {
+            return (List<String>) list;
+        }
+        return Arrays.asList(new String[size]);
+    }
+
+    private static boolean allNull(List<String> values) {
+        for (String v : values) {
+            if (v != null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Appends one device's {@link #STATE_FIELDS} values to {@code builder}; returns {@code false},
+     * adding nothing, when the hash is gone.
+     */
+    static boolean addSnapshotRow(TenantSnapshot.Builder builder, String deviceId, List<String> values) {
+        if (values == null || allNull(values)) return false;
+        int row = builder.addRow(deviceId);
+        putDouble(builder, TenantSnapshot.LAT, row, values.get(0));
+        putDouble(builder, TenantSnapshot.LON, row, values.get(1));
+        putDouble(builder, TenantSnapshot.H, row, values.get(2));
+        putDouble(builder, TenantSnapshot.T, row, values.get(3));
+        putLong(builder, TenantSnapshot.TS_HT, row, values.get(4));
+        putLong(builder, TenantSnapshot.RSSI, row, values.get(5));
+        putDouble(builder, TenantSnapshot.SNR, row, values.get(6));
+        putDouble(builder, TenantSnapshot.BAT, row, values.get(7));
+        Boolean online = parseBoolOrNull(values.get(8));
+        if (online != null) builder.setOnline(row, online.booleanValue());
+        putLong(builder, TenantSnapshot.TS_STATE, row, values.get(9));
+        return true;
+    }
+
+    private static void putDouble(TenantSnapshot.Builder builder, int column, int row, String v) {
+        if (v == null || v.isBlank()) return;
+        try {
+            builder.setDouble(column, row, Double.parseDouble(v));
+        } catch (NumberFormatException ignored) {
+        }
+    }
+
+    private static void putLong(TenantSnapshot.Builder builder, int column, int row, String v) {
+        if (v == null || v.isBlank()) return;
+        try {
+            builder.setLong(column, row, Long.parseLong(v));
+        } catch (NumberFormatException ignored) {
+        }
+    }
+
+    private static Long parseLongOrNull(String v) {
         if (v == null || v.isBlank()) return null;
         try { return Long.parseLong(v); } catch (NumberFormatException e) { return null; }
     }
 
-    private Boolean parseBoolOrNull(String v) {
+    private static Boolean parseBoolOrNull(String v) {
         if (v == null || v.isBlank()) return null;
         return switch (v.toLowerCase()) {
             case "1","true","yes","on" -> true;
@@ -96,17 +328,23 @@ public class RedisDeviceRepository {
         };
     }
 
+    @Timed(value = "pvz.redis.repository", extraTags = {"method", "findRecentSummary"}, histogram = true)
     public RecentSummaryResponse findRecentSummary(String env, String tenantId) {
-        String redisKey = env + ":" + tenantId;
+        String redisKey = RedisKeys.recentSummary(env, tenantId);
 
         Map<String, String> map;
         try {
+            hgetallCommands.increment();
             map = hashOps.entries(redisKey);
         } catch (DataAccessException e) {
             return emptySummary(env, tenantId);
         }
 
-        return map.isEmpty() ? emptySummary(env, tenantId) : new RecentSummaryResponse(
+        return toRecentSummary(env, tenantId, map);
+    }
+
+    static RecentSummaryResponse toRecentSummary(String env, String tenantId, Map<String, String> map) {
+        return map == null || map.isEmpty() ? emptySummary(env, tenantId) : new RecentSummaryResponse(
                 env,
                 tenantId,
                 600,
@@ -118,16 +356,30 @@ public class RedisDeviceRepository {
         );
     }
 
+    @Timed(value = "pvz.redis.repository", extraTags = {"method", "findDroughtStreak"}, histogram = true)
     public DroughtStreakResponse findDroughtStreak(String env, String tenantId, String deviceId) {
         String key = RedisKeys.deviceHumidityLowStreak(env, tenantId, deviceId);
+        return nearCache.get(key,
+                commands -> {
+                    hgetallCommands.increment();
+                    return toDroughtStreak(env, tenantId, deviceId, commands.hgetall(key));
+                },
+                () -> readDroughtStreak(env, tenantId, deviceId, key));
+    }
 
+    private DroughtStreakResponse readDroughtStreak(String env, String tenantId, String deviceId, String key) {
         Map<String, String> map;
         try {
+            hgetallCommands.increment();
             map = hashOps.entries(key);
         } catch (DataAccessException e) {
             return null;
         }
-        if (map.isEmpty()) return null;
+        return toDroughtStreak(env, tenantId, deviceId, map);
+    }
+
+    private DroughtStreakResponse toDroughtStreak(String env, String tenantId, String deviceId, Map<String, String> map) {
+        if (map == null || map.isEmpty()) return null;
 
         Double threshold = parseDoubleOrNull(map.get("threshold"));
         Long lastTs = parseLongOrNull(map.get("last_ts"));
@@ -142,50 +394,7 @@ public class RedisDeviceRepository {
         );
     }
 
-    public DroughtSummaryResponse findDroughtSummary(String env, String tenantId) {
-        Set<String> keys = redisTemplate.keys(RedisKeys.deviceHumidityLowStreakPattern(env, tenantId));
-        if (keys.isEmpty()) {
-            return new DroughtSummaryResponse(env, tenantId, null, 0, 0.0, null);
-        }
-
-        int inDrought = 0;
-        double maxDays = 0.0;
-        String maxDeviceId = null;
-        Double threshold = null;
-
-        for (String key : keys) {
-            Map<String, String> map;
-            try {
-                map = hashOps.entries(key);
-            } catch (DataAccessException e) {
-                continue;
-            }
-            if (map.isEmpty()) continue;
-
-            if (threshold == null) threshold = parseDoubleOrNull(map.get("threshold"));
-
-            Double days = parseDoubleOrNull(map.get("streak_days"));
-            if (days == null) continue;
-
-            if (days > 0) inDrought++;
-
-            if (days > maxDays) {
-                maxDays = days;
-                maxDeviceId = extractDeviceIdFromStreakKey(key);
-            }
-        }
-
-        return new DroughtSummaryResponse(env, tenantId, threshold, inDrought, maxDays, maxDeviceId);
-    }
-
-    private String extractDeviceIdFromStreakKey(String streakKey) {
-        int deviceIdx = streakKey.indexOf(":device:");
-        int tailIdx = streakKey.lastIndexOf(":humidity_low_streak");
-        if (deviceIdx < 0 || tailIdx < 0 || tailIdx <= deviceIdx + 8) return null;
-        return streakKey.substring(deviceIdx + 8, tailIdx);
-    }
-
-    private RecentSummaryResponse emptySummary(String env, String tenantId) {
+    static RecentSummaryResponse emptySummary(String env, String tenantId) {
         return new RecentSummaryResponse(
                 env,
                 tenantId,
@@ -198,7 +407,7 @@ public class RedisDeviceRepository {
         );
     }
 
-    private int parseInt(String v) {
+    private static int parseInt(String v) {
         if (v == null || v.isBlank()) return 0;
         try {
             return Integer.parseInt(v);
@@ -207,7 +416,7 @@ public class RedisDeviceRepository {
         }
     }
 
-    private Double parseDoubleOrNull(String v) {
+    private static Double parseDoubleOrNull(String v) {
         if (v == null || v.isBlank()) return null;
         try {
             return Double.parseDouble(v);
@@ -0,0 +1,306 @@
+package iot.data.platform.devices.infra;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import iot.data.platform.devices.api.DroughtHistogramBucketResponse;
+import iot.data.platform.devices.api.DroughtLeaderboardResponse;
+import iot.data.platform.devices.api.DroughtStreakEntryResponse;
+import iot.data.platform.devices.api.DroughtSummaryResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-tenant drought summary kept next to the streak hashes: {@link RedisKeys#droughtSet} is a sorted
+ * set of device ids scored by {@code streak_days}, and {@link RedisKeys#droughtMeta} holds the
+ * tenant's threshold.
+ * <p>
+ * {@link DroughtIndexListener} updates both from keyspace notifications whenever the sink writes or
+ * expires a streak hash, so summaries, the top-K and the histogram are a handful of O(log N) sorted
+ * set commands regardless of tenant size. A tenant's set is rebuilt from a SCAN when it is missing
+ * and reconciled periodically, so entries whose expiry notification was missed do not linger.
+ * Devices the listener updates while a rebuild runs are re-read after it, so the rebuild's older
+ * snapshot never overwrites them.
+ */
+@Repository
+public class RedisDroughtIndex {
+    private static final byte[][] STREAK_FIELDS = {
+            "threshold".getBytes(StandardCharsets.UTF_8),
+            "streak_days".getBytes(StandardCharsets.UTF_8)
+    };
+    private static final String THRESHOLD = "threshold";
+
+    private record TenantKey(String env, String tenantId) {
+    }
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ZSetOperations<String, String> zSetOps;
+    private final HashOperations<String, String, String> hashOps;
+    private final int scanCount;
+    private final long rebuildIntervalMs;
+    private final Map<TenantKey, Long> lastRebuildAt = new ConcurrentHashMap<>();
+    /** Devices updated or removed while their tenant's rebuild runs; re-applied when it finishes. */
+    private final Map<TenantKey, Set<String>> touchedDuringRebuild = new ConcurrentHashMap<>();
+    private final Counter rebuilds;
+    private final Counter updates;
+
+    public RedisDroughtIndex(
+            RedisTemplate<String, String> redisTemplate,
+            @Value("${pvz.redis.device-index.scan-count:1000}") int scanCount,
+            @Value("${pvz.redis.device-index.rebuild-interval-ms:30000}") long rebuildIntervalMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.zSetOps = redisTemplate.opsForZSet();
+        this.hashOps = redisTemplate.opsForHash();
+        this.scanCount = scanCount;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+        this.rebuilds = meterRegistry.counter("pvz.redis.drought_index.rebuilds");
+        this.updates = meterRegistry.counter("pvz.redis.drought_index.updates");
+    }
+
+    /** Re-reads one streak hash and moves the device to its current score. */
+    public void update(String env, String tenantId, String deviceId) {
+        updates.increment();
+        markIfRebuilding(env, tenantId, deviceId);
+        List<String> values = hashOps.multiGet(
+                RedisKeys.deviceHumidityLowStreak(env, tenantId, deviceId), List.of(THRESHOLD, "streak_days"));
+        Double threshold = parseDoubleOrNull(values.get(0));
+        Double streakDays = parseDoubleOrNull(values.get(1));
+        if (streakDays == null) {
+            remove(env, tenantId, deviceId);
+            return;
+        }
+        zSetOps.add(RedisKeys.droughtSet(env, tenantId), deviceId, streakDays);
+        if (threshold != null) {
+            hashOps.put(RedisKeys.droughtMeta(env, tenantId), THRESHOLD, Double.toString(threshold));
+        }
+    }
+
+    public void remove(String env, String tenantId, String deviceId) {
+        markIfRebuilding(env, tenantId, deviceId);
+        zSetOps.remove(RedisKeys.droughtSet(env, tenantId), deviceId);
+    }
+
+    public DroughtSummaryResponse summary(String env, String tenantId) {
+        try {
+            ensureBuilt(env, tenantId);
+            String key = RedisKeys.droughtSet(env, tenantId);
+            Long inDrought = zSetOps.count(key, Math.nextUp(0.0), Double.POSITIVE_INFINITY);
+            Set<ZSetOperations.TypedTuple<String>> max = zSetOps.reverseRangeWithScores(key, 0, 0);
+
+            double maxDays = 0.0;
+            String maxDeviceId = null;
+            if (max != null && !max.isEmpty()) {
+                ZSetOperations.TypedTuple<String> top = max.iterator().next();
+                if (top.getScore() != null && top.getScore() > 0) {
+                    maxDays = top.getScore();
+                    maxDeviceId = top.getValue();
+                }
+            }
+            return new DroughtSummaryResponse(env, tenantId, threshold(env, tenantId),
+                    inDrought == null ? 0 : inDrought.intValue(), maxDays, maxDeviceId);
+        } catch (DataAccessException e) {
+            return new DroughtSummaryResponse(env, tenantId, null, 0, 0.0, null);
+        }
+    }
+
+    /**
+     * The {@code k} longest streaks plus device counts per streak-length bucket. {@code boundsDays}
+     * are ascending bucket boundaries; the buckets are {@code [0, b0), [b0, b1), ..., [bn, +inf)}.
+     */
+    public DroughtLeaderboardResponse leaderboard(String env, String tenantId, int k, List<Double> boundsDays) {
+        try {
+            ensureBuilt(env, tenantId);
+            String key = RedisKeys.droughtSet(env, tenantId);
+
+            List<DroughtStreakEntryResponse> top = new ArrayList<>(k);
+            Set<ZSetOperations.TypedTuple<String>> tuples = zSetOps.reverseRangeWithScores(key, 0, k - 1L);
+            if (tuples != null) {
+                for (ZSetOperations.TypedTuple<String> t : tuples) {
+                    top.add(new DroughtStreakEntryResponse(t.getValue(), t.getScore() == null ? 0.0 : t.getScore()));
+                }
+            }
+
+            List<Double> lower = new ArrayList<>(boundsDays.size() + 1);
+            lower.add(0.0);
+            lower.addAll(boundsDays);
+            List<Range<Double>> ranges = new ArrayList<>(lower.size());
+            for (int i = 0; i < lower.size(); i++) {
+                ranges.add(i + 1 < lower.size()
+                        ? Range.rightOpen(lower.get(i), lower.get(i + 1))
+                        : Range.rightUnbounded(Range.Bound.inclusive(lower.get(i))));
+            }
+
+            byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+            List<Object> counts = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.zSetCommands().zCount(rawKey, Range.leftOpen(0.0, Double.POSITIVE_INFINITY));
+                for (Range<Double> range : ranges) {
+                    connection.zSetCommands().zCount(rawKey, range);
+                }
+                return null;
+            });
+
+            List<DroughtHistogramBucketResponse> histogram = new ArrayList<>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                histogram.add(new DroughtHistogramBucketResponse(
+                        lower.get(i),
+                        i + 1 < lower.size() ? lower.get(i + 1) : null,
+                        toLong(counts.get(i + 1))));
+            }
+            return new DroughtLeaderboardResponse(env, tenantId, threshold(env, tenantId),
+                    (int) toLong(counts.get(0)), top, histogram);
+        } catch (DataAccessException e) {
+            return new DroughtLeaderboardResponse(env, tenantId, null, 0, List.of(), List.of());
+        }
+    }
+
+    /**
+     * Rebuilds a tenant's set from the streak hashes: scores are written with ZADD and members whose
+     * hash is gone are removed with ZREM, instead of swapping in a new set, so updates the listener
+     * applies meanwhile are not discarded. Devices it touched during the rebuild are re-read from
+     * their hash afterwards, since the rebuild may have written an older score over them. Only one
+     * rebuild per tenant runs at a time.
+     */
+    public void rebuild(String env, String tenantId) {
+        TenantKey tenant = new TenantKey(env, tenantId);
+        Set<String> touched = ConcurrentHashMap.newKeySet();
+        if (touchedDuringRebuild.putIfAbsent(tenant, touched) != null) return;
+        try {
+            lastRebuildAt.put(tenant, System.currentTimeMillis());
+            rebuilds.increment();
+            applySnapshot(env, tenantId);
+        } finally {
+            touchedDuringRebuild.remove(tenant, touched);
+        }
+        for (String deviceId : touched) {
+            update(env, tenantId, deviceId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pvz.drought.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        for (TenantKey tenant : lastRebuildAt.keySet()) {
+            try {
+                rebuild(tenant.env(), tenant.tenantId());
+            } catch (DataAccessException ignored) {
+            }
+        }
+    }
+
+    private void applySnapshot(String env, String tenantId) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(RedisKeys.deviceHumidityLowStreakPattern(env, tenantId))
+                .count(scanCount)
+                .build();
+
+        List<String> keys = new ArrayList<>();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                keys.add(cursor.next());
+            }
+        }
+
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        Set<String> present = new HashSet<>();
+        Double threshold = null;
+        if (!keys.isEmpty()) {
+            List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String k : keys) {
+                    connection.hashCommands().hMGet(k.getBytes(StandardCharsets.UTF_8), STREAK_FIELDS);
+                }
+                return null;
+            }, RedisSerializer.string());
+
+            for (int i = 0; i < keys.size(); i++) {
+                List<String> row = toStringList(replies.get(i));
+                Double days = parseDoubleOrNull(row.get(1));
+                String deviceId = RedisKeys.deviceIdFromHumidityLowStreakKey(keys.get(i));
+                if (days == null || deviceId == null) continue;
+                if (threshold == null) threshold = parseDoubleOrNull(row.get(0));
+                tuples.add(new DefaultTypedTuple<>(deviceId, days));
+                present.add(deviceId);
+            }
+        }
+
+        String key = RedisKeys.droughtSet(env, tenantId);
+        if (!tuples.isEmpty()) {
+            zSetOps.add(key, tuples);
+        }
+        Set<String> members = zSetOps.range(key, 0, -1);
+        if (members != null) {
+            List<String> gone = members.stream().filter(m -> !present.contains(m)).toList();
+            if (!gone.isEmpty()) {
+                zSetOps.remove(key, gone.toArray());
+            }
+        }
+        if (threshold != null) {
+            hashOps.put(RedisKeys.droughtMeta(env, tenantId), THRESHOLD, Double.toString(threshold));
+        }
+    }
+
+    private void markIfRebuilding(String env, String tenantId, String deviceId) {
+        Set<String> touched = touchedDuringRebuild.get(new TenantKey(env, tenantId));
+        if (touched != null) {
+            touched.add(deviceId);
+        }
+    }
+
+    private void ensureBuilt(String env, String tenantId) {
+        TenantKey tenant = new TenantKey(env, tenantId);
+        Long last = lastRebuildAt.get(tenant);
+        long now = System.currentTimeMillis();
+        if (last != null && now - last < rebuildIntervalMs) return;
+
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(RedisKeys.droughtSet(env, tenantId)))) {
+            // Already maintained by the listener; remember the tenant so reconcile() covers it.
+            lastRebuildAt.putIfAbsent(tenant, now);
+        } else {
+            rebuild(env, tenantId);
+        }
+    }
+
+    private Double threshold(String env, String tenantId) {
+        return parseDoubleOrNull(hashOps.get(RedisKeys.droughtMeta(env, tenantId), THRESHOLD));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> toStringList(Object reply) {
+        if (reply instanceof List<?> list) {
+            return (List<String>) list;
+        }
+        return Arrays.asList(new String[STREAK_FIELDS.length]);
+    }
+
+    private static long toLong(Object reply) {
+        return reply instanceof Number n ? n.longValue() : 0L;
+    }
+
+    private static Double parseDoubleOrNull(String v) {
+        if (v == null || v.isBlank()) return null;
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -12,6 +12,19 @@ public final class RedisKeys {
         return String.format("pvz:%s:%s:device:%s:state", env, tenantId, deviceId);
     }
 
+    public static String deviceStatePattern(String env, String tenantId) {
+        return String.format("pvz:%s:%s:device:*:state", env, tenantId);
+    }
+
+    public static String deviceIdFromStateKey(String stateKey) {
+        int deviceIdx = stateKey.indexOf(":device:");
+        int stateIdx = stateKey.lastIndexOf(":state");
+        if (deviceIdx < 0 || stateIdx < 0 || stateIdx <= deviceIdx + 8) {
+            return null;
+        }
+        return stateKey.substring(deviceIdx + 8, stateIdx);
+    }
+
     public static String deviceHumidityLowStreak(String env, String tenantId, String deviceId) {
         return String.format("pvz:%s:%s:device:%s:humidity_low_streak", env, tenantId, deviceId);
     }
@@ -20,4 +33,25 @@ public final class RedisKeys {
         return String.format("pvz:%s:%s:device:*:humidity_low_streak", env, tenantId);
     }
 
+    public static String deviceIdFromHumidityLowStreakKey(String streakKey) {
+        int deviceIdx = streakKey.indexOf(":device:");
+        int streakIdx = streakKey.lastIndexOf(":humidity_low_streak");
+        if (deviceIdx < 0 || streakIdx < 0 || streakIdx <= deviceIdx + 8) {
+            return null;
+        }
+        return streakKey.substring(deviceIdx + 8, streakIdx);
+    }
+
+    /** Hash written by the recent-summary sink; not under the {@code pvz:} prefix. */
+    public static String recentSummary(String env, String tenantId) {
+        return env + ":" + tenantId;
+    }
+
+    public static String droughtSet(String env, String tenantId) {
+        return String.format("pvz:%s:%s:drought", env, tenantId);
+    }
+
+    public static String droughtMeta(String env, String tenantId) {
+        return String.format("pvz:%s:%s:drought:meta", env, tenantId);
+    }
 }
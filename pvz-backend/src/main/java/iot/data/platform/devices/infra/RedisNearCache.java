@@ -0,0 +1,249 @@
+package iot.data.platform.devices.infra;
+
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-JVM cache of single-key Redis reads that Redis itself keeps consistent.
+ * <p>
+ * Cached values are loaded over one dedicated RESP3 connection, opened from the Lettuce client behind
+ * the {@code RedisConfig} connection factory, with {@code CLIENT TRACKING ON}. Redis then remembers
+ * every key that connection has read and pushes an {@code invalidate} message as soon as one is
+ * written, expires or is evicted, and the entry is dropped. There is no TTL to tune: an entry lives
+ * until its key changes or it falls out of the LRU bound.
+ * <p>
+ * A value loaded concurrently with its own invalidation is never installed: a load only replaces the
+ * placeholder it inserted, and invalidations remove placeholders too. Losing the connection clears
+ * the cache, since Redis forgets the tracking table with it; until tracking is re-enabled, and
+ * whenever it cannot be, reads fall through to the uncached path.
+ *
+ * @see <a href="https://redis.io/docs/latest/develop/reference/client-side-caching/">Client-side caching</a>
+ */
+@Component
+public class RedisNearCache {
+    private static final Logger log = LoggerFactory.getLogger(RedisNearCache.class);
+    private static final Object NULL = new Object();
+
+    private static final class Loading {
+    }
+
+    private final RedisConnectionFactory connectionFactory;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long retryIntervalMs;
+    private final LinkedHashMap<String, Object> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private final ReentrantLock connectLock = new ReentrantLock();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter invalidations;
+    private final Counter evictions;
+
+    private volatile StatefulRedisConnection<String, String> connection;
+    private volatile boolean tracking;
+    private volatile long nextConnectAttemptMs;
+    private long epoch;
+
+    public RedisNearCache(
+            RedisConnectionFactory connectionFactory,
+            @Value("${pvz.redis.near-cache.enabled:true}") boolean enabled,
+            @Value("${pvz.redis.near-cache.max-entries:100000}") int maxEntries,
+            @Value("${pvz.redis.near-cache.retry-interval-ms:30000}") long retryIntervalMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.connectionFactory = connectionFactory;
+        this.enabled = enabled && connectionFactory instanceof LettuceConnectionFactory;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.retryIntervalMs = retryIntervalMs;
+        this.hits = meterRegistry.counter("pvz.redis.near_cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("pvz.redis.near_cache.requests", "result", "miss");
+        this.bypasses = meterRegistry.counter("pvz.redis.near_cache.requests", "result", "bypass");
+        this.invalidations = meterRegistry.counter("pvz.redis.near_cache.invalidations");
+        this.evictions = meterRegistry.counter("pvz.redis.near_cache.evictions");
+        Gauge.builder("pvz.redis.near_cache.entries", this, RedisNearCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached value of {@code key}, or loads it with {@code loader} on the tracking
+     * connection. {@code loader} must read {@code key} itself, since that read is what Redis tracks.
+     * {@code fallback} serves the read whenever the cache is disabled or tracking is unavailable.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Function<RedisCommands<String, String>, T> loader, Supplier<T> fallback) {
+        // Read before the connection is obtained: if it drops after that, Lettuce reconnects without
+        // tracking and the bumped epoch keeps a value loaded over it from being installed.
+        long loadEpoch;
+        synchronized (entries) {
+            loadEpoch = epoch;
+        }
+        StatefulRedisConnection<String, String> conn = trackedConnection();
+        if (conn == null) {
+            bypasses.increment();
+            return fallback.get();
+        }
+
+        Loading placeholder = new Loading();
+        boolean install;
+        synchronized (entries) {
+            Object cached = entries.get(key);
+            if (cached != null && !(cached instanceof Loading)) {
+                hits.increment();
+                return cached == NULL ? null : (T) cached;
+            }
+            install = cached == null && epoch == loadEpoch;
+            if (install) {
+                entries.put(key, placeholder);
+                evictIfNeeded();
+            }
+        }
+        misses.increment();
+
+        T value;
+        try {
+            value = loader.apply(conn.sync());
+        } catch (RedisException e) {
+            synchronized (entries) {
+                entries.remove(key, placeholder);
+            }
+            return fallback.get();
+        }
+
+        if (install) {
+            synchronized (entries) {
+                if (epoch == loadEpoch && entries.get(key) == placeholder) {
+                    entries.put(key, value == null ? NULL : value);
+                }
+            }
+        }
+        return value;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        StatefulRedisConnection<String, String> conn = connection;
+        if (conn != null) {
+            conn.closeAsync();
+        }
+    }
+
+    private StatefulRedisConnection<String, String> trackedConnection() {
+        if (!enabled) return null;
+        StatefulRedisConnection<String, String> conn = connection;
+        if (tracking && conn != null) return conn;
+        if (System.currentTimeMillis() < nextConnectAttemptMs) return null;
+
+        connectLock.lock();
+        try {
+            if (!tracking) {
+                enableTracking();
+            }
+            return tracking ? connection : null;
+        } finally {
+            connectLock.unlock();
+        }
+    }
+
+    private void enableTracking() {
+        try {
+            if (connection == null) {
+                RedisClient client = (RedisClient) ((LettuceConnectionFactory) connectionFactory).getNativeClient();
+                StatefulRedisConnection<String, String> conn = client.connect(StringCodec.UTF8);
+                conn.addListener(this::onPush);
+                client.addListener(new ConnectionListener());
+                connection = conn;
+            }
+            if (!connection.isOpen()) {
+                throw new RedisException("tracking connection is reconnecting");
+            }
+            long enableEpoch;
+            synchronized (entries) {
+                enableEpoch = epoch;
+            }
+            connection.sync().clientTracking(TrackingArgs.Builder.enabled());
+            synchronized (entries) {
+                // A disconnect after the reply has already cleared tracking; the next read retries.
+                if (epoch != enableEpoch) return;
+                tracking = true;
+            }
+            log.info("Redis near-cache enabled with client tracking (max {} entries)", maxEntries);
+        } catch (RuntimeException e) {
+            nextConnectAttemptMs = System.currentTimeMillis() + retryIntervalMs;
+            log.warn("Redis client tracking unavailable, near-cache bypassed for {} ms: {}",
+                    retryIntervalMs, e.getMessage());
+        }
+    }
+
+    private void onPush(PushMessage message) {
+        if (!"invalidate".equals(message.getType())) return;
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+
+        synchronized (entries) {
+            if (keys instanceof List<?> list) {
+                for (Object key : list) {
+                    if (entries.remove(key) != null) invalidations.increment();
+                }
+            } else {
+                // A null key list means the server flushed its keyspace.
+                invalidations.increment(entries.size());
+                clear();
+            }
+        }
+    }
+
+    private void clear() {
+        epoch++;
+        entries.clear();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Object>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private final class ConnectionListener implements RedisConnectionStateListener {
+        @Override
+        public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+            if (handler != connection) return;
+            tracking = false;
+            synchronized (entries) {
+                clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+CREATE TABLE IF NOT EXISTS device_measurements
+(
+    env         TEXT,
+    tenant_id   TEXT,
+    device_id   TEXT,
+    ts          TIMESTAMP NOT NULL,
+    temperature DOUBLE PRECISION,
+    humidity    DOUBLE PRECISION,
+    status      TEXT      NOT NULL
+);
+
+CREATE TABLE device_measurement_rollups
+(
+    granularity  TEXT             NOT NULL,
+    env          TEXT             NOT NULL,
+    tenant_id    TEXT             NOT NULL,
+    device_id    TEXT             NOT NULL,
+    bucket_start TIMESTAMP        NOT NULL,
+    t_sum        DOUBLE PRECISION NOT NULL DEFAULT 0,
+    t_count      BIGINT           NOT NULL DEFAULT 0,
+    t_min        DOUBLE PRECISION,
+    t_max        DOUBLE PRECISION,
+    h_sum        DOUBLE PRECISION NOT NULL DEFAULT 0,
+    h_count      BIGINT           NOT NULL DEFAULT 0,
+    h_min        DOUBLE PRECISION,
+    h_max        DOUBLE PRECISION,
+    total_count  BIGINT           NOT NULL DEFAULT 0,
+    ok_count     BIGINT           NOT NULL DEFAULT 0,
+    error_count  BIGINT           NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularity, env, tenant_id, device_id, bucket_start)
+) PARTITION BY LIST (granularity);
+
+CREATE TABLE device_measurement_rollups_hour PARTITION OF device_measurement_rollups FOR VALUES IN ('hour');
+CREATE TABLE device_measurement_rollups_day PARTITION OF device_measurement_rollups FOR VALUES IN ('day');
+CREATE TABLE device_measurement_rollups_week PARTITION OF device_measurement_rollups FOR VALUES IN ('week');
+
+CREATE OR REPLACE FUNCTION device_measurements_rollup() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO device_measurement_rollups AS r
+    (granularity, env, tenant_id, device_id, bucket_start,
+     t_sum, t_count, t_min, t_max,
+     h_sum, h_count, h_min, h_max,
+     total_count, ok_count, error_count)
+    SELECT g.granularity,
+           n.env,
+           n.tenant_id,
+           n.device_id,
+           date_trunc(g.granularity, n.ts),
+           COALESCE(SUM(n.temperature), 0),
+           COUNT(n.temperature),
+           MIN(n.temperature),
+           MAX(n.temperature),
+           COALESCE(SUM(n.humidity), 0),
+           COUNT(n.humidity),
+           MIN(n.humidity),
+           MAX(n.humidity),
+           COUNT(n.status),
+           COUNT(*) FILTER (WHERE n.status = 'OK'),
+           COUNT(*) FILTER (WHERE n.status = 'ERROR')
+    FROM new_rows n
+             CROSS JOIN (VALUES ('hour'), ('day'), ('week')) AS g(granularity)
+    WHERE n.env IS NOT NULL
+      AND n.tenant_id IS NOT NULL
+      AND n.device_id IS NOT NULL
+      AND n.ts IS NOT NULL
+    GROUP BY g.granularity, n.env, n.tenant_id, n.device_id, date_trunc(g.granularity, n.ts)
+    ON CONFLICT (granularity, env, tenant_id, device_id, bucket_start) DO UPDATE
+        SET t_sum       = r.t_sum + EXCLUDED.t_sum,
+            t_count     = r.t_count + EXCLUDED.t_count,
+            t_min       = LEAST(r.t_min, EXCLUDED.t_min),
+            t_max       = GREATEST(r.t_max, EXCLUDED.t_max),
+            h_sum       = r.h_sum + EXCLUDED.h_sum,
+            h_count     = r.h_count + EXCLUDED.h_count,
+            h_min       = LEAST(r.h_min, EXCLUDED.h_min),
+            h_max       = GREATEST(r.h_max, EXCLUDED.h_max),
+            total_count = r.total_count + EXCLUDED.total_count,
+            ok_count    = r.ok_count + EXCLUDED.ok_count,
+            error_count = r.error_count + EXCLUDED.error_count;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER device_measurements_rollup
+    AFTER INSERT
+    ON device_measurements
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION device_measurements_rollup();
+
+INSERT INTO device_measurement_rollups
+(granularity, env, tenant_id, device_id, bucket_start,
+ t_sum, t_count, t_min, t_max,
+ h_sum, h_count, h_min, h_max,
+ total_count, ok_count, error_count)
+SELECT g.granularity,
+       m.env,
+       m.tenant_id,
+       m.device_id,
+       date_trunc(g.granularity, m.ts),
+       COALESCE(SUM(m.temperature), 0),
+       COUNT(m.temperature),
+       MIN(m.temperature),
+       MAX(m.temperature),
+       COALESCE(SUM(m.humidity), 0),
+       COUNT(m.humidity),
+       MIN(m.humidity),
+       MAX(m.humidity),
+       COUNT(m.status),
+       COUNT(*) FILTER (WHERE m.status = 'OK'),
+       COUNT(*) FILTER (WHERE m.status = 'ERROR')
+FROM device_measurements m
+         CROSS JOIN (VALUES ('hour'), ('day'), ('week')) AS g(granularity)
+WHERE m.env IS NOT NULL
+  AND m.tenant_id IS NOT NULL
+  AND m.device_id IS NOT NULL
+  AND m.ts IS NOT NULL
+GROUP BY g.granularity, m.env, m.tenant_id, m.device_id, date_trunc(g.granularity, m.ts);
@@ -0,0 +1,92 @@
+-- Range-partition raw measurements by month so per-device reads only touch the partitions covering
+-- the requested window and old history can be dropped a partition at a time. Rows outside the
+-- prepared months (e.g. a backfill from years ago) land in the default partition until
+-- device_measurements_create_partitions() moves them into their own month.
+ALTER TABLE device_measurements RENAME TO device_measurements_unpartitioned;
+ALTER TABLE device_measurements_unpartitioned
+    RENAME CONSTRAINT device_measurements_pkey TO device_measurements_unpartitioned_pkey;
+DROP TRIGGER device_measurements_rollup ON device_measurements_unpartitioned;
+
+CREATE TABLE device_measurements
+(
+    env         TEXT      NOT NULL,
+    tenant_id   TEXT      NOT NULL,
+    device_id   TEXT      NOT NULL,
+    ts          TIMESTAMP NOT NULL,
+    temperature DOUBLE PRECISION,
+    humidity    DOUBLE PRECISION,
+    status      TEXT      NOT NULL,
+    PRIMARY KEY (env, tenant_id, device_id, ts) INCLUDE (temperature, humidity, status)
+) PARTITION BY RANGE (ts);
+
+CREATE TABLE device_measurements_default PARTITION OF device_measurements DEFAULT;
+
+CREATE OR REPLACE FUNCTION device_measurements_create_partitions(from_ts TIMESTAMP, to_ts TIMESTAMP)
+    RETURNS INTEGER AS
+$$
+DECLARE
+    month_start TIMESTAMP := date_trunc('month', from_ts);
+    month_end   TIMESTAMP;
+    part_name   TEXT;
+    created     INTEGER   := 0;
+BEGIN
+    WHILE month_start < to_ts
+        LOOP
+            month_end := month_start + INTERVAL '1 month';
+            part_name := 'device_measurements_p' || to_char(month_start, 'YYYYMM');
+            IF to_regclass(part_name) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I (LIKE device_measurements INCLUDING DEFAULTS)', part_name);
+                EXECUTE format(
+                        'WITH moved AS (DELETE FROM device_measurements_default WHERE ts >= %L AND ts < %L RETURNING *) '
+                            || 'INSERT INTO %I SELECT * FROM moved',
+                        month_start, month_end, part_name);
+                EXECUTE format('ALTER TABLE device_measurements ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                               part_name, month_start, month_end);
+                created := created + 1;
+            END IF;
+            month_start := month_end;
+        END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION device_measurements_drop_partitions(cutoff TIMESTAMP)
+    RETURNS INTEGER AS
+$$
+DECLARE
+    part    RECORD;
+    dropped INTEGER := 0;
+BEGIN
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'device_measurements'::regclass
+          AND c.relname ~ '^device_measurements_p[0-9]{6}$'
+          AND to_timestamp(right(c.relname, 6), 'YYYYMM')::TIMESTAMP + INTERVAL '1 month' <= cutoff
+        LOOP
+            EXECUTE format('DROP TABLE %I', part.relname);
+            dropped := dropped + 1;
+        END LOOP;
+    DELETE FROM device_measurements_default WHERE ts < cutoff;
+    RETURN dropped;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT device_measurements_create_partitions(
+               COALESCE((SELECT min(ts) FROM device_measurements_unpartitioned), date_trunc('month', localtimestamp)),
+               date_trunc('month', localtimestamp) + INTERVAL '3 months');
+
+-- Rollups already cover these rows, so copy them before the rollup trigger is attached.
+INSERT INTO device_measurements (env, tenant_id, device_id, ts, temperature, humidity, status)
+SELECT env, tenant_id, device_id, ts, temperature, humidity, status
+FROM device_measurements_unpartitioned;
+
+DROP TABLE device_measurements_unpartitioned;
+
+CREATE TRIGGER device_measurements_rollup
+    AFTER INSERT
+    ON device_measurements
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION device_measurements_rollup();
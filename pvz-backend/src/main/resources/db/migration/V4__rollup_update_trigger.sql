@@ -0,0 +1,100 @@
+-- The JDBC sink upserts, so a redelivered measurement with corrected values takes the ON CONFLICT
+-- DO UPDATE branch, which fires UPDATE triggers only and was never seen by the INSERT rollup
+-- trigger. Sums could be adjusted by old/new deltas, but min/max cannot, so every bucket touched by
+-- an update is recomputed from the raw rows instead: the hour, day and week bucket of each old and
+-- new row, read through the (env, tenant_id, device_id, ts) primary key.
+CREATE OR REPLACE FUNCTION device_measurements_rollup_update() RETURNS TRIGGER AS
+$$
+BEGIN
+    WITH touched AS (SELECT DISTINCT g.granularity,
+                                     c.env,
+                                     c.tenant_id,
+                                     c.device_id,
+                                     date_trunc(g.granularity, c.ts) AS bucket_start
+                     FROM (SELECT env, tenant_id, device_id, ts
+                           FROM old_rows
+                           UNION
+                           SELECT env, tenant_id, device_id, ts
+                           FROM new_rows) c
+                              CROSS JOIN (VALUES ('hour'), ('day'), ('week')) AS g(granularity))
+    INSERT
+    INTO device_measurement_rollups AS r
+    (granularity, env, tenant_id, device_id, bucket_start,
+     t_sum, t_count, t_min, t_max,
+     h_sum, h_count, h_min, h_max,
+     total_count, ok_count, error_count)
+    SELECT b.granularity,
+           b.env,
+           b.tenant_id,
+           b.device_id,
+           b.bucket_start,
+           COALESCE(SUM(m.temperature), 0),
+           COUNT(m.temperature),
+           MIN(m.temperature),
+           MAX(m.temperature),
+           COALESCE(SUM(m.humidity), 0),
+           COUNT(m.humidity),
+           MIN(m.humidity),
+           MAX(m.humidity),
+           COUNT(m.status),
+           COUNT(*) FILTER (WHERE m.status = 'OK'),
+           COUNT(*) FILTER (WHERE m.status = 'ERROR')
+    FROM touched b
+             JOIN device_measurements m
+                  ON m.env = b.env
+                      AND m.tenant_id = b.tenant_id
+                      AND m.device_id = b.device_id
+                      AND m.ts >= b.bucket_start
+                      AND m.ts < b.bucket_start + ('1 ' || b.granularity)::INTERVAL
+    GROUP BY b.granularity, b.env, b.tenant_id, b.device_id, b.bucket_start
+    ON CONFLICT (granularity, env, tenant_id, device_id, bucket_start) DO UPDATE
+        SET t_sum       = EXCLUDED.t_sum,
+            t_count     = EXCLUDED.t_count,
+            t_min       = EXCLUDED.t_min,
+            t_max       = EXCLUDED.t_max,
+            h_sum       = EXCLUDED.h_sum,
+            h_count     = EXCLUDED.h_count,
+            h_min       = EXCLUDED.h_min,
+            h_max       = EXCLUDED.h_max,
+            total_count = EXCLUDED.total_count,
+            ok_count    = EXCLUDED.ok_count,
+            error_count = EXCLUDED.error_count;
+
+    -- An update that moved a row to another bucket can leave its old bucket empty.
+    WITH touched AS (SELECT DISTINCT g.granularity,
+                                     c.env,
+                                     c.tenant_id,
+                                     c.device_id,
+                                     date_trunc(g.granularity, c.ts) AS bucket_start
+                     FROM (SELECT env, tenant_id, device_id, ts
+                           FROM old_rows
+                           UNION
+                           SELECT env, tenant_id, device_id, ts
+                           FROM new_rows) c
+                              CROSS JOIN (VALUES ('hour'), ('day'), ('week')) AS g(granularity))
+    DELETE
+    FROM device_measurement_rollups r
+        USING touched b
+    WHERE r.granularity = b.granularity
+      AND r.env = b.env
+      AND r.tenant_id = b.tenant_id
+      AND r.device_id = b.device_id
+      AND r.bucket_start = b.bucket_start
+      AND NOT EXISTS (SELECT 1
+                      FROM device_measurements m
+                      WHERE m.env = b.env
+                        AND m.tenant_id = b.tenant_id
+                        AND m.device_id = b.device_id
+                        AND m.ts >= b.bucket_start
+                        AND m.ts < b.bucket_start + ('1 ' || b.granularity)::INTERVAL);
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER device_measurements_rollup_update
+    AFTER UPDATE
+    ON device_measurements
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION device_measurements_rollup_update();
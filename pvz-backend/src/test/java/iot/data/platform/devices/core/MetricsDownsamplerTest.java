@@ -0,0 +1,196 @@
+package iot.data.platform.devices.core;
+
+import iot.data.platform.devices.api.DeviceMetricsPointResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsDownsamplerTest {
+    private static final long FROM = 1_700_000_000L;
+
+    @ParameterizedTest
+    @EnumSource(DownsampleMode.class)
+    void staysWithinThePointBudget(DownsampleMode mode) {
+        List<DeviceMetricsPointResponse> series = randomSeries(20_000, 86_400, 7);
+        for (int maxPoints : new int[]{4, 5, 7, 64, 333, 1000}) {
+            List<DeviceMetricsPointResponse> result = run(mode, FROM, FROM + 86_400, maxPoints, series);
+
+            assertThat(result).as("%s, maxPoints %d", mode, maxPoints).hasSizeLessThanOrEqualTo(maxPoints);
+            assertThat(series).containsAll(result);
+            assertThat(result).isSortedAccordingTo(Comparator.comparingLong(DeviceMetricsPointResponse::ts));
+            assertThat(result).doesNotHaveDuplicates();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(DownsampleMode.class)
+    void staysWithinThePointBudgetForRollupsStartingBeforeAnUnalignedFrom(DownsampleMode mode) {
+        // Rollup streams start at the bucket floor of from, and the last bucket may start at to.
+        for (long offset : new long[]{1, 1_799, 3_599}) {
+            long from = FROM + offset;
+            long to = from + 7 * 86_400;
+            List<DeviceMetricsPointResponse> series = new ArrayList<>();
+            for (long ts = Math.floorDiv(from, 3_600) * 3_600; ts <= to; ts += 3_600) {
+                series.add(point(ts, 20.0 + ts % 7, 50.0 - ts % 5));
+            }
+            series.add(point(to, 90.0, 10.0));
+
+            for (int maxPoints : new int[]{4, 8, 12, 40, 100}) {
+                List<DeviceMetricsPointResponse> result = run(mode, from, to, maxPoints, series);
+
+                assertThat(result).as("%s, offset %d, maxPoints %d", mode, offset, maxPoints)
+                        .hasSizeLessThanOrEqualTo(maxPoints);
+                assertThat(result).isSortedAccordingTo(Comparator.comparingLong(DeviceMetricsPointResponse::ts));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(DownsampleMode.class)
+    void returnsShortSeriesUnchanged(DownsampleMode mode) {
+        List<DeviceMetricsPointResponse> series = List.of(
+                point(FROM, 20.0, 50.0), point(FROM + 30_000, 21.0, 49.0), point(FROM + 60_000, 22.0, 48.0));
+
+        assertThat(run(mode, FROM, FROM + 86_400, 40, series)).containsExactlyElementsOf(series);
+    }
+
+    @Test
+    void minMaxKeepsTheExtremesOfEveryColumn() {
+        List<DeviceMetricsPointResponse> series = randomSeries(5_000, 10_000, 11);
+        int maxPoints = 200;
+        MetricsDownsampler downsampler = MetricsDownsampler.create(DownsampleMode.MINMAX, FROM, FROM + 10_000, maxPoints);
+        long width = downsampler.columnWidth();
+        series.forEach(downsampler::accept);
+
+        assertThat(width).isEqualTo(10_000 / (maxPoints / 4));
+        assertThat(downsampler.finish()).containsExactlyElementsOf(columnExtremes(series, width));
+    }
+
+    @Test
+    void minMaxSplitsColumnsAtTheirFirstSecond() {
+        // 10 columns of 10 s: ts 9 closes column 0 and ts 10 opens column 1.
+        List<DeviceMetricsPointResponse> series = new ArrayList<>();
+        for (long ts = 0; ts < 30; ts++) {
+            double t = ts == 9 ? 90.0 : ts == 10 ? -90.0 : 0.0;
+            series.add(point(FROM + ts, t, null));
+        }
+
+        List<DeviceMetricsPointResponse> result = run(DownsampleMode.MINMAX, FROM, FROM + 100, 40, series);
+
+        // Ties keep the earliest sample. Column 0: min 0, max 9; column 1: min 10, max 11; column 2: 20.
+        assertThat(result).extracting(DeviceMetricsPointResponse::ts)
+                .containsExactly(FROM, FROM + 9, FROM + 10, FROM + 11, FROM + 20);
+    }
+
+    @Test
+    void lttbKeepsTheEndsAndAtMostOnePointPerSeriesAndColumn() {
+        List<DeviceMetricsPointResponse> series = randomSeries(10_000, 86_400, 3);
+        int maxPoints = 100;
+        MetricsDownsampler downsampler = MetricsDownsampler.create(DownsampleMode.LTTB, FROM, FROM + 86_400, maxPoints);
+        long width = downsampler.columnWidth();
+        series.forEach(downsampler::accept);
+        List<DeviceMetricsPointResponse> result = downsampler.finish();
+
+        assertThat(width).isEqualTo((86_400 + 49) / 50);
+        assertThat(result).contains(first(series, DeviceMetricsPointResponse::tAvg), last(series, DeviceMetricsPointResponse::tAvg),
+                first(series, DeviceMetricsPointResponse::hAvg), last(series, DeviceMetricsPointResponse::hAvg));
+        Map<Long, Integer> perColumn = new HashMap<>();
+        for (DeviceMetricsPointResponse p : result) {
+            perColumn.merge((p.ts() - FROM) / width, 1, Integer::sum);
+        }
+        assertThat(perColumn.values()).allSatisfy(n -> assertThat(n).isLessThanOrEqualTo(2));
+        assertThat(perColumn.keySet()).allSatisfy(c -> assertThat(c).isBetween(0L, 49L));
+    }
+
+    @Test
+    void lttbKeepsASpikeInAFlatSeries() {
+        List<DeviceMetricsPointResponse> series = new ArrayList<>();
+        for (long ts = 0; ts < 1_000; ts++) {
+            series.add(point(FROM + ts, ts == 437 ? 80.0 : 20.0, 50.0));
+        }
+
+        List<DeviceMetricsPointResponse> result = run(DownsampleMode.LTTB, FROM, FROM + 1_000, 20, series);
+
+        assertThat(result).contains(series.get(437));
+    }
+
+    @Test
+    void lttbSelectsEachSeriesFromItsOwnSamples() {
+        // Temperature and humidity report at different times; a gap in one series must not hide the other.
+        List<DeviceMetricsPointResponse> series = new ArrayList<>();
+        for (long ts = 0; ts < 1_000; ts++) {
+            series.add(ts % 2 == 0 ? point(FROM + ts, 20.0 + ts % 7, null) : point(FROM + ts, null, 50.0 + ts % 5));
+        }
+
+        List<DeviceMetricsPointResponse> result = run(DownsampleMode.LTTB, FROM, FROM + 1_000, 20, series);
+
+        assertThat(result).filteredOn(p -> p.tAvg() != null).hasSize(10);
+        assertThat(result).filteredOn(p -> p.hAvg() != null).hasSize(10);
+    }
+
+    private static List<DeviceMetricsPointResponse> run(DownsampleMode mode, long from, long to, int maxPoints,
+                                                        List<DeviceMetricsPointResponse> series) {
+        MetricsDownsampler downsampler = MetricsDownsampler.create(mode, from, to, maxPoints);
+        series.forEach(downsampler::accept);
+        return downsampler.finish();
+    }
+
+    /** Reference min/max: per column and series the first minimum and first maximum sample. */
+    private static List<DeviceMetricsPointResponse> columnExtremes(List<DeviceMetricsPointResponse> series, long width) {
+        Map<Long, List<DeviceMetricsPointResponse>> columns = new HashMap<>();
+        for (DeviceMetricsPointResponse p : series) {
+            columns.computeIfAbsent((p.ts() - FROM) / width, c -> new ArrayList<>()).add(p);
+        }
+        Set<DeviceMetricsPointResponse> expected = new LinkedHashSet<>();
+        for (List<DeviceMetricsPointResponse> column : columns.values()) {
+            for (Function<DeviceMetricsPointResponse, Double> value :
+                    List.<Function<DeviceMetricsPointResponse, Double>>of(DeviceMetricsPointResponse::tAvg, DeviceMetricsPointResponse::hAvg)) {
+                List<DeviceMetricsPointResponse> present = column.stream().filter(p -> value.apply(p) != null).toList();
+                present.stream().min(Comparator.comparing(value)).ifPresent(expected::add);
+                present.stream().max(Comparator.comparing(value)).ifPresent(expected::add);
+            }
+        }
+        return expected.stream().sorted(Comparator.comparingLong(DeviceMetricsPointResponse::ts)).toList();
+    }
+
+    private static List<DeviceMetricsPointResponse> randomSeries(int n, long range, long seed) {
+        Random random = new Random(seed);
+        long[] ts = random.longs(n, 0, range).sorted().distinct().toArray();
+        List<DeviceMetricsPointResponse> series = new ArrayList<>(ts.length);
+        double t = 20;
+        double h = 50;
+        for (long offset : ts) {
+            t += random.nextGaussian();
+            h += random.nextGaussian();
+            int gaps = random.nextInt(10);
+            series.add(point(FROM + offset, gaps == 0 ? null : t, gaps == 1 ? null : h));
+        }
+        return series;
+    }
+
+    private static DeviceMetricsPointResponse first(List<DeviceMetricsPointResponse> series,
+                                                    Function<DeviceMetricsPointResponse, Double> value) {
+        return series.stream().filter(p -> value.apply(p) != null).findFirst().orElseThrow();
+    }
+
+    private static DeviceMetricsPointResponse last(List<DeviceMetricsPointResponse> series,
+                                                   Function<DeviceMetricsPointResponse, Double> value) {
+        return series.reversed().stream().filter(p -> value.apply(p) != null).findFirst().orElseThrow();
+    }
+
+    private static DeviceMetricsPointResponse point(long ts, Double t, Double h) {
+        return new DeviceMetricsPointResponse(ts, t, h);
+    }
+}
@@ -0,0 +1,75 @@
+package iot.data.platform.devices.core;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantChangeLogTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void returnsEachChangedDeviceOnceNewestFirst() {
+        TenantChangeLog log = new TenantChangeLog(100, registry);
+        log.record("prod", "tenant-1", "d1", false);
+        String after1 = log.token(log.version("prod", "tenant-1"));
+        log.record("prod", "tenant-1", "d2", false);
+        log.record("prod", "tenant-1", "d1", false);
+        log.record("prod", "tenant-2", "d9", false);
+
+        TenantChangeLog.Delta delta = log.since("prod", "tenant-1", after1);
+
+        assertThat(delta.version()).isEqualTo(3);
+        assertThat(delta.updated()).containsExactly("d1", "d2");
+        assertThat(delta.removed()).isEmpty();
+        assertThat(log.since("prod", "tenant-1", log.token(3)).updated()).isEmpty();
+    }
+
+    @Test
+    void keepsRemovalsAsTombstonesUntilTheDeviceReturns() {
+        TenantChangeLog log = new TenantChangeLog(100, registry);
+        log.record("prod", "tenant-1", "d1", false);
+        log.record("prod", "tenant-1", "d2", false);
+        String start = log.token(0);
+
+        log.record("prod", "tenant-1", "d1", true);
+        assertThat(log.since("prod", "tenant-1", start).updated()).containsExactly("d2");
+        assertThat(log.since("prod", "tenant-1", start).removed()).containsExactly("d1");
+
+        log.record("prod", "tenant-1", "d1", false);
+        assertThat(log.since("prod", "tenant-1", start).updated()).containsExactly("d1", "d2");
+        assertThat(log.since("prod", "tenant-1", start).removed()).isEmpty();
+    }
+
+    @Test
+    void trimmingRaisesTheFloor() {
+        TenantChangeLog log = new TenantChangeLog(3, registry);
+        for (int i = 1; i <= 5; i++) {
+            log.record("prod", "tenant-1", "d" + i, false);
+        }
+
+        // d1 and d2 were trimmed, so only changes after version 2 can still be answered.
+        assertThat(log.since("prod", "tenant-1", log.token(0))).isNull();
+        assertThat(log.since("prod", "tenant-1", log.token(1))).isNull();
+        assertThat(log.since("prod", "tenant-1", log.token(2)).updated()).containsExactly("d5", "d4", "d3");
+        assertThat(log.since("prod", "tenant-1", log.token(4)).updated()).containsExactly("d5");
+    }
+
+    @Test
+    void asksForResyncOnForeignFutureOrMalformedTokens() {
+        TenantChangeLog log = new TenantChangeLog(100, registry);
+        TenantChangeLog restarted = new TenantChangeLog(100, new SimpleMeterRegistry());
+        log.record("prod", "tenant-1", "d1", false);
+        restarted.record("prod", "tenant-1", "d1", false);
+
+        assertThat(log.token(1)).isNotEqualTo(restarted.token(1));
+        assertThat(log.since("prod", "tenant-1", restarted.token(0))).isNull();
+        assertThat(log.since("prod", "tenant-1", log.token(2))).isNull();
+        assertThat(log.since("prod", "tenant-1", "0")).isNull();
+        assertThat(log.since("prod", "tenant-1", log.token(0) + "x")).isNull();
+        assertThat(log.since("prod", "tenant-1", log.token(0).replace("-0", "--1"))).isNull();
+        assertThat(registry.counter("pvz.devices.change_log.resyncs").count()).isEqualTo(5);
+
+        assertThat(log.since("prod", "tenant-1", log.token(0)).updated()).containsExactly("d1");
+    }
+}
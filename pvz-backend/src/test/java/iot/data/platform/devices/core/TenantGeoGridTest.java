@@ -0,0 +1,106 @@
+package iot.data.platform.devices.core;
+
+import iot.data.platform.devices.core.TenantGeoGrid.Box;
+import iot.data.platform.devices.core.TenantGeoGrid.Cluster;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantGeoGridTest {
+    private static final Box WORLD = new Box(-90, -180, 90, 180);
+
+    @Test
+    void findsDevicesInAllFourQuadrants() {
+        TenantGeoGrid grid = grid(
+                new double[]{48.2, 16.4},     // north-east
+                new double[]{40.7, -74.0},    // north-west
+                new double[]{-33.9, 151.2},   // south-east
+                new double[]{-34.6, -58.4});  // south-west
+
+        assertThat(ids(grid, WORLD)).containsExactlyInAnyOrder("d0", "d1", "d2", "d3");
+        assertThat(ids(grid, new Box(0, 0, 90, 180))).containsExactly("d0");
+        assertThat(ids(grid, new Box(0, -180, 90, 0))).containsExactly("d1");
+        assertThat(ids(grid, new Box(-90, 0, 0, 180))).containsExactly("d2");
+        assertThat(ids(grid, new Box(-90, -180, 0, 0))).containsExactly("d3");
+    }
+
+    @Test
+    void clustersEveryQuadrantAtZoomOne() {
+        TenantGeoGrid grid = grid(
+                new double[]{10, 10}, new double[]{20, 20},
+                new double[]{10, -10},
+                new double[]{-10, 10},
+                new double[]{-10, -10}, new double[]{-20, -20}, new double[]{-30, -30});
+
+        assertThat(grid.clusters(WORLD, 1))
+                .extracting(Cluster::count)
+                .containsExactlyInAnyOrder(2, 1, 1, 3);
+        assertThat(grid.clusters(WORLD, 0))
+                .singleElement()
+                .satisfies(c -> assertThat(c.count()).isEqualTo(7));
+    }
+
+    @Test
+    void boxCrossingTheAntimeridianCoversBothSides() {
+        TenantGeoGrid grid = grid(
+                new double[]{-17.7, 178.0},   // Fiji
+                new double[]{-14.3, -170.7},  // American Samoa
+                new double[]{21.3, -157.8},   // Honolulu, east of the box
+                new double[]{51.5, -0.1});    // London
+
+        Box pacific = new Box(-30, 170, 0, -165);
+
+        assertThat(ids(grid, pacific)).containsExactlyInAnyOrder("d0", "d1");
+        assertThat(grid.clusters(pacific, 3))
+                .extracting(Cluster::count)
+                .containsOnly(1)
+                .hasSize(2);
+    }
+
+    @Test
+    void matchesALinearScan() {
+        Random random = new Random(42);
+        double[][] points = new double[2000][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new double[]{random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180};
+        }
+        TenantGeoGrid grid = grid(points);
+
+        for (int q = 0; q < 200; q++) {
+            double south = random.nextDouble() * 160 - 80;
+            double west = random.nextDouble() * 360 - 180;
+            Box box = new Box(south, west, south + random.nextDouble() * 20,
+                    wrap(west + random.nextDouble() * 40));
+
+            String[] expected = IntStream.range(0, points.length)
+                    .filter(i -> box.contains(points[i][0], points[i][1]))
+                    .mapToObj(i -> "d" + i)
+                    .toArray(String[]::new);
+            assertThat(ids(grid, box)).as("%s", box).containsExactlyInAnyOrder(expected);
+        }
+    }
+
+    private static TenantGeoGrid grid(double[]... positions) {
+        TenantSnapshot.Builder builder = new TenantSnapshot.Builder("prod", "tenant-1", positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            int row = builder.addRow("d" + i);
+            builder.setDouble(TenantSnapshot.LAT, row, positions[i][0]);
+            builder.setDouble(TenantSnapshot.LON, row, positions[i][1]);
+        }
+        return TenantGeoGrid.of(builder.build());
+    }
+
+    private static String[] ids(TenantGeoGrid grid, Box box) {
+        TenantGeoGrid.Hits hits = grid.within(box, Integer.MAX_VALUE);
+        assertThat(hits.truncated()).isFalse();
+        return Arrays.stream(hits.rows()).mapToObj(grid.snapshot()::deviceId).toArray(String[]::new);
+    }
+
+    private static double wrap(double lon) {
+        return lon > 180 ? lon - 360 : lon;
+    }
+}
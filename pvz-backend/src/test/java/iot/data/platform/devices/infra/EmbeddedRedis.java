@@ -0,0 +1,56 @@
+package iot.data.platform.devices.infra;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/** A throwaway Redis server on a free port, for tests whose behavior depends on Redis semantics. */
+final class EmbeddedRedis implements AutoCloseable {
+    private final RedisServer server;
+    private final LettuceConnectionFactory connectionFactory;
+    private final StringRedisTemplate template;
+
+    EmbeddedRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = RedisServer.newRedisServer().port(port).setting("save \"\"").build();
+        server.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        template = new StringRedisTemplate(connectionFactory);
+    }
+
+    StringRedisTemplate template() {
+        return template;
+    }
+
+    LettuceConnectionFactory connectionFactory() {
+        return connectionFactory;
+    }
+
+    void flush() {
+        template.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        connectionFactory.destroy();
+        try {
+            server.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package iot.data.platform.devices.infra;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import iot.data.platform.devices.core.DeviceState;
+import iot.data.platform.devices.core.TenantChangeLog;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KafkaDeviceStateConsumerTest {
+    private static final String TOPIC = "mqtt_enriched";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+    private static final Schema SCHEMA = SchemaBuilder.record("mqtt_enriched").fields()
+            .optionalString("d").optionalString("env").optionalString("tenant")
+            .optionalDouble("lat").optionalDouble("lon").optionalDouble("h").optionalDouble("t")
+            .optionalLong("ts_ht").optionalLong("rssi").optionalDouble("snr").optionalDouble("bat")
+            .optionalBoolean("online").optionalLong("ts_state")
+            .endRecord();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RedisDeviceRepository redis = mock(RedisDeviceRepository.class);
+    private final InMemoryDeviceStateStore store = new InMemoryDeviceStateStore(
+            redis, new TenantChangeLog(1000, registry), Duration.ofMinutes(10), 0, registry);
+    private KafkaDeviceStateConsumer consumer;
+
+    @AfterEach
+    void stop() {
+        if (consumer != null) consumer.stop();
+    }
+
+    @Test
+    void warmStartFromRedisThenKeepsTheNewestState() {
+        when(redis.findAllByTenant("prod", "tenant-1")).thenReturn(List.of(
+                state("d1", 40.0, 100L), state("d2", 41.0, 100L)));
+        MockConsumer<String, GenericRecord> kafka = topic();
+        start(kafka);
+        await(consumer::isCaughtUp);
+
+        assertThat(store.findById("prod", "tenant-1", "d1").h()).isEqualTo(40.0);
+
+        publish(kafka, 0, record("d1", 30.0, 200L));
+        publish(kafka, 1, record("d2", 20.0, 50L));   // older than the Redis state: ignored
+        publish(kafka, 2, record("d3", 10.0, 300L));
+        await(() -> store.findById("prod", "tenant-1", "d3") != null);
+
+        assertThat(store.findById("prod", "tenant-1", "d1").h()).isEqualTo(30.0);
+        assertThat(store.findById("prod", "tenant-1", "d2").h()).isEqualTo(41.0);
+    }
+
+    @Test
+    void outOfOrderUpdatesNeverRollADeviceBack() {
+        MockConsumer<String, GenericRecord> kafka = topic();
+        start(kafka);
+        await(consumer::isCaughtUp);
+
+        publish(kafka, 0, record("d1", 10.0, 300L));
+        publish(kafka, 1, record("d1", 20.0, 100L));
+        publish(kafka, 2, record("d1", 30.0, 200L));
+        publish(kafka, 3, record("d9", 0.0, 1L));
+        await(() -> store.findById("prod", "tenant-1", "d9") != null);
+
+        assertThat(store.findById("prod", "tenant-1", "d1").h()).isEqualTo(10.0);
+    }
+
+    @Test
+    void skipsRecordsThatCannotBeDecodedOrApplied() {
+        MockConsumer<String, GenericRecord> kafka = topic();
+        start(kafka);
+        await(consumer::isCaughtUp);
+
+        GenericRecord malformed = record("d2", 10.0, 100L);
+        malformed.put("lat", "not a number");
+        kafka.schedulePollTask(() -> {
+            kafka.addRecord(new ConsumerRecord<>(TOPIC, 0, 0, "d1", record("d1", 10.0, 300L)));
+            kafka.addRecord(new ConsumerRecord<>(TOPIC, 0, 1, "d1", record("d1", 20.0, 200L)));
+            kafka.updateEndOffsets(Map.of(PARTITION, 2L));
+            kafka.setPollException(new RecordDeserializationException(PARTITION, 0, "bad magic byte", null));
+        });
+        publish(kafka, 2, null);
+        publish(kafka, 3, malformed);
+        publish(kafka, 4, record("d3", 30.0, 100L));
+        await(() -> store.findById("prod", "tenant-1", "d3") != null);
+
+        assertThat(store.findById("prod", "tenant-1", "d1").h()).isEqualTo(20.0);
+        assertThat(store.findById("prod", "tenant-1", "d2")).isNull();
+        assertThat(registry.counter("pvz.ingest.records", "result", "rejected").count()).isEqualTo(3);
+        assertThat(registry.counter("pvz.ingest.restarts").count()).isZero();
+    }
+
+    @Test
+    void restartsAfterAFailureAndResumesWhereItStopped() {
+        MockConsumer<String, GenericRecord> first = topic();
+        MockConsumer<String, GenericRecord> second = topic();
+        CountDownLatch brokerBack = new CountDownLatch(1);
+        Deque<MockConsumer<String, GenericRecord>> consumers = new ArrayDeque<>(List.of(first, second));
+        start(() -> {
+            MockConsumer<String, GenericRecord> next = consumers.poll();
+            if (next == second) awaitLatch(brokerBack);
+            return next;
+        });
+        await(consumer::isCaughtUp);
+
+        publish(first, 0, record("d1", 10.0, 100L));
+        publish(first, 1, record("d1", 20.0, 200L));
+        await(() -> store.findById("prod", "tenant-1", "d1") != null
+                && store.findById("prod", "tenant-1", "d1").h() == 20.0);
+
+        first.setPollException(new KafkaException("broker gone"));
+        await(first::closed);
+        assertThat(consumer.isRunning()).isTrue();
+        assertThat(consumer.isCaughtUp()).isFalse();
+
+        second.schedulePollTask(() -> {
+            second.addRecord(new ConsumerRecord<>(TOPIC, 0, 1, "d1", record("d1", 99.0, 900L)));
+            second.addRecord(new ConsumerRecord<>(TOPIC, 0, 2, "d1", record("d1", 30.0, 300L)));
+            second.updateEndOffsets(Map.of(PARTITION, 3L));
+        });
+        brokerBack.countDown();
+        await(() -> consumer.isCaughtUp() && store.findById("prod", "tenant-1", "d1").h() != 20.0);
+
+        // Offset 1 was already applied before the failure; the new consumer starts at offset 2.
+        assertThat(store.findById("prod", "tenant-1", "d1").h()).isEqualTo(30.0);
+        assertThat(registry.counter("pvz.ingest.restarts").count()).isEqualTo(1);
+    }
+
+    @Test
+    void isNotCaughtUpWhileLagging() {
+        MockConsumer<String, GenericRecord> kafka = topic();
+        start(kafka);
+        await(consumer::isCaughtUp);
+
+        kafka.updateEndOffsets(Map.of(PARTITION, 50L));
+        await(() -> !consumer.isCaughtUp());
+
+        for (int i = 0; i < 50; i++) {
+            kafka.addRecord(new ConsumerRecord<>(TOPIC, 0, i, "d" + i, record("d" + i, 1.0, 100L)));
+        }
+        await(consumer::isCaughtUp);
+    }
+
+    private void start(MockConsumer<String, GenericRecord> kafka) {
+        start(() -> kafka);
+    }
+
+    private void start(Supplier<Consumer<String, GenericRecord>> factory) {
+        consumer = new KafkaDeviceStateConsumer(factory, store, TOPIC, 10, 10, 40, 10, registry);
+        consumer.start();
+    }
+
+    private static MockConsumer<String, GenericRecord> topic() {
+        MockConsumer<String, GenericRecord> kafka = new MockConsumer<>(OffsetResetStrategy.LATEST);
+        kafka.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+        kafka.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        kafka.updateEndOffsets(Map.of(PARTITION, 0L));
+        return kafka;
+    }
+
+    private static void publish(MockConsumer<String, GenericRecord> kafka, long offset, GenericRecord value) {
+        kafka.schedulePollTask(() -> {
+            kafka.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, "key", value));
+            kafka.updateEndOffsets(Map.of(PARTITION, offset + 1));
+        });
+    }
+
+    private static GenericRecord record(String deviceId, double humidity, long ts) {
+        GenericRecord r = new GenericData.Record(SCHEMA);
+        r.put("d", deviceId);
+        r.put("env", "prod");
+        r.put("tenant", "tenant-1");
+        r.put("h", humidity);
+        r.put("ts_ht", ts);
+        return r;
+    }
+
+    private static DeviceState state(String deviceId, double humidity, long ts) {
+        return new DeviceState(deviceId, "prod", "tenant-1", null, null, humidity, null, ts,
+                null, null, null, null, null);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("Condition not met within 10 s");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package iot.data.platform.devices.infra;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisDeviceIndexTest {
+    private static EmbeddedRedis redis;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private RedisDeviceIndex index;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        index = new RedisDeviceIndex(redis.template(), 2, 30_000, registry);
+    }
+
+    @Test
+    void rebuildsAnEmptyIndexFromTheStateHashes() {
+        writeState("d1");
+        writeState("d2");
+
+        assertThat(index.deviceIds("prod", "tenant-1")).containsExactlyInAnyOrder("d1", "d2");
+        assertThat(redis.template().opsForZSet().size(RedisKeys.devicesSet("prod", "tenant-1"))).isEqualTo(2);
+    }
+
+    @Test
+    void reconcileAddsDevicesWrittenWithoutANotification() {
+        writeState("d1");
+        index.touch("prod", "tenant-1", "d1", 1_000L);
+        writeState("d2");
+        writeState("d3");
+
+        index.reconcile("prod", "tenant-1");
+
+        assertThat(index.deviceIds("prod", "tenant-1")).containsExactlyInAnyOrder("d1", "d2", "d3");
+        // An indexed device keeps its last-seen score.
+        assertThat(redis.template().opsForZSet().score(RedisKeys.devicesSet("prod", "tenant-1"), "d1"))
+                .isEqualTo(1_000.0);
+        assertThat(registry.counter("pvz.redis.device_index.reconcile", "result", "added").count()).isEqualTo(2);
+    }
+
+    @Test
+    void reconcileDropsDevicesWhoseStateIsGone() {
+        writeState("d1");
+        index.touch("prod", "tenant-1", "d1", 1_000L);
+        index.touch("prod", "tenant-1", "gone", 1_000L);
+
+        index.reconcile("prod", "tenant-1");
+
+        assertThat(index.deviceIds("prod", "tenant-1")).containsExactly("d1");
+        assertThat(registry.counter("pvz.redis.device_index.reconcile", "result", "removed").count()).isEqualTo(1);
+    }
+
+    @Test
+    void reconcileKeepsDevicesTouchedWhileItRuns() {
+        writeState("d1");
+        index.touch("prod", "tenant-1", "d1", 1_000L);
+        // Written after the SCAN passed it: the notification scores it at or after the pass started.
+        index.touch("prod", "tenant-1", "late", System.currentTimeMillis() + 60_000);
+
+        index.reconcile("prod", "tenant-1");
+
+        assertThat(index.deviceIds("prod", "tenant-1")).containsExactlyInAnyOrder("d1", "late");
+    }
+
+    @Test
+    void scheduledReconcileCoversTenantsThatHaveBeenListed() {
+        writeState("d1");
+        assertThat(index.deviceIds("prod", "tenant-1")).containsExactly("d1");
+        writeState("d2");
+        redis.template().opsForHash().put(RedisKeys.deviceState("prod", "tenant-2", "x1"), "h", "50");
+
+        index.reconcile();
+
+        assertThat(index.deviceIds("prod", "tenant-1")).containsExactlyInAnyOrder("d1", "d2");
+        assertThat(redis.template().hasKey(RedisKeys.devicesSet("prod", "tenant-2"))).isFalse();
+    }
+
+    private static void writeState(String deviceId) {
+        redis.template().opsForHash().put(RedisKeys.deviceState("prod", "tenant-1", deviceId), "h", "50");
+    }
+}
@@ -0,0 +1,157 @@
+package iot.data.platform.devices.infra;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import iot.data.platform.devices.api.DroughtHistogramBucketResponse;
+import iot.data.platform.devices.api.DroughtLeaderboardResponse;
+import iot.data.platform.devices.api.DroughtStreakEntryResponse;
+import iot.data.platform.devices.api.DroughtSummaryResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisDroughtIndexTest {
+    private static EmbeddedRedis redis;
+
+    private HookedTemplate template;
+    private RedisDroughtIndex index;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        template = new HookedTemplate(redis);
+        index = new RedisDroughtIndex(template, 2, 30_000, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void summaryCountsOnlyPositiveStreaksAndBuildsAMissingSet() {
+        streak("d0", 0.0);
+        streak("d1", 0.5);
+        streak("d2", 3.0);
+        streak("d3", 7.0);
+
+        DroughtSummaryResponse summary = index.summary("prod", "tenant-1");
+
+        assertThat(summary.devicesInDrought()).isEqualTo(3);
+        assertThat(summary.maxStreakDays()).isEqualTo(7.0);
+        assertThat(summary.maxDeviceId()).isEqualTo("d3");
+        assertThat(summary.threshold()).isEqualTo(30.0);
+    }
+
+    @Test
+    void summaryOfATenantWithOnlyZeroStreaksHasNoMaximum() {
+        streak("d0", 0.0);
+        streak("d1", 0.0);
+
+        DroughtSummaryResponse summary = index.summary("prod", "tenant-1");
+
+        assertThat(summary.devicesInDrought()).isZero();
+        assertThat(summary.maxStreakDays()).isZero();
+        assertThat(summary.maxDeviceId()).isNull();
+    }
+
+    @Test
+    void leaderboardBucketsAreClosedBelowAndOpenAbove() {
+        streak("zero", 0.0);
+        streak("half", 0.5);
+        streak("one", 1.0);
+        streak("almost-three", 2.99);
+        streak("three", 3.0);
+        streak("seven", 7.0);
+        streak("ten", 10.0);
+
+        DroughtLeaderboardResponse board = index.leaderboard("prod", "tenant-1", 3, List.of(1.0, 3.0, 7.0));
+
+        assertThat(board.devicesInDrought()).isEqualTo(6);
+        assertThat(board.top()).extracting(DroughtStreakEntryResponse::deviceId)
+                .containsExactly("ten", "seven", "three");
+        // [0, 1): zero and half; [1, 3): one and almost-three; [3, 7): three; [7, +inf): seven and ten.
+        assertThat(board.histogram()).extracting(DroughtHistogramBucketResponse::devices)
+                .containsExactly(2L, 2L, 1L, 2L);
+        assertThat(board.histogram()).extracting(DroughtHistogramBucketResponse::fromDays)
+                .containsExactly(0.0, 1.0, 3.0, 7.0);
+        assertThat(board.histogram().get(3).toDays()).isNull();
+    }
+
+    @Test
+    void rebuildDropsMembersWhoseHashIsGone() {
+        streak("d1", 2.0);
+        template.opsForZSet().add(RedisKeys.droughtSet("prod", "tenant-1"), "ghost", 9.0);
+
+        index.rebuild("prod", "tenant-1");
+
+        assertThat(scores()).containsOnly(Map.entry("d1", 2.0));
+    }
+
+    @Test
+    void rebuildKeepsUpdatesTheListenerAppliesWhileItRuns() {
+        streak("d1", 2.0);
+        streak("d2", 4.0);
+        template.afterNextPipeline(() -> {
+            // Notifications handled between the rebuild's HMGET and its writes.
+            streak("d1", 5.0);
+            index.update("prod", "tenant-1", "d1");
+            template.delete(RedisKeys.deviceHumidityLowStreak("prod", "tenant-1", "d2"));
+            index.remove("prod", "tenant-1", "d2");
+            streak("d3", 1.0);
+            index.update("prod", "tenant-1", "d3");
+        });
+
+        index.rebuild("prod", "tenant-1");
+
+        assertThat(scores()).containsOnly(Map.entry("d1", 5.0), Map.entry("d3", 1.0));
+    }
+
+    private Map<String, Double> scores() {
+        return template.opsForZSet().rangeWithScores(RedisKeys.droughtSet("prod", "tenant-1"), 0, -1).stream()
+                .collect(Collectors.toMap(ZSetOperations.TypedTuple::getValue, ZSetOperations.TypedTuple::getScore));
+    }
+
+    private void streak(String deviceId, double days) {
+        template.opsForHash().putAll(RedisKeys.deviceHumidityLowStreak("prod", "tenant-1", deviceId),
+                Map.of("threshold", "30.0", "streak_days", Double.toString(days)));
+    }
+
+    /** Runs a callback once after the next pipeline, i.e. right after the rebuild's HMGETs. */
+    private static final class HookedTemplate extends StringRedisTemplate {
+        private Runnable hook;
+
+        HookedTemplate(EmbeddedRedis redis) {
+            super(redis.connectionFactory());
+        }
+
+        void afterNextPipeline(Runnable hook) {
+            this.hook = hook;
+        }
+
+        @Override
+        public List<Object> executePipelined(RedisCallback<?> action, RedisSerializer<?> resultSerializer) {
+            List<Object> result = super.executePipelined(action, resultSerializer);
+            Runnable h = hook;
+            hook = null;
+            if (h != null) h.run();
+            return result;
+        }
+    }
+}
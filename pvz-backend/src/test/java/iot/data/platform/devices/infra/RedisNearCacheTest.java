@@ -0,0 +1,188 @@
+package iot.data.platform.devices.infra;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.StatefulRedisConnectionImpl;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.push.PushListener;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisNearCacheTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    @SuppressWarnings("unchecked")
+    private final StatefulRedisConnectionImpl<String, String> connection = mock(StatefulRedisConnectionImpl.class);
+    @SuppressWarnings("unchecked")
+    private final RedisCommands<String, String> commands = mock(RedisCommands.class);
+    private final RedisClient client = mock(RedisClient.class);
+    private RedisNearCache cache;
+    private PushListener pushListener;
+    private RedisConnectionStateListener stateListener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        LettuceConnectionFactory factory = mock(LettuceConnectionFactory.class);
+        when(factory.getNativeClient()).thenReturn(client);
+        when(client.connect(any(RedisCodec.class))).thenReturn(connection);
+        when(connection.isOpen()).thenReturn(true);
+        when(connection.sync()).thenReturn(commands);
+        when(commands.clientTracking(any(TrackingArgs.class))).thenReturn("OK");
+
+        cache = new RedisNearCache(factory, true, 3, 60_000, registry);
+        assertThat(get("warm-up", "v")).isEqualTo("v");
+
+        ArgumentCaptor<PushListener> push = ArgumentCaptor.forClass(PushListener.class);
+        verify(connection).addListener(push.capture());
+        pushListener = push.getValue();
+        ArgumentCaptor<RedisConnectionStateListener> state = ArgumentCaptor.forClass(RedisConnectionStateListener.class);
+        verify(client).addListener(state.capture());
+        stateListener = state.getValue();
+    }
+
+    @Test
+    void servesRepeatedReadsFromMemoryIncludingMissingKeys() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache.get("k", c -> "v" + loads.incrementAndGet(), () -> "fallback")).isEqualTo("v1");
+            assertThat(cache.<String>get("absent", c -> { loads.incrementAndGet(); return null; }, () -> "fallback")).isNull();
+        }
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void dropsAnEntryOnInvalidation() {
+        get("k", "old");
+
+        invalidate("k");
+
+        assertThat(get("k", "new")).isEqualTo("new");
+        assertThat(get("k", "newer")).isEqualTo("new");
+        assertThat(registry.counter("pvz.redis.near_cache.invalidations").count()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotInstallAValueInvalidatedWhileLoading() {
+        String loaded = cache.get("k", c -> {
+            invalidate("k");   // the key is written between the read and the install
+            return "stale";
+        }, () -> "fallback");
+
+        assertThat(loaded).isEqualTo("stale");
+        assertThat(get("k", "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    void doesNotInstallAValueLoadedAcrossAFlush() {
+        get("other", "x");
+        cache.get("k", c -> {
+            pushListener.onPushMessage(push(null));   // FLUSHALL: no key list
+            return "stale";
+        }, () -> "fallback");
+
+        assertThat(cache.size()).isZero();
+        assertThat(get("k", "fresh")).isEqualTo("fresh");
+        assertThat(get("other", "y")).isEqualTo("y");
+    }
+
+    @Test
+    void doesNotInstallAValueLoadedAcrossADisconnect() {
+        cache.get("k", c -> {
+            stateListener.onRedisDisconnected(connection);
+            return "stale";
+        }, () -> "fallback");
+
+        assertThat(cache.size()).isZero();
+        // Tracking is re-enabled on the next read and the key loaded again.
+        assertThat(get("k", "fresh")).isEqualTo("fresh");
+        assertThat(get("k", "fresher")).isEqualTo("fresh");
+    }
+
+    @Test
+    void doesNotInstallAValueLoadedOverAConnectionThatDroppedWhileBeingObtained() {
+        stateListener.onRedisDisconnected(connection);
+        // The connection drops again right after tracking is re-enabled, before the read starts.
+        when(commands.clientTracking(any(TrackingArgs.class))).thenAnswer(invocation -> {
+            stateListener.onRedisDisconnected(connection);
+            return "OK";
+        }).thenReturn("OK");
+
+        get("k", "stale");
+
+        assertThat(cache.size()).isZero();
+        assertThat(get("k", "fresh")).isEqualTo("fresh");
+        assertThat(get("k", "fresher")).isEqualTo("fresh");
+    }
+
+    @Test
+    void leavesAConcurrentLoadsPlaceholderToItsOwner() {
+        String outer = cache.get("k", c -> {
+            // A second reader misses on the placeholder, loads too, but must not install.
+            assertThat(get("k", "second")).isEqualTo("second");
+            return "first";
+        }, () -> "fallback");
+
+        assertThat(outer).isEqualTo("first");
+        assertThat(get("k", "third")).isEqualTo("first");
+    }
+
+    @Test
+    void removesThePlaceholderWhenTheLoadFails() {
+        String value = cache.get("k", c -> {
+            throw new RedisException("connection reset");
+        }, () -> "fallback");
+
+        assertThat(value).isEqualTo("fallback");
+        assertThat(get("k", "loaded")).isEqualTo("loaded");
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        get("a", "a");
+        get("b", "b");
+        get("a", "a");
+        get("c", "c");   // evicts the warm-up key
+        get("d", "d");   // evicts b, which was read before a
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(get("a", "a2")).isEqualTo("a");
+        assertThat(get("b", "b2")).isEqualTo("b2");
+        assertThat(registry.counter("pvz.redis.near_cache.evictions").count()).isEqualTo(3);
+    }
+
+    private String get(String key, String value) {
+        return cache.get(key, c -> value, () -> "fallback");
+    }
+
+    private void invalidate(String... keys) {
+        pushListener.onPushMessage(push(Arrays.asList(keys)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PushMessage push(List<String> keys) {
+        PushMessage message = mock(PushMessage.class);
+        when(message.getType()).thenReturn("invalidate");
+        when(message.getContent(any(Function.class))).thenReturn(Arrays.asList("invalidate", keys));
+        return message;
+    }
+}
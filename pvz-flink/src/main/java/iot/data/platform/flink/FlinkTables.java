@@ -0,0 +1,38 @@
+package iot.data.platform.flink;
+
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.table.api.bridge.java.StreamTableEnvironment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Registers the Kafka / avro-confluent tables from {@code sql/*.sql}, the same definitions the SQL
+ * jobs in {@code scripts/flink-sql} use. {@code ${...}} placeholders are filled from job arguments.
+ */
+public final class FlinkTables {
+    private FlinkTables() {
+    }
+
+    public static void register(StreamTableEnvironment tEnv, ParameterTool params, String groupId, String... resources)
+            throws IOException {
+        for (String resource : resources) {
+            String ddl = readResource("/sql/" + resource)
+                    .replace("${bootstrap-servers}", params.get("bootstrap-servers", "kafka:9092"))
+                    .replace("${schema-registry-url}",
+                            params.get("schema-registry-url", "http://kafka-schema-registry:8081"))
+                    .replace("${group-id}", groupId);
+            for (String statement : ddl.split(";")) {
+                if (!statement.isBlank()) tEnv.executeSql(statement);
+            }
+        }
+    }
+
+    private static String readResource(String path) throws IOException {
+        try (InputStream in = FlinkTables.class.getResourceAsStream(path)) {
+            if (in == null) throw new IOException("Missing resource " + path);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package iot.data.platform.flink.drought;
+
+import org.apache.flink.api.common.state.StateTtlConfig;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+
+import java.time.Duration;
+
+/**
+ * Low-humidity streak per device, keyed by {@code env:tenant:device}.
+ * <p>
+ * Keeps one {@link StreakState} per device instead of grouping over the whole history: the first and
+ * last reading time, the last time humidity was at or above the tenant's threshold and the latest
+ * humidity. A row is emitted only when an event changes one of the output fields, so duplicates and
+ * late readings that change nothing produce no traffic. State of devices silent for
+ * {@code stateTtl} is dropped.
+ * <p>
+ * Input rows carry {@code env, tenant, d, h, ts_ht}. Output rows match the
+ * {@code mqtt_low_humidity_streak} sink.
+ */
+public class DroughtStreakFunction extends KeyedProcessFunction<String, Row, Row> {
+    private final DroughtThresholds thresholds;
+    private final Duration stateTtl;
+
+    private transient ValueState<StreakState> streak;
+
+    public DroughtStreakFunction(DroughtThresholds thresholds, Duration stateTtl) {
+        this.thresholds = thresholds;
+        this.stateTtl = stateTtl;
+    }
+
+    @Override
+    public void open(Configuration parameters) {
+        ValueStateDescriptor<StreakState> descriptor =
+                new ValueStateDescriptor<>("streak", Types.POJO(StreakState.class));
+        descriptor.enableTimeToLive(StateTtlConfig.newBuilder(stateTtl)
+                .setUpdateType(StateTtlConfig.UpdateType.OnCreateAndWrite)
+                .cleanupFullSnapshot()
+                .build());
+        streak = getRuntimeContext().getState(descriptor);
+    }
+
+    @Override
+    public void processElement(Row event, Context ctx, Collector<Row> out) throws Exception {
+        Long ts = (Long) event.getField("ts_ht");
+        if (ts == null) return;
+
+        String env = (String) event.getField("env");
+        String tenant = (String) event.getField("tenant");
+        Double h = (Double) event.getField("h");
+        double threshold = thresholds.forTenant(env, tenant);
+        boolean ok = h != null && h >= threshold;
+
+        StreakState s = streak.value();
+        boolean changed;
+        if (s == null || s.threshold != threshold) {
+            // A new device, or a threshold change across a restart: the old last_ok_ts was judged
+            // against a different threshold, so the streak starts over from this reading.
+            s = new StreakState();
+            s.threshold = threshold;
+            s.firstTs = ts;
+            s.lastTs = ts;
+            s.lastOkTs = ok ? ts : null;
+            s.lastH = h;
+            changed = true;
+        } else {
+            changed = false;
+            if (ts > s.lastTs) {
+                s.lastTs = ts;
+                s.lastH = h;
+                changed = true;
+            }
+            if (ok && (s.lastOkTs == null || ts > s.lastOkTs)) {
+                s.lastOkTs = ts;
+                changed = true;
+            }
+            if (ts < s.firstTs) {
+                s.firstTs = ts;
+                changed |= s.lastOkTs == null;
+            }
+        }
+
+        streak.update(s);
+        if (changed) {
+            out.collect(toRow(env, tenant, (String) event.getField("d"), s));
+        }
+    }
+
+    private static Row toRow(String env, String tenant, String deviceId, StreakState s) {
+        return Row.of(
+                "pvz:" + env + ":" + tenant + ":device:" + deviceId + ":humidity_low_streak",
+                env,
+                tenant,
+                deviceId,
+                s.threshold,
+                s.lastTs,
+                s.lastOkTs,
+                s.streakDays(),
+                s.lastH
+        );
+    }
+}
@@ -0,0 +1,63 @@
+package iot.data.platform.flink.drought;
+
+import iot.data.platform.flink.FlinkTables;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.table.api.bridge.java.StreamTableEnvironment;
+import org.apache.flink.types.Row;
+
+import java.time.Duration;
+
+/**
+ * Maintains {@code mqtt_low_humidity_streak} from {@code mqtt_enriched} with
+ * {@link DroughtStreakFunction}. Arguments: {@code --bootstrap-servers}, {@code --schema-registry-url},
+ * {@code --threshold}, {@code --tenant-thresholds}, {@code --state-ttl-days} and
+ * {@code --checkpoint-interval-ms}.
+ */
+public final class DroughtStreakJob {
+    static final TypeInformation<Row> STREAK_TYPE = Types.ROW_NAMED(
+            new String[]{
+                    "redis_key", "env", "tenantId", "device_id", "threshold",
+                    "last_ts", "last_ok_ts", "streak_days", "last_h"
+            },
+            Types.STRING, Types.STRING, Types.STRING, Types.STRING, Types.DOUBLE,
+            Types.LONG, Types.LONG, Types.DOUBLE, Types.DOUBLE
+    );
+
+    private DroughtStreakJob() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ParameterTool params = ParameterTool.fromArgs(args);
+        DroughtThresholds thresholds = DroughtThresholds.parse(
+                params.getDouble("threshold", 50.0), params.get("tenant-thresholds"));
+        Duration stateTtl = Duration.ofDays(params.getLong("state-ttl-days", 30));
+
+        StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+        env.enableCheckpointing(params.getLong("checkpoint-interval-ms", 60_000));
+        StreamTableEnvironment tEnv = StreamTableEnvironment.create(env);
+
+        FlinkTables.register(tEnv, params, "flink-mqtt-low-humidity-streak",
+                "mqtt_enriched.sql", "mqtt_low_humidity_streak.sql");
+
+        DataStream<Row> events = tEnv.toDataStream(tEnv.sqlQuery("""
+                SELECT env, tenant, d, h, ts_ht
+                FROM mqtt_enriched
+                WHERE env IS NOT NULL AND tenant IS NOT NULL AND d IS NOT NULL AND ts_ht IS NOT NULL
+                """));
+
+        DataStream<Row> streaks = events
+                .keyBy(row -> row.getField("env") + ":" + row.getField("tenant") + ":" + row.getField("d"),
+                        Types.STRING)
+                .process(new DroughtStreakFunction(thresholds, stateTtl))
+                .returns(STREAK_TYPE)
+                .uid("drought-streak")
+                .name("drought-streak");
+
+        tEnv.createTemporaryView("low_humidity_streak_updates", streaks);
+        tEnv.executeSql("INSERT INTO mqtt_low_humidity_streak SELECT * FROM low_humidity_streak_updates");
+    }
+}
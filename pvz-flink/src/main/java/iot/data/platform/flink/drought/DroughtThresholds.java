@@ -0,0 +1,38 @@
+package iot.data.platform.flink.drought;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Low-humidity threshold per tenant. Parsed from {@code --threshold} (the default) and
+ * {@code --tenant-thresholds env:tenant=value,env:tenant=value}.
+ */
+public final class DroughtThresholds implements Serializable {
+    private final double defaultThreshold;
+    private final Map<String, Double> byTenant;
+
+    public DroughtThresholds(double defaultThreshold, Map<String, Double> byTenant) {
+        this.defaultThreshold = defaultThreshold;
+        this.byTenant = new HashMap<>(byTenant);
+    }
+
+    public static DroughtThresholds parse(double defaultThreshold, String spec) {
+        Map<String, Double> byTenant = new HashMap<>();
+        if (spec != null) {
+            for (String entry : spec.split(",")) {
+                if (entry.isBlank()) continue;
+                int eq = entry.lastIndexOf('=');
+                if (eq < 0 || entry.indexOf(':') < 0) {
+                    throw new IllegalArgumentException("Expected env:tenant=threshold, got '" + entry + "'");
+                }
+                byTenant.put(entry.substring(0, eq).trim(), Double.parseDouble(entry.substring(eq + 1).trim()));
+            }
+        }
+        return new DroughtThresholds(defaultThreshold, byTenant);
+    }
+
+    public double forTenant(String env, String tenant) {
+        return byTenant.getOrDefault(env + ":" + tenant, defaultThreshold);
+    }
+}
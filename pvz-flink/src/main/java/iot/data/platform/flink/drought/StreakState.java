@@ -0,0 +1,20 @@
+package iot.data.platform.flink.drought;
+
+/**
+ * Everything the streak of one device depends on, independent of how much history it has. Public
+ * fields and a no-arg constructor keep it a Flink POJO.
+ */
+public class StreakState {
+    public double threshold;
+    public long firstTs;
+    public long lastTs;
+    public Long lastOkTs;
+    public Double lastH;
+
+    public StreakState() {
+    }
+
+    double streakDays() {
+        return (lastTs - (lastOkTs != null ? lastOkTs : firstTs)) / 86_400_000.0;
+    }
+}
@@ -0,0 +1,22 @@
+package iot.data.platform.flink.summary;
+
+/**
+ * Latest reading of one device inside the sliding window, i.e. what it currently contributes to its
+ * tenant's {@link TenantTotals}. Public fields and a no-arg constructor keep it a Flink POJO.
+ */
+public class DeviceSlot {
+    public long lastSeen;
+    public boolean online;
+    public Double t;
+    public Double h;
+
+    public DeviceSlot() {
+    }
+
+    public DeviceSlot(long lastSeen, boolean online, Double t, Double h) {
+        this.lastSeen = lastSeen;
+        this.online = online;
+        this.t = t;
+        this.h = h;
+    }
+}
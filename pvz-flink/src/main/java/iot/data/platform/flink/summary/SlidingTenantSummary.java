@@ -0,0 +1,139 @@
+package iot.data.platform.flink.summary;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sliding per-tenant summary over the last {@code windowMs} of event time, keyed by
+ * {@code env:tenant}.
+ * <p>
+ * Every device keeps one {@link DeviceSlot} with its latest reading, and the tenant keeps running
+ * {@link TenantTotals}. An event replaces the device's previous contribution; an event-time timer at
+ * the slide boundary after {@code lastSeen + windowMs} takes the device out again. The summary is
+ * emitted on slide boundaries when something changed, so each event touches one slot and one timer
+ * instead of every overlapping HOP window, and state is bounded by the number of live devices.
+ * <p>
+ * Input rows carry {@code env, tenant, d, online, t, h} with the event time as record timestamp.
+ * Output rows match the {@code mqtt_recent_summary} sink.
+ */
+public class SlidingTenantSummary extends KeyedProcessFunction<String, Row, Row> {
+    private final long windowMs;
+    private final long slideMs;
+
+    private transient MapState<String, DeviceSlot> devices;
+    private transient MapState<Long, List<String>> expiries;
+    private transient ValueState<TenantTotals> totals;
+
+    public SlidingTenantSummary(long windowMs, long slideMs) {
+        this.windowMs = windowMs;
+        this.slideMs = slideMs;
+    }
+
+    @Override
+    public void open(Configuration parameters) {
+        devices = getRuntimeContext().getMapState(
+                new MapStateDescriptor<>("devices", Types.STRING, Types.POJO(DeviceSlot.class)));
+        expiries = getRuntimeContext().getMapState(
+                new MapStateDescriptor<>("expiries", Types.LONG, Types.LIST(Types.STRING)));
+        totals = getRuntimeContext().getState(
+                new ValueStateDescriptor<>("totals", Types.POJO(TenantTotals.class)));
+    }
+
+    @Override
+    public void processElement(Row event, Context ctx, Collector<Row> out) throws Exception {
+        Long ts = ctx.timestamp();
+        if (ts == null || ts + windowMs <= ctx.timerService().currentWatermark()) return;
+
+        String deviceId = (String) event.getField("d");
+        DeviceSlot previous = devices.get(deviceId);
+        if (previous != null && ts < previous.lastSeen) return;
+
+        TenantTotals current = totals.value();
+        if (current == null) current = new TenantTotals();
+
+        Boolean online = (Boolean) event.getField("online");
+        DeviceSlot slot = new DeviceSlot(ts, Boolean.TRUE.equals(online),
+                (Double) event.getField("t"), (Double) event.getField("h"));
+
+        if (previous != null) current.remove(previous);
+        current.add(slot);
+        devices.put(deviceId, slot);
+        totals.update(current);
+
+        long expiry = ceilToSlide(ts + windowMs);
+        if (previous == null || ceilToSlide(previous.lastSeen + windowMs) != expiry) {
+            List<String> due = expiries.get(expiry);
+            if (due == null) due = new ArrayList<>();
+            due.add(deviceId);
+            expiries.put(expiry, due);
+            ctx.timerService().registerEventTimeTimer(expiry);
+        }
+        ctx.timerService().registerEventTimeTimer(ceilToSlide(ts));
+    }
+
+    @Override
+    public void onTimer(long timestamp, OnTimerContext ctx, Collector<Row> out) throws Exception {
+        TenantTotals current = totals.value();
+
+        List<String> due = expiries.get(timestamp);
+        if (due != null) {
+            for (String deviceId : due) {
+                DeviceSlot slot = devices.get(deviceId);
+                // The device may have reported again since; then it is due at a later boundary.
+                if (slot != null && current != null && slot.lastSeen + windowMs <= timestamp) {
+                    current.remove(slot);
+                    devices.remove(deviceId);
+                }
+            }
+            expiries.remove(timestamp);
+        }
+
+        if (current == null || !current.dirty) return;
+        out.collect(toRow(ctx.getCurrentKey(), timestamp, current));
+        current.dirty = false;
+
+        if (current.total == 0) {
+            totals.clear();
+        } else {
+            totals.update(current);
+        }
+    }
+
+    private Row toRow(String key, long windowEnd, TenantTotals current) {
+        int sep = key.indexOf(':');
+        return Row.of(
+                key,
+                key.substring(0, sep),
+                key.substring(sep + 1),
+                toLocalDateTime(windowEnd - windowMs),
+                toLocalDateTime(windowEnd),
+                windowMs / 1000,
+                current.total,
+                current.online,
+                current.total - current.online,
+                current.avgTemp(),
+                current.avgHumidity()
+        );
+    }
+
+    private long ceilToSlide(long ts) {
+        return Math.floorDiv(ts + slideMs - 1, slideMs) * slideMs;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,52 @@
+package iot.data.platform.flink.summary;
+
+/**
+ * Running per-tenant aggregates over the devices currently in the window. Devices are added and
+ * removed one at a time, so a summary costs O(1) per event instead of a recount per window.
+ */
+public class TenantTotals {
+    public long total;
+    public long online;
+    public double tSum;
+    public long tCount;
+    public double hSum;
+    public long hCount;
+    public boolean dirty;
+
+    public TenantTotals() {
+    }
+
+    void add(DeviceSlot slot) {
+        apply(slot, 1);
+    }
+
+    void remove(DeviceSlot slot) {
+        apply(slot, -1);
+    }
+
+    Double avgTemp() {
+        return tCount == 0 ? null : tSum / tCount;
+    }
+
+    Double avgHumidity() {
+        return hCount == 0 ? null : hSum / hCount;
+    }
+
+    private void apply(DeviceSlot slot, int sign) {
+        total += sign;
+        if (slot.online) online += sign;
+        if (slot.t != null) {
+            tSum += sign * slot.t;
+            tCount += sign;
+        }
+        if (slot.h != null) {
+            hSum += sign * slot.h;
+            hCount += sign;
+        }
+        // Start from exact zeros again once the last contribution is gone, so subtraction
+        // rounding never accumulates across the lifetime of the job.
+        if (tCount == 0) tSum = 0.0;
+        if (hCount == 0) hSum = 0.0;
+        dirty = true;
+    }
+}
@@ -0,0 +1,28 @@
+CREATE TABLE mqtt_enriched
+(
+    d         STRING,
+    env       STRING,
+    tenant    STRING,
+    lat DOUBLE,
+    lon DOUBLE,
+    h DOUBLE,
+    t DOUBLE,
+    ts_ht     BIGINT,
+    rssi      BIGINT,
+    snr DOUBLE,
+    bat DOUBLE,
+    online    BOOLEAN,
+    ts_state  BIGINT,
+    redis_key STRING,
+
+    rt AS TO_TIMESTAMP_LTZ(ts_ht, 3),
+    WATERMARK FOR rt AS rt - INTERVAL '5' SECOND
+) WITH (
+      'connector' = 'kafka',
+      'topic' = 'mqtt_enriched',
+      'properties.bootstrap.servers' = '${bootstrap-servers}',
+      'properties.group.id' = '${group-id}',
+      'scan.startup.mode' = 'earliest-offset',
+      'format' = 'avro-confluent',
+      'avro-confluent.schema-registry.url' = '${schema-registry-url}'
+      );
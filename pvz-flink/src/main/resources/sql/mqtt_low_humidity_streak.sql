@@ -0,0 +1,20 @@
+CREATE TABLE mqtt_low_humidity_streak
+(
+    redis_key  STRING,
+    env        STRING,
+    tenantId   STRING,
+    device_id  STRING,
+    threshold DOUBLE,
+    last_ts    BIGINT,
+    last_ok_ts BIGINT,
+    streak_days DOUBLE,
+    last_h DOUBLE,
+    PRIMARY KEY (redis_key) NOT ENFORCED
+) WITH (
+      'connector' = 'upsert-kafka',
+      'topic' = 'mqtt_low_humidity_streak',
+      'properties.bootstrap.servers' = '${bootstrap-servers}',
+      'key.format' = 'raw',
+      'value.format' = 'avro-confluent',
+      'value.avro-confluent.schema-registry.url' = '${schema-registry-url}'
+      );
@@ -0,0 +1,22 @@
+CREATE TABLE mqtt_recent_summary
+(
+    redis_key      STRING,
+    env            STRING,
+    tenantId       STRING,
+    window_start   TIMESTAMP(3),
+    window_end     TIMESTAMP(3),
+    windowSeconds  BIGINT,
+    totalDevices   BIGINT,
+    onlineDevices  BIGINT,
+    offlineDevices BIGINT,
+    avgTemp DOUBLE,
+    avgHumidity DOUBLE,
+    PRIMARY KEY (redis_key) NOT ENFORCED
+) WITH (
+      'connector' = 'upsert-kafka',
+      'topic' = 'mqtt_recent_summary',
+      'properties.bootstrap.servers' = '${bootstrap-servers}',
+      'key.format' = 'raw',
+      'value.format' = 'avro-confluent',
+      'value.avro-confluent.schema-registry.url' = '${schema-registry-url}'
+      );
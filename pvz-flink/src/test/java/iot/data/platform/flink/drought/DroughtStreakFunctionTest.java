@@ -0,0 +1,149 @@
+package iot.data.platform.flink.drought;
+
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.streaming.api.operators.KeyedProcessOperator;
+import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
+import org.apache.flink.types.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DroughtStreakFunctionTest {
+    private static final long DAY = 86_400_000L;
+    private static final long T0 = 1_700_000_000_000L;
+
+    private KeyedOneInputStreamOperatorTestHarness<String, Row, Row> harness;
+
+    @AfterEach
+    void close() throws Exception {
+        if (harness != null) harness.close();
+    }
+
+    @Test
+    void streakRunsFromTheLastReadingAtOrAboveTheThreshold() throws Exception {
+        harness = open(Map.of(), null);
+
+        process("d1", 45.0, T0);
+        process("d1", 25.0, T0 + DAY);
+        process("d1", 20.0, T0 + 3 * DAY);
+
+        List<Row> out = harness.extractOutputValues();
+        assertThat(out).extracting(r -> r.getField(7)).containsExactly(0.0, 1.0, 3.0);
+        assertThat(out.get(2).getField(0)).isEqualTo("pvz:prod:tenant-1:device:d1:humidity_low_streak");
+        assertThat(out.get(2).getField(6)).isEqualTo(T0);
+        assertThat(out.get(2).getField(8)).isEqualTo(20.0);
+    }
+
+    @Test
+    void lateAndDuplicateReadingsOnlyEmitWhenTheyChangeTheStreak() throws Exception {
+        harness = open(Map.of(), null);
+
+        process("d1", 20.0, T0);
+        process("d1", 20.0, T0 + 4 * DAY);
+        process("d1", 20.0, T0 + 4 * DAY);         // duplicate
+        process("d1", 10.0, T0 + 2 * DAY);         // late, still low: nothing changes
+        process("d1", 50.0, T0 + DAY);             // late but at the threshold: the streak restarts there
+        process("d1", 20.0, T0 - DAY);             // late, before the first reading, after an OK one
+
+        List<Row> out = harness.extractOutputValues();
+        assertThat(out).extracting(r -> r.getField(7)).containsExactly(0.0, 4.0, 3.0);
+        assertThat(out.get(2).getField(5)).isEqualTo(T0 + 4 * DAY);
+        assertThat(out.get(2).getField(6)).isEqualTo(T0 + DAY);
+    }
+
+    @Test
+    void streakWithoutAnOkReadingCountsFromTheFirstOneSeen() throws Exception {
+        harness = open(Map.of(), null);
+
+        process("d1", 20.0, T0);
+        process("d1", 20.0, T0 + 2 * DAY);
+        process("d1", 20.0, T0 - DAY);             // earlier first reading lengthens the streak
+
+        assertThat(harness.extractOutputValues()).extracting(r -> r.getField(7)).containsExactly(0.0, 2.0, 3.0);
+    }
+
+    @Test
+    void thresholdChangeAcrossARestartStartsTheStreakOver() throws Exception {
+        harness = open(Map.of(), null);
+        process("d1", 25.0, T0);
+        process("d1", 25.0, T0 + 5 * DAY);
+        process("tenant-2", "d2", 25.0, T0);
+        process("tenant-2", "d2", 25.0, T0 + 5 * DAY);
+        assertThat(harness.extractOutputValues().get(1).getField(7)).isEqualTo(5.0);
+        OperatorSubtaskState snapshot = harness.snapshot(1L, T0 + 5 * DAY);
+        harness.close();
+
+        // tenant-1 lowers its threshold to 20, so 25 % now counts as OK; tenant-2 keeps the default.
+        harness = open(Map.of("prod:tenant-1", 20.0), snapshot);
+        process("d1", 25.0, T0 + 6 * DAY);
+        process("d1", 15.0, T0 + 7 * DAY);
+        process("tenant-2", "d2", 25.0, T0 + 6 * DAY);
+
+        List<Row> out = harness.extractOutputValues();
+        assertThat(out).hasSize(3);
+        assertThat(out.get(0).getField(4)).isEqualTo(20.0);
+        assertThat(out.get(0).getField(6)).isEqualTo(T0 + 6 * DAY);
+        assertThat(out.get(0).getField(7)).isEqualTo(0.0);
+        assertThat(out.get(1).getField(7)).isEqualTo(1.0);
+        // A device whose threshold did not change keeps its history.
+        assertThat(out.get(2).getField(4)).isEqualTo(30.0);
+        assertThat(out.get(2).getField(7)).isEqualTo(6.0);
+    }
+
+    @Test
+    void raisingTheThresholdDoesNotKeepAnOkJudgedAgainstTheOldOne() throws Exception {
+        harness = open(Map.of(), null);
+        process("d1", 40.0, T0);
+        process("d1", 40.0, T0 + 3 * DAY);
+        OperatorSubtaskState snapshot = harness.snapshot(1L, T0 + 3 * DAY);
+        harness.close();
+
+        harness = open(Map.of("prod:tenant-1", 50.0), snapshot);
+        process("d1", 40.0, T0 + 4 * DAY);
+        process("d1", 40.0, T0 + 6 * DAY);
+
+        List<Row> out = harness.extractOutputValues();
+        assertThat(out).extracting(r -> r.getField(6)).containsExactly(null, null);
+        assertThat(out).extracting(r -> r.getField(7)).containsExactly(0.0, 2.0);
+    }
+
+    private static KeyedOneInputStreamOperatorTestHarness<String, Row, Row> open(
+            Map<String, Double> tenantThresholds, OperatorSubtaskState restore) throws Exception {
+        DroughtStreakFunction function =
+                new DroughtStreakFunction(new DroughtThresholds(30.0, tenantThresholds), Duration.ofDays(30));
+        KeyedOneInputStreamOperatorTestHarness<String, Row, Row> h = new KeyedOneInputStreamOperatorTestHarness<>(
+                new KeyedProcessOperator<>(function),
+                r -> r.getField("env") + ":" + r.getField("tenant") + ":" + r.getField("d"),
+                Types.STRING);
+        h.setup(DroughtStreakJob.STREAK_TYPE.createSerializer(h.getExecutionConfig().getSerializerConfig()));
+        if (restore != null) {
+            h.initializeState(restore);
+        }
+        h.open();
+        return h;
+    }
+
+    private void process(String deviceId, Double h, long ts) throws Exception {
+        process("tenant-1", deviceId, h, ts);
+    }
+
+    private void process(String tenant, String deviceId, Double h, long ts) throws Exception {
+        harness.processElement(row(tenant, deviceId, h, ts), ts);
+    }
+
+    private static Row row(String tenant, String deviceId, Double h, long ts) {
+        Row row = Row.withNames();
+        row.setField("env", "prod");
+        row.setField("tenant", tenant);
+        row.setField("d", deviceId);
+        row.setField("h", h);
+        row.setField("ts_ht", ts);
+        return row;
+    }
+}
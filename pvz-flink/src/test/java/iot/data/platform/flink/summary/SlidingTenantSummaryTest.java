@@ -0,0 +1,106 @@
+package iot.data.platform.flink.summary;
+
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.streaming.api.operators.KeyedProcessOperator;
+import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
+import org.apache.flink.types.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingTenantSummaryTest {
+    private static final long SECOND = 1_000L;
+
+    private KeyedOneInputStreamOperatorTestHarness<String, Row, Row> harness;
+
+    @BeforeEach
+    void open() throws Exception {
+        // A 60 s window sliding every 10 s.
+        harness = new KeyedOneInputStreamOperatorTestHarness<>(
+                new KeyedProcessOperator<>(new SlidingTenantSummary(60 * SECOND, 10 * SECOND)),
+                r -> r.getField("env") + ":" + r.getField("tenant"),
+                Types.STRING);
+        harness.setup(RecentSummaryJob.SUMMARY_TYPE.createSerializer(harness.getExecutionConfig().getSerializerConfig()));
+        harness.open();
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        harness.close();
+    }
+
+    @Test
+    void devicesLeaveTheWindowAtTheSlideBoundaryAfterTheirLastReading() throws Exception {
+        process("d1", true, 20.0, 50.0, 5);
+        advance(10);
+        process("d2", false, 22.0, null, 12);
+        advance(20, 60, 70, 80);
+
+        List<Row> out = harness.extractOutputValues();
+        assertThat(out).extracting(r -> r.getField(4)).containsExactly(at(10), at(20), at(70), at(80));
+        assertThat(out).extracting(r -> r.getField(6)).containsExactly(1L, 2L, 1L, 0L);
+        assertThat(out.get(1).getField(0)).isEqualTo("prod:tenant-1");
+        assertThat(out.get(1).getField(3)).isEqualTo(at(-40));
+        assertThat(out.get(1).getField(7)).isEqualTo(1L);
+        assertThat(out.get(1).getField(8)).isEqualTo(1L);
+        assertThat(out.get(1).getField(9)).isEqualTo(21.0);
+        assertThat(out.get(1).getField(10)).isEqualTo(50.0);
+        assertThat(out.get(2).getField(9)).isEqualTo(22.0);
+        assertThat(out.get(2).getField(10)).isNull();
+    }
+
+    @Test
+    void outOfOrderReadingsNeverReplaceANewerOneAndPushBackTheExpiryOnlyWhenNewer() throws Exception {
+        process("d1", true, null, 40.0, 30);
+        process("d1", true, null, 10.0, 20);   // older than d1's reading: ignored
+        process("d2", true, null, 60.0, 25);
+        advance(30);
+        process("d1", true, null, 30.0, 45);   // d1 now expires at 110 instead of 90
+        advance(50, 90, 100, 110);
+
+        List<Row> out = harness.extractOutputValues();
+        assertThat(out).extracting(r -> r.getField(4)).containsExactly(at(30), at(50), at(90), at(110));
+        assertThat(out).extracting(r -> r.getField(6)).containsExactly(2L, 2L, 1L, 0L);
+        assertThat(out).extracting(r -> r.getField(10)).containsExactly(50.0, 45.0, 30.0, null);
+    }
+
+    @Test
+    void dropsReadingsAlreadyOutOfTheWindowAndCountsLateOnesStillInIt() throws Exception {
+        advance(100);
+        process("d1", true, null, 10.0, 40);   // 40 s + 60 s <= watermark: out of the window already
+        process("d2", true, null, 20.0, 50);   // late, but inside the window until 110 s
+        advance(105, 110);
+
+        List<Row> out = harness.extractOutputValues();
+        assertThat(out).extracting(r -> r.getField(6)).containsExactly(1L, 0L);
+        assertThat(out.get(0).getField(10)).isEqualTo(20.0);
+        assertThat(out.get(1).getField(4)).isEqualTo(at(110));
+    }
+
+    private void process(String deviceId, boolean online, Double t, Double h, long seconds) throws Exception {
+        Row row = Row.withNames();
+        row.setField("env", "prod");
+        row.setField("tenant", "tenant-1");
+        row.setField("d", deviceId);
+        row.setField("online", online);
+        row.setField("t", t);
+        row.setField("h", h);
+        harness.processElement(row, seconds * SECOND);
+    }
+
+    private void advance(long... seconds) throws Exception {
+        for (long s : seconds) {
+            harness.processWatermark(s * SECOND);
+        }
+    }
+
+    private static LocalDateTime at(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+}
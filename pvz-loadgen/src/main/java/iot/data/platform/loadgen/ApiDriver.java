@@ -0,0 +1,93 @@
+package iot.data.platform.loadgen;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives the dashboard read endpoints open-loop: requests start on a fixed schedule whether or not
+ * earlier ones finished, and latency is measured from the scheduled start. A slow backend therefore
+ * shows up as latency instead of silently lowering the offered load.
+ */
+public final class ApiDriver {
+    private static final List<String> ENDPOINTS = List.of(
+            "devices", "recent", "summary/recent", "summary/drought", "device", "metrics"
+    );
+
+    private final LoadGenConfig config;
+    private final DeviceFleet fleet;
+    private final HttpClient http;
+    private final ExecutorService executor;
+    private final Map<String, LatencyStats> stats = new LinkedHashMap<>();
+    private volatile boolean running = true;
+
+    public ApiDriver(LoadGenConfig config, DeviceFleet fleet, HttpClient http, ExecutorService executor) {
+        this.config = config;
+        this.fleet = fleet;
+        this.http = http;
+        this.executor = executor;
+        for (String endpoint : ENDPOINTS) {
+            stats.put(endpoint, new LatencyStats());
+        }
+    }
+
+    public Map<String, LatencyStats> stats() {
+        return stats;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public void run() {
+        if (config.apiRequestsPerSecond() <= 0) return;
+        long periodNanos = (long) (1e9 / config.apiRequestsPerSecond());
+        long next = System.nanoTime();
+        int i = 0;
+        while (running) {
+            long scheduled = next;
+            String endpoint = ENDPOINTS.get(i++ % ENDPOINTS.size());
+            executor.execute(() -> call(endpoint, scheduled));
+
+            next += periodNanos;
+            long sleep = next - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void call(String endpoint, long scheduledNanos) {
+        int index = ThreadLocalRandom.current().nextInt(fleet.size());
+        String base = config.apiBase() + "/" + fleet.env(index) + "/" + fleet.tenant(index) + "/devices";
+        String path = switch (endpoint) {
+            case "devices" -> base;
+            case "device" -> base + "/" + fleet.deviceId(index);
+            case "metrics" -> base + "/" + fleet.deviceId(index) + "/metrics?bucket=HOUR&maxPoints=800";
+            default -> base + "/" + endpoint;
+        };
+
+        LatencyStats s = stats.get(endpoint);
+        try {
+            HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(path)).GET().build(),
+                    HttpResponse.BodyHandlers.discarding());
+            s.record((System.nanoTime() - scheduledNanos) / 1000);
+            if (response.statusCode() >= 500) s.error();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            s.error();
+        }
+    }
+}
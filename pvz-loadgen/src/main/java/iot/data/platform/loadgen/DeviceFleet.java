@@ -0,0 +1,58 @@
+package iot.data.platform.loadgen;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The simulated devices: {@code envs x tenants x devicesPerTenant}, addressed by a flat index.
+ * Readings follow a slow daily cycle plus noise, and locations are stable per device.
+ */
+public final class DeviceFleet {
+    private static final double BASE_LAT = 54.8433;
+    private static final double BASE_LON = 83.0931;
+
+    private final LoadGenConfig config;
+
+    public DeviceFleet(LoadGenConfig config) {
+        this.config = config;
+    }
+
+    public int size() {
+        return config.totalDevices();
+    }
+
+    public String env(int index) {
+        return config.envs().get(index / (config.tenants().size() * config.devicesPerTenant()));
+    }
+
+    public String tenant(int index) {
+        return config.tenants().get((index / config.devicesPerTenant()) % config.tenants().size());
+    }
+
+    public String deviceId(int index) {
+        return String.format("load-%06d", index % config.devicesPerTenant());
+    }
+
+    public Reading reading(int index, long ts) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double day = 2 * Math.PI * (ts % 86_400_000L) / 86_400_000.0;
+        int seed = Integer.hashCode(index);
+        return new Reading(
+                env(index),
+                tenant(index),
+                deviceId(index),
+                ts,
+                clamp(65 + 15 * Math.sin(day) + random.nextGaussian() * 3, 0, 100),
+                8 + 10 * Math.sin(day - 1) + random.nextGaussian(),
+                BASE_LAT + ((seed * 2654435761L) % 10_000) / 1_000_000.0,
+                BASE_LON + ((seed * 40503L) % 20_000) / 1_000_000.0,
+                -50 - random.nextInt(50),
+                Math.round(random.nextDouble(-10, 10) * 10) / 10.0,
+                Math.round(random.nextDouble(20, 100) * 10) / 10.0,
+                random.nextInt(50) != 0
+        );
+    }
+
+    private static double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
+}
@@ -0,0 +1,117 @@
+package iot.data.platform.loadgen;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes readings at a fixed rate. Live readings walk the fleet round-robin with a fraction of
+ * timestamps skewed into the past; a backfill replays history for every device; bursts replay stale
+ * readings as fast as the target accepts them, like a gateway reconnecting after an outage.
+ */
+public final class IngestDriver {
+    private static final long TICK_MS = 10;
+    private static final long BACKFILL_STEP_MS = 300_000;
+
+    private final LoadGenConfig config;
+    private final DeviceFleet fleet;
+    private final IngestTarget target;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean running = true;
+
+    public IngestDriver(LoadGenConfig config, DeviceFleet fleet, IngestTarget target) {
+        this.config = config;
+        this.fleet = fleet;
+        this.target = target;
+    }
+
+    public long published() {
+        return published.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public void runLive() {
+        int cursor = 0;
+        double budget = 0;
+        long last = System.nanoTime();
+        long nextBurst = config.burstEvery().isZero()
+                ? Long.MAX_VALUE : System.currentTimeMillis() + config.burstEvery().toMillis();
+        while (running) {
+            long nowNanos = System.nanoTime();
+            budget += config.eventsPerSecond() * (nowNanos - last) / 1e9;
+            last = nowNanos;
+
+            long now = System.currentTimeMillis();
+            while (budget >= 1 && running) {
+                long ts = now;
+                if (ThreadLocalRandom.current().nextDouble() < config.outOfOrderRatio()) {
+                    ts -= ThreadLocalRandom.current().nextLong(1, config.maxSkewMs() + 1);
+                }
+                publish(fleet.reading(cursor, ts));
+                cursor = (cursor + 1) % fleet.size();
+                budget--;
+            }
+
+            if (now >= nextBurst) {
+                burst(now);
+                nextBurst = now + config.burstEvery().toMillis();
+            }
+            target.flush();
+            sleep(TICK_MS);
+        }
+    }
+
+    /** Replays {@code backfill} of history, one reading per device per five minutes, oldest first. */
+    public void runBackfill() {
+        if (config.backfill().isZero()) return;
+        long end = System.currentTimeMillis();
+        double budget = 0;
+        long last = System.nanoTime();
+        for (long ts = end - config.backfill().toMillis(); ts < end && running; ts += BACKFILL_STEP_MS) {
+            for (int i = 0; i < fleet.size() && running; i++) {
+                while (budget < 1) {
+                    target.flush();
+                    sleep(TICK_MS);
+                    long nowNanos = System.nanoTime();
+                    budget += config.backfillEventsPerSecond() * (nowNanos - last) / 1e9;
+                    last = nowNanos;
+                }
+                publish(fleet.reading(i, ts));
+                budget--;
+            }
+        }
+        target.flush();
+    }
+
+    private void burst(long now) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < config.burstEvents() && running; i++) {
+            long ts = now - config.maxSkewMs() - random.nextLong(3_600_000);
+            publish(fleet.reading(random.nextInt(fleet.size()), ts));
+        }
+    }
+
+    private void publish(Reading reading) {
+        try {
+            target.publish(reading);
+            published.increment();
+        } catch (Exception e) {
+            failed.increment();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
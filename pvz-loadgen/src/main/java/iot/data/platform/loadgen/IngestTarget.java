@@ -0,0 +1,13 @@
+package iot.data.platform.loadgen;
+
+/** Where readings are written: the MQTT broker in front of the pipeline, or Redis directly. */
+public interface IngestTarget extends AutoCloseable {
+    void publish(Reading reading) throws Exception;
+
+    /** Pushes out anything batched by {@link #publish}; called once per scheduler tick. */
+    default void flush() {
+    }
+
+    @Override
+    void close() throws Exception;
+}
@@ -0,0 +1,80 @@
+package iot.data.platform.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures end-to-end ingest lag: writes a reading with a fresh timestamp for a random device and
+ * polls {@code GET /devices/{id}} until the backend serves a {@code tsHt} at least that new.
+ */
+public final class LagProbe {
+    private static final long POLL_MS = 50;
+    private static final long TIMEOUT_MS = 120_000;
+
+    private final LoadGenConfig config;
+    private final DeviceFleet fleet;
+    private final IngestTarget target;
+    private final HttpClient http;
+    private final ExecutorService executor;
+    private final ObjectMapper json = new ObjectMapper();
+    private final LatencyStats lag = new LatencyStats();
+
+    public LagProbe(LoadGenConfig config, DeviceFleet fleet, IngestTarget target,
+                    HttpClient http, ExecutorService executor) {
+        this.config = config;
+        this.fleet = fleet;
+        this.target = target;
+        this.http = http;
+        this.executor = executor;
+    }
+
+    public LatencyStats stats() {
+        return lag;
+    }
+
+    public void probe() {
+        int index = ThreadLocalRandom.current().nextInt(fleet.size());
+        long ts = System.currentTimeMillis();
+        long sentNanos = System.nanoTime();
+        try {
+            target.publish(fleet.reading(index, ts));
+            target.flush();
+        } catch (Exception e) {
+            lag.error();
+            return;
+        }
+        executor.execute(() -> await(index, ts, sentNanos));
+    }
+
+    private void await(int index, long ts, long sentNanos) {
+        URI uri = URI.create(config.apiBase() + "/" + fleet.env(index) + "/" + fleet.tenant(index)
+                + "/devices/" + fleet.deviceId(index));
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        long deadline = sentNanos + TIMEOUT_MS * 1_000_000;
+        try {
+            while (System.nanoTime() < deadline) {
+                HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() == 200) {
+                    JsonNode tsHt = json.readTree(response.body()).get("tsHt");
+                    if (tsHt != null && tsHt.asLong() >= ts) {
+                        lag.record((System.nanoTime() - sentNanos) / 1000);
+                        return;
+                    }
+                }
+                Thread.sleep(POLL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception ignored) {
+        }
+        lag.error();
+    }
+}
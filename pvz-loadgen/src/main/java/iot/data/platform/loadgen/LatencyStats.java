@@ -0,0 +1,53 @@
+package iot.data.platform.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Latency histogram in microseconds, readable per report interval and for the whole run. */
+public final class LatencyStats {
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final LongAdder errors = new LongAdder();
+    private Histogram interval;
+
+    public void record(long micros) {
+        recorder.recordValue(Math.max(0, micros));
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    /** Swaps the interval histogram; call from the reporter thread only. */
+    public synchronized Histogram nextInterval() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return interval;
+    }
+
+    public synchronized Map<String, Object> summary() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", total.getTotalCount());
+        m.put("errors", errors.sum());
+        m.put("p50Ms", total.getValueAtPercentile(50) / 1000.0);
+        m.put("p90Ms", total.getValueAtPercentile(90) / 1000.0);
+        m.put("p99Ms", total.getValueAtPercentile(99) / 1000.0);
+        m.put("p999Ms", total.getValueAtPercentile(99.9) / 1000.0);
+        m.put("maxMs", total.getMaxValue() / 1000.0);
+        return m;
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    static String format(Histogram h) {
+        if (h.getTotalCount() == 0) return "n=0";
+        return String.format("n=%d p50=%.1fms p99=%.1fms", h.getTotalCount(),
+                h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(99) / 1000.0);
+    }
+}
@@ -0,0 +1,75 @@
+package iot.data.platform.loadgen;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line settings, given as {@code --name=value}. Every setting has a default, so a bare run
+ * drives a small fleet against a local stack started with {@code make platform-start}.
+ */
+public record LoadGenConfig(
+        String target,
+        String mqttUri,
+        String redisUri,
+        String apiBase,
+        List<String> envs,
+        List<String> tenants,
+        int devicesPerTenant,
+        double eventsPerSecond,
+        Duration duration,
+        double outOfOrderRatio,
+        long maxSkewMs,
+        Duration backfill,
+        double backfillEventsPerSecond,
+        Duration burstEvery,
+        int burstEvents,
+        double apiRequestsPerSecond,
+        int lagProbesPerSecond,
+        Duration reportInterval,
+        String output
+) {
+    public static LoadGenConfig parse(String[] args) {
+        Map<String, String> a = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                a.put(arg.substring(2), "true");
+            } else {
+                a.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return new LoadGenConfig(
+                a.getOrDefault("target", "mqtt"),
+                a.getOrDefault("mqtt-uri", "tcp://localhost:1883"),
+                a.getOrDefault("redis-uri", "redis://localhost:6379"),
+                a.getOrDefault("api-base", "http://localhost:8085/api"),
+                list(a.getOrDefault("envs", "prod")),
+                list(a.getOrDefault("tenants", "tenant-1")),
+                Integer.parseInt(a.getOrDefault("devices", "1000")),
+                Double.parseDouble(a.getOrDefault("rate", "1000")),
+                Duration.ofSeconds(Long.parseLong(a.getOrDefault("duration-s", "120"))),
+                Double.parseDouble(a.getOrDefault("out-of-order-ratio", "0.05")),
+                Long.parseLong(a.getOrDefault("max-skew-ms", "60000")),
+                Duration.ofHours(Long.parseLong(a.getOrDefault("backfill-hours", "0"))),
+                Double.parseDouble(a.getOrDefault("backfill-rate", "20000")),
+                Duration.ofSeconds(Long.parseLong(a.getOrDefault("burst-every-s", "0"))),
+                Integer.parseInt(a.getOrDefault("burst-events", "10000")),
+                Double.parseDouble(a.getOrDefault("api-rate", "200")),
+                Integer.parseInt(a.getOrDefault("lag-probes", "2")),
+                Duration.ofSeconds(Long.parseLong(a.getOrDefault("report-interval-s", "5"))),
+                a.getOrDefault("out", "scripts/loadtest/results/loadgen.json")
+        );
+    }
+
+    public int totalDevices() {
+        return envs.size() * tenants.size() * devicesPerTenant;
+    }
+
+    private static List<String> list(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package iot.data.platform.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark of the ingest pipeline and the backend read path. Writes simulated readings
+ * into MQTT ({@code --target=mqtt}) or straight into Redis ({@code --target=redis}), probes ingest lag
+ * and drives the read API concurrently, printing events/s, lag and API latency every report interval
+ * and writing a JSON summary to {@code --out} at the end.
+ * <p>
+ * Example: {@code make loadgen LOADGEN_ARGS="--devices=100000 --rate=20000 --duration-s=300"}.
+ */
+public final class LoadGenerator {
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenConfig config = LoadGenConfig.parse(args);
+        DeviceFleet fleet = new DeviceFleet(config);
+        System.out.printf("target=%s devices=%d rate=%.0f/s api-rate=%.0f/s duration=%ds%n",
+                config.target(), fleet.size(), config.eventsPerSecond(), config.apiRequestsPerSecond(),
+                config.duration().toSeconds());
+
+        try (IngestTarget target = "redis".equals(config.target())
+                ? new RedisTarget(config.redisUri()) : new MqttTarget(config.mqttUri());
+             ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(5))
+                     .executor(virtual)
+                     .build()) {
+            IngestDriver ingest = new IngestDriver(config, fleet, target);
+            ApiDriver api = new ApiDriver(config, fleet, http, virtual);
+            LagProbe lagProbe = new LagProbe(config, fleet, target, http, virtual);
+
+            ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+            Thread.ofPlatform().name("ingest-live").start(ingest::runLive);
+            Thread.ofPlatform().name("ingest-backfill").start(ingest::runBackfill);
+            Thread.ofPlatform().name("api-driver").start(api::run);
+            if (config.lagProbesPerSecond() > 0) {
+                scheduler.scheduleAtFixedRate(lagProbe::probe, 1000, 1000 / config.lagProbesPerSecond(),
+                        TimeUnit.MILLISECONDS);
+            }
+
+            Reporter reporter = new Reporter(ingest, lagProbe, api);
+            long intervalMs = config.reportInterval().toMillis();
+            scheduler.scheduleAtFixedRate(reporter::report, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+
+            Thread.sleep(config.duration().toMillis());
+            ingest.stop();
+            api.stop();
+            scheduler.shutdown();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            reporter.report();
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("config", config);
+            summary.put("published", ingest.published());
+            summary.put("publishFailures", ingest.failed());
+            summary.put("eventsPerSecond", ingest.published() / (double) config.duration().toSeconds());
+            summary.put("ingestLag", lagProbe.stats().summary());
+            Map<String, Object> apiSummary = new LinkedHashMap<>();
+            api.stats().forEach((name, s) -> apiSummary.put(name, s.summary()));
+            summary.put("api", apiSummary);
+
+            Path out = Path.of(config.output());
+            if (out.getParent() != null) Files.createDirectories(out.getParent());
+            new ObjectMapper()
+                    .findAndRegisterModules()
+                    .enable(SerializationFeature.INDENT_OUTPUT)
+                    .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                    .writeValue(out.toFile(), summary);
+            System.out.println("Summary written to " + out.toAbsolutePath());
+            virtual.shutdownNow();
+        }
+    }
+
+    private static final class Reporter {
+        private final IngestDriver ingest;
+        private final LagProbe lagProbe;
+        private final ApiDriver api;
+        private final long startNanos = System.nanoTime();
+        private long lastNanos = startNanos;
+        private long lastPublished;
+
+        private Reporter(IngestDriver ingest, LagProbe lagProbe, ApiDriver api) {
+            this.ingest = ingest;
+            this.lagProbe = lagProbe;
+            this.api = api;
+        }
+
+        private synchronized void report() {
+            long now = System.nanoTime();
+            long published = ingest.published();
+            double rate = (published - lastPublished) / ((now - lastNanos) / 1e9);
+            lastNanos = now;
+            lastPublished = published;
+
+            StringBuilder line = new StringBuilder(String.format("t=%4ds events/s=%8.0f total=%d lag[%s]",
+                    (now - startNanos) / 1_000_000_000L, rate, published,
+                    LatencyStats.format(lagProbe.stats().nextInterval())));
+            api.stats().forEach((name, s) -> line.append(' ').append(name).append('[')
+                    .append(LatencyStats.format(s.nextInterval())).append(" err=").append(s.errors()).append(']'));
+            System.out.println(line);
+        }
+    }
+}
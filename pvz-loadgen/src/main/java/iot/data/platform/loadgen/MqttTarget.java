@@ -0,0 +1,62 @@
+package iot.data.platform.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Publishes the same three topics as {@code scripts/mqtt-emulator}, so readings travel the whole
+ * path: MQTT source connector, Flink enrichment, Redis and Postgres sinks.
+ */
+public final class MqttTarget implements IngestTarget {
+    private final MqttAsyncClient client;
+    private final ObjectMapper json = new ObjectMapper();
+
+    public MqttTarget(String uri) throws Exception {
+        client = new MqttAsyncClient(uri, "pvz-loadgen-" + ProcessHandle.current().pid(), new MemoryPersistence());
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setMaxInflight(65_535);
+        options.setAutomaticReconnect(true);
+        client.connect(options).waitForCompletion();
+    }
+
+    @Override
+    public void publish(Reading r) throws Exception {
+        String prefix = r.env() + "/" + r.tenant() + "/sensors/" + r.deviceId() + "/";
+
+        Map<String, Object> humidity = base(r);
+        humidity.put("h", r.h());
+        humidity.put("t", r.t());
+        client.publish(prefix + "humidity", json.writeValueAsBytes(humidity), 0, false);
+
+        Map<String, Object> location = base(r);
+        location.put("lat", r.lat());
+        location.put("lon", r.lon());
+        client.publish(prefix + "location", json.writeValueAsBytes(location), 0, false);
+
+        Map<String, Object> state = base(r);
+        state.put("rssi", r.rssi());
+        state.put("snr", r.snr());
+        state.put("bat", r.bat());
+        state.put("online", r.online());
+        client.publish(prefix + "state", json.writeValueAsBytes(state), 0, false);
+    }
+
+    private static Map<String, Object> base(Reading r) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("d", r.deviceId());
+        m.put("ts", r.ts());
+        return m;
+    }
+
+    @Override
+    public void close() throws Exception {
+        client.disconnect().waitForCompletion();
+        client.close();
+    }
+}
@@ -0,0 +1,18 @@
+package iot.data.platform.loadgen;
+
+/** One simulated sensor report; {@code ts} is the device timestamp, possibly in the past. */
+public record Reading(
+        String env,
+        String tenant,
+        String deviceId,
+        long ts,
+        double h,
+        double t,
+        double lat,
+        double lon,
+        int rssi,
+        double snr,
+        double bat,
+        boolean online
+) {
+}
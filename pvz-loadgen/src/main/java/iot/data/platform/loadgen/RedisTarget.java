@@ -0,0 +1,62 @@
+package iot.data.platform.loadgen;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes state hashes the way the {@code mqtt-enriched-redis-sink} connector does, skipping Kafka and
+ * Flink. Isolates the backend read path under write pressure: keyspace notifications, the device
+ * index and the SSE fan-out still see every write.
+ */
+public final class RedisTarget implements IngestTarget {
+    private static final long KEY_TTL_SECONDS = 600;
+
+    private final RedisClient client;
+    private final StatefulRedisConnection<String, String> connection;
+    private final RedisAsyncCommands<String, String> commands;
+
+    public RedisTarget(String uri) {
+        client = RedisClient.create(uri);
+        connection = client.connect();
+        connection.setAutoFlushCommands(false);
+        commands = connection.async();
+    }
+
+    @Override
+    public void publish(Reading r) {
+        String key = "pvz:" + r.env() + ":" + r.tenant() + ":device:" + r.deviceId() + ":state";
+        Map<String, String> hash = new HashMap<>();
+        hash.put("d", r.deviceId());
+        hash.put("env", r.env());
+        hash.put("tenant", r.tenant());
+        hash.put("lat", Double.toString(r.lat()));
+        hash.put("lon", Double.toString(r.lon()));
+        hash.put("h", Double.toString(r.h()));
+        hash.put("t", Double.toString(r.t()));
+        hash.put("ts_ht", Long.toString(r.ts()));
+        hash.put("rssi", Integer.toString(r.rssi()));
+        hash.put("snr", Double.toString(r.snr()));
+        hash.put("bat", Double.toString(r.bat()));
+        hash.put("online", Boolean.toString(r.online()));
+        hash.put("ts_state", Long.toString(r.ts()));
+        hash.put("redis_key", key);
+        commands.hset(key, hash);
+        commands.expire(key, KEY_TTL_SECONDS);
+    }
+
+    @Override
+    public void flush() {
+        connection.flushCommands();
+    }
+
+    @Override
+    public void close() {
+        connection.flushCommands();
+        connection.close();
+        client.shutdown();
+    }
+}
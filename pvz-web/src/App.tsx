@@ -1,6 +1,6 @@
 import { useEffect, useState } from 'react';
-import { fetchDevices } from './api/client';
-import type { DeviceState } from './api/types';
+import { openDeviceStream } from './api/client';
+import type { DeviceState, DroughtSummary, RecentSummary } from './api/types';
 import MapView from './components/MapView';
 import DeviceDetails from './components/DeviceDetails';
 import DeviceCharts from './components/DeviceCharts';
@@ -15,59 +15,52 @@ function App() {
     const [initialLoading, setInitialLoading] = useState(true);
     const [error, setError] = useState<string | null>(null);
     const [selectedDeviceId, setSelectedDeviceId] = useState<string | null>(null);
+    const [summary, setSummary] = useState<RecentSummary | null>(null);
+    const [drought, setDrought] = useState<DroughtSummary | null>(null);
 
     useEffect(() => {
-        let cancelled = false;
+        setInitialLoading(true);
+        setError(null);
+
+        const close = openDeviceStream(DEFAULT_ENV, DEFAULT_TENANT, {
+            onSnapshot: (snapshot) => {
+                setDevices(snapshot);
+                setInitialLoading(false);
+                setError(null);
+            },
+            onDevices: (changed) =>
+                setDevices((prev) => {
+                    const byId = new Map(prev.map((d) => [d.deviceId, d]));
+                    for (const d of changed) byId.set(d.deviceId, d);
+                    return Array.from(byId.values());
+                }),
+            onRemoved: (ids) =>
+                setDevices((prev) => prev.filter((d) => !ids.includes(d.deviceId))),
+            onSummary: setSummary,
+            onDrought: setDrought,
+            onError: (message) => {
+                setError(message);
+                setInitialLoading(false);
+            },
+        });
+
+        return close;
+    }, []);
 
-        async function loadDevices(first: boolean) {
-            try {
-                if (first) {
-                    setInitialLoading(true);
-                    setError(null);
-                }
-
-                const res = await fetchDevices(DEFAULT_ENV, DEFAULT_TENANT);
-                if (cancelled) return;
-
-                setDevices(res);
-
-                if (res.length > 0) {
-                    const stillExists = res.some(
-                        (d) => d.deviceId === selectedDeviceId
-                    );
-                    if (!stillExists) {
-                        setSelectedDeviceId(res[0].deviceId);
-                    }
-                } else {
-                    setSelectedDeviceId(null);
-                }
-            } catch (e: any) {
-                if (!cancelled) {
-                    setError(e?.message ?? 'Ошибка загрузки устройств');
-                }
-            } finally {
-                if (first && !cancelled) {
-                    setInitialLoading(false);
-                }
-            }
+    useEffect(() => {
+        if (devices.length === 0) {
+            setSelectedDeviceId(null);
+        } else if (!devices.some((d) => d.deviceId === selectedDeviceId)) {
+            setSelectedDeviceId(devices[0].deviceId);
         }
-
-        loadDevices(true);
-
-        const id = setInterval(() => loadDevices(false), 10_000);
-
-        return () => {
-            cancelled = true;
-            clearInterval(id);
-        };
-    }, [selectedDeviceId]);
+    }, [devices, selectedDeviceId]);
 
     const selectedDevice =
         devices.find((d) => d.deviceId === selectedDeviceId) ?? null;
 
     return (
         <div className="app">
-            <OverviewStrip envName={DEFAULT_ENV} tenantId={DEFAULT_TENANT} />
+            <OverviewStrip summary={summary} drought={drought} />
 
             <main className="app-main">
                 <div className="map-panel">
@@ -78,7 +71,8 @@ function App() {
                         <div className="status status-error">Ошибка: {error}</div>
                     )}
                     <MapView
-                        devices={devices}
+                        envName={DEFAULT_ENV}
+                        tenantId={DEFAULT_TENANT}
                         selectedDeviceId={selectedDeviceId}
                         onDeviceClick={setSelectedDeviceId}
                     />
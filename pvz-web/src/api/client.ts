@@ -5,6 +5,7 @@ import type {
     MetricsBucket,
     DeviceMetricsPoint,
     RecentSummary, DroughtSummary, DroughtStreak,
+    MapBounds, MapClusters, MapDevices,
 } from './types';
 
 export async function fetchDevices(
@@ -42,7 +43,8 @@ export async function fetchDeviceMetrics(
     deviceId: string,
     bucket: MetricsBucket,
     fromTs?: number,
-    toTs?: number
+    toTs?: number,
+    maxPoints?: number
 ): Promise<DeviceMetricsResponse> {
     const params = new URLSearchParams();
     params.set('bucket', bucket.toUpperCase());
@@ -53,6 +55,9 @@ export async function fetchDeviceMetrics(
     if (toTs != null) {
         params.set('to', String(toTs));
     }
+    if (maxPoints != null) {
+        params.set('maxPoints', String(maxPoints));
+    }
 
     const res = await fetch(
         `${env.apiBaseUrl}/${encodeURIComponent(envName)}/${encodeURIComponent(
@@ -136,3 +141,104 @@ export async function fetchDeviceDroughtStreak(
     return res.json();
 }
 
+export async function fetchMapDevices(
+    envName: string,
+    tenantId: string,
+    bounds: MapBounds,
+    limit: number,
+    signal?: AbortSignal
+): Promise<MapDevices> {
+    const params = new URLSearchParams({
+        south: String(bounds.south),
+        west: String(bounds.west),
+        north: String(bounds.north),
+        east: String(bounds.east),
+        limit: String(limit),
+    });
+
+    const res = await fetch(
+        `${env.apiBaseUrl}/${encodeURIComponent(envName)}/${encodeURIComponent(
+            tenantId
+        )}/devices/map?${params.toString()}`,
+        { signal }
+    );
+
+    if (!res.ok) {
+        throw new Error(`Failed to load map devices: ${res.status}`);
+    }
+
+    return res.json();
+}
+
+export async function fetchMapClusters(
+    envName: string,
+    tenantId: string,
+    bounds: MapBounds,
+    zoom: number,
+    signal?: AbortSignal
+): Promise<MapClusters> {
+    const params = new URLSearchParams({
+        south: String(bounds.south),
+        west: String(bounds.west),
+        north: String(bounds.north),
+        east: String(bounds.east),
+        zoom: String(zoom),
+    });
+
+    const res = await fetch(
+        `${env.apiBaseUrl}/${encodeURIComponent(envName)}/${encodeURIComponent(
+            tenantId
+        )}/devices/map/clusters?${params.toString()}`,
+        { signal }
+    );
+
+    if (!res.ok) {
+        throw new Error(`Failed to load map clusters: ${res.status}`);
+    }
+
+    return res.json();
+}
+
+export type DeviceStreamHandlers = {
+    onSnapshot: (devices: DeviceState[]) => void;
+    onDevices: (devices: DeviceState[]) => void;
+    onRemoved: (deviceIds: string[]) => void;
+    onSummary: (summary: RecentSummary) => void;
+    onDrought: (drought: DroughtSummary) => void;
+    onError: (message: string) => void;
+};
+
+export function openDeviceStream(
+    envName: string,
+    tenantId: string,
+    handlers: DeviceStreamHandlers
+): () => void {
+    const source = new EventSource(
+        `${env.apiBaseUrl}/${encodeURIComponent(envName)}/${encodeURIComponent(
+            tenantId
+        )}/devices/stream`
+    );
+
+    source.addEventListener('snapshot', (e) =>
+        handlers.onSnapshot(JSON.parse((e as MessageEvent).data))
+    );
+    source.addEventListener('devices', (e) =>
+        handlers.onDevices(JSON.parse((e as MessageEvent).data))
+    );
+    source.addEventListener('removed', (e) =>
+        handlers.onRemoved(JSON.parse((e as MessageEvent).data))
+    );
+    source.addEventListener('summary', (e) =>
+        handlers.onSummary(JSON.parse((e as MessageEvent).data))
+    );
+    source.addEventListener('drought', (e) =>
+        handlers.onDrought(JSON.parse((e as MessageEvent).data))
+    );
+    source.onerror = () => {
+        if (source.readyState === EventSource.CLOSED) {
+            handlers.onError('Device stream closed');
+        }
+    };
+
+    return () => source.close();
+}
@@ -60,3 +60,34 @@ export interface DroughtStreak {
     lastH: number | null;
 }
 
+
+export interface MapBounds {
+    south: number;
+    west: number;
+    north: number;
+    east: number;
+}
+
+export interface MapDevices {
+    env: string;
+    tenantId: string;
+    truncated: boolean;
+    devices: DeviceState[];
+}
+
+export interface MapCluster {
+    lat: number;
+    lon: number;
+    count: number;
+    online: number;
+    avgHumidity: number | null;
+    deviceId: string | null;
+}
+
+export interface MapClusters {
+    env: string;
+    tenantId: string;
+    zoom: number;
+    devices: number;
+    clusters: MapCluster[];
+}
@@ -19,6 +19,9 @@ type Props = {
     deviceId: string | null;
 };
 
+// Roughly one point per horizontal pixel of the chart; the backend downsamples longer ranges.
+const MAX_CHART_POINTS = 800;
+
 function toLocalInputValue(date: Date): string {
     const pad = (n: number) => n.toString().padStart(2, '0');
     return `${date.getFullYear()}-${pad(date.getMonth() + 1)}-${pad(
@@ -68,7 +71,8 @@ const DeviceCharts = ({ envName, tenantId, deviceId }: Props) => {
                     deviceId!,
                     bucket,
                     fromTs,
-                    toTs
+                    toTs,
+                    MAX_CHART_POINTS
                 );
                 if (!cancelled) {
                     setMetrics(data);
@@ -1,14 +1,37 @@
-import { MapContainer, TileLayer, Marker, Tooltip } from 'react-leaflet';
+import { useEffect, useState } from 'react';
+import {
+    MapContainer,
+    TileLayer,
+    Marker,
+    Tooltip,
+    CircleMarker,
+    useMap,
+    useMapEvents,
+} from 'react-leaflet';
 import L, { Icon } from 'leaflet';
-import type { DeviceState } from '../api/types';
+import { fetchMapClusters, fetchMapDevices } from '../api/client';
+import type { DeviceState, MapBounds, MapCluster } from '../api/types';
 import './MapView.css';
 
 type MapViewProps = {
-    devices: DeviceState[];
+    envName: string;
+    tenantId: string;
     selectedDeviceId: string | null;
     onDeviceClick: (deviceId: string) => void;
 };
 
+type Viewport = {
+    bounds: MapBounds;
+    zoom: number;
+};
+
+// Below this zoom the map shows server-side clusters for the viewport instead of one marker per
+// device, so the number of markers depends on the screen rather than on the fleet. At and above it
+// the devices inside the viewport come from the bounding-box endpoint, capped at MAP_DEVICE_LIMIT.
+const CLUSTER_MAX_ZOOM = 16;
+const MAP_REFRESH_MS = 10_000;
+const MAP_DEVICE_LIMIT = 500;
+
 const sensorOnlineIcon: Icon = L.icon({
     iconUrl: '/icons/sensor-online.png',
     iconSize: [100, 100],
@@ -34,7 +57,200 @@ function formatRssi(device: DeviceState): string {
     return `RSSI ${device.rssi} dBm`;
 }
 
-const MapView = ({ devices, selectedDeviceId, onDeviceClick }: MapViewProps) => {
+function wrapLon(lon: number): number {
+    return ((((lon + 180) % 360) + 360) % 360) - 180;
+}
+
+function toBounds(map: L.Map): MapBounds {
+    const b = map.getBounds();
+    const south = Math.max(-90, b.getSouth());
+    const north = Math.min(90, b.getNorth());
+    if (b.getEast() - b.getWest() >= 360) {
+        return { south, west: -180, north, east: 180 };
+    }
+    return { south, west: wrapLon(b.getWest()), north, east: wrapLon(b.getEast()) };
+}
+
+function clusterColor(cluster: MapCluster): string {
+    const ratio = cluster.count === 0 ? 0 : cluster.online / cluster.count;
+    if (ratio >= 0.9) return '#22c55e';
+    if (ratio >= 0.5) return '#eab308';
+    return '#ef4444';
+}
+
+const ViewportTracker = ({ onChange }: { onChange: (viewport: Viewport) => void }) => {
+    const map = useMapEvents({
+        moveend: () => onChange({ bounds: toBounds(map), zoom: map.getZoom() }),
+    });
+
+    useEffect(() => {
+        onChange({ bounds: toBounds(map), zoom: map.getZoom() });
+    }, [map, onChange]);
+
+    return null;
+};
+
+type ClusterLayerProps = {
+    envName: string;
+    tenantId: string;
+    viewport: Viewport;
+    onDeviceClick: (deviceId: string) => void;
+};
+
+const ClusterLayer = ({ envName, tenantId, viewport, onDeviceClick }: ClusterLayerProps) => {
+    const map = useMap();
+    const [clusters, setClusters] = useState<MapCluster[]>([]);
+
+    useEffect(() => {
+        const controller = new AbortController();
+        const load = () =>
+            fetchMapClusters(envName, tenantId, viewport.bounds, viewport.zoom, controller.signal)
+                .then((res) => setClusters(res.clusters))
+                .catch((e) => {
+                    if (e.name !== 'AbortError') setClusters([]);
+                });
+        load();
+        const timer = window.setInterval(load, MAP_REFRESH_MS);
+        return () => {
+            window.clearInterval(timer);
+            controller.abort();
+        };
+    }, [envName, tenantId, viewport]);
+
+    return (
+        <>
+            {clusters.map((cluster) => (
+                <CircleMarker
+                    key={`${cluster.lat}:${cluster.lon}:${cluster.count}`}
+                    center={[cluster.lat, cluster.lon]}
+                    radius={Math.min(40, 10 + Math.log2(cluster.count) * 4)}
+                    pathOptions={{
+                        color: clusterColor(cluster),
+                        fillColor: clusterColor(cluster),
+                        fillOpacity: 0.6,
+                    }}
+                    eventHandlers={{
+                        click: () => {
+                            if (cluster.deviceId != null) {
+                                onDeviceClick(cluster.deviceId);
+                            }
+                            map.setView(
+                                [cluster.lat, cluster.lon],
+                                Math.min(CLUSTER_MAX_ZOOM, viewport.zoom + 2)
+                            );
+                        },
+                    }}
+                >
+                    <Tooltip direction="top" className="device-tooltip">
+                        <div className="device-tooltip-id">
+                            {cluster.deviceId ?? `${cluster.count}`}
+                        </div>
+                        <div className="device-tooltip-values">
+                            online {cluster.online}/{cluster.count}
+                        </div>
+                        <div className="device-tooltip-rssi">
+                            {cluster.avgHumidity != null
+                                ? `h ${cluster.avgHumidity.toFixed(0)}%`
+                                : 'h —'}
+                        </div>
+                    </Tooltip>
+                </CircleMarker>
+            ))}
+        </>
+    );
+};
+
+type DeviceLayerProps = {
+    envName: string;
+    tenantId: string;
+    viewport: Viewport;
+    selectedDeviceId: string | null;
+    onDeviceClick: (deviceId: string) => void;
+    onTruncated: (truncated: boolean) => void;
+};
+
+const DeviceLayer = ({
+    envName,
+    tenantId,
+    viewport,
+    selectedDeviceId,
+    onDeviceClick,
+    onTruncated,
+}: DeviceLayerProps) => {
+    const [devices, setDevices] = useState<DeviceState[]>([]);
+
+    useEffect(() => {
+        const controller = new AbortController();
+        const load = () =>
+            fetchMapDevices(envName, tenantId, viewport.bounds, MAP_DEVICE_LIMIT, controller.signal)
+                .then((res) => {
+                    setDevices(res.devices);
+                    onTruncated(res.truncated);
+                })
+                .catch((e) => {
+                    if (e.name !== 'AbortError') {
+                        setDevices([]);
+                        onTruncated(false);
+                    }
+                });
+        load();
+        const timer = window.setInterval(load, MAP_REFRESH_MS);
+        return () => {
+            window.clearInterval(timer);
+            controller.abort();
+        };
+    }, [envName, tenantId, viewport, onTruncated]);
+
+    return (
+        <>
+            {devices
+                .filter((d) => d.lat != null && d.lon != null)
+                .map((device) => (
+                    <Marker
+                        key={device.deviceId}
+                        position={[device.lat!, device.lon!]}
+                        icon={
+                            device.online === false || device.online === null
+                                ? sensorOfflineIcon
+                                : sensorOnlineIcon
+                        }
+                        eventHandlers={{
+                            click: () => onDeviceClick(device.deviceId),
+                        }}
+                        opacity={
+                            selectedDeviceId &&
+                            selectedDeviceId !== device.deviceId
+                                ? 0.6
+                                : 1
+                        }
+                    >
+                        <Tooltip
+                            permanent
+                            direction="top"
+                            offset={[0, -28]}
+                            className="device-tooltip"
+                        >
+                            <div className="device-tooltip-id">
+                                {device.deviceId}
+                            </div>
+                            <div className="device-tooltip-values">
+                                {formatShort(device)}
+                            </div>
+                            <div className="device-tooltip-rssi">
+                                {formatRssi(device)}
+                            </div>
+                        </Tooltip>
+                    </Marker>
+                ))}
+        </>
+    );
+};
+
+const MapView = ({ envName, tenantId, selectedDeviceId, onDeviceClick }: MapViewProps) => {
+    const [viewport, setViewport] = useState<Viewport | null>(null);
+    const [truncated, setTruncated] = useState(false);
+    const clustered = viewport != null && viewport.zoom < CLUSTER_MAX_ZOOM;
+
     return (
         <div className="map-wrapper">
             <MapContainer
@@ -44,47 +260,33 @@ const MapView = ({ devices, selectedDeviceId, onDeviceClick }: MapViewProps) =>
                 attributionControl={false}
             >
                 <TileLayer url="https://{s}.tile.openstreetmap.org/{z}/{x}/{y}.png" />
+                <ViewportTracker onChange={setViewport} />
 
-                {devices
-                    .filter((d) => d.lat != null && d.lon != null)
-                    .map((device) => (
-                        <Marker
-                            key={device.deviceId}
-                            position={[device.lat!, device.lon!]}
-                            icon={
-                                device.online === false || device.online === null
-                                    ? sensorOfflineIcon
-                                    : sensorOnlineIcon
-                            }
-                            eventHandlers={{
-                                click: () => onDeviceClick(device.deviceId),
-                            }}
-                            opacity={
-                                selectedDeviceId &&
-                                selectedDeviceId !== device.deviceId
-                                    ? 0.6
-                                    : 1
-                            }
-                        >
-                            <Tooltip
-                                permanent
-                                direction="top"
-                                offset={[0, -28]}
-                                className="device-tooltip"
-                            >
-                                <div className="device-tooltip-id">
-                                    {device.deviceId}
-                                </div>
-                                <div className="device-tooltip-values">
-                                    {formatShort(device)}
-                                </div>
-                                <div className="device-tooltip-rssi">
-                                    {formatRssi(device)}
-                                </div>
-                            </Tooltip>
-                        </Marker>
-                    ))}
+                {clustered && (
+                    <ClusterLayer
+                        envName={envName}
+                        tenantId={tenantId}
+                        viewport={viewport}
+                        onDeviceClick={onDeviceClick}
+                    />
+                )}
+
+                {viewport != null && !clustered && (
+                    <DeviceLayer
+                        envName={envName}
+                        tenantId={tenantId}
+                        viewport={viewport}
+                        selectedDeviceId={selectedDeviceId}
+                        onDeviceClick={onDeviceClick}
+                        onTruncated={setTruncated}
+                    />
+                )}
             </MapContainer>
+            {!clustered && truncated && (
+                <div className="map-truncated">
+                    Showing the first {MAP_DEVICE_LIMIT} devices in view, zoom in to see all
+                </div>
+            )}
         </div>
     );
 };
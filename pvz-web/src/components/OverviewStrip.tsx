@@ -1,11 +1,9 @@
-import {useEffect, useState} from 'react';
-import {fetchDroughtSummary, fetchRecentSummary} from '../api/client';
 import type {DroughtSummary, RecentSummary} from '../api/types';
 import './OverviewStrip.css';
 
 type Props = {
-    envName: string;
-    tenantId: string;
+    summary: RecentSummary | null;
+    drought: DroughtSummary | null;
 };
 
 function formatNumber(value: number | null, digits = 1): string {
@@ -13,12 +11,7 @@ function formatNumber(value: number | null, digits = 1): string {
     return value.toFixed(digits);
 }
 
-const OverviewStrip = ({envName, tenantId}: Props) => {
-    const [summary, setSummary] = useState<RecentSummary | null>(null);
-    const [loading, setLoading] = useState(false);
-    const [error, setError] = useState<string | null>(null);
-    const [drought, setDrought] = useState<DroughtSummary | null>(null);
-
+const OverviewStrip = ({summary, drought}: Props) => {
     const DROUGHT_DAYS_RED = 10;
 
     function getDroughtLevel(drought: DroughtSummary | null): 'ok' | 'warn' | 'bad' {
@@ -28,74 +21,9 @@ const OverviewStrip = ({envName, tenantId}: Props) => {
         return 'warn';
     }
 
-    useEffect(() => {
-        let cancelled = false;
-
-        async function load() {
-            try {
-                setLoading(true);
-                setError(null);
-
-                const [summaryData, droughtData] = await Promise.all([
-                    fetchRecentSummary(envName, tenantId),
-                    fetchDroughtSummary(envName, tenantId),
-                ]);
-
-                if (!cancelled) {
-                    setSummary(summaryData);
-                    setDrought(droughtData);
-                }
-            } catch (e: any) {
-                if (!cancelled) setError(e?.message ?? 'Ошибка загрузки обзора');
-            } finally {
-                if (!cancelled) setLoading(false);
-            }
-        }
-
-        load();
-        const id = setInterval(load, 30_000);
-        return () => {
-            cancelled = true;
-            clearInterval(id);
-        };
-    }, [envName, tenantId]);
-
-    useEffect(() => {
-        let cancelled = false;
-
-        async function load() {
-            try {
-                setLoading(true);
-                setError(null);
-                const data = await fetchRecentSummary(envName, tenantId);
-                if (!cancelled) {
-                    setSummary(data);
-                }
-            } catch (e: any) {
-                if (!cancelled) {
-                    setError(e?.message ?? 'Ошибка загрузки обзора');
-                }
-            } finally {
-                if (!cancelled) {
-                    setLoading(false);
-                }
-            }
-        }
-
-        load();
-
-        const id = setInterval(load, 30_000);
-
-        return () => {
-            cancelled = true;
-            clearInterval(id);
-        };
-    }, [envName, tenantId]);
-
     return (
         <div className="overview-strip">
-            {loading && !summary && <span>Обновление данных за последние 10 минут…</span>}
-            {error && !summary && <span className="overview-error">Ошибка: {error}</span>}
+            {!summary && <span>Обновление данных за последние 10 минут…</span>}
             {summary && (
                 <div className="overview-content">
                     <span className="overview-main">
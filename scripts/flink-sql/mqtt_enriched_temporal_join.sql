@@ -1,17 +1,24 @@
 SET
 'execution.checkpointing.interval' = '10 s';
+SET
+'parallelism.default' = '2';
 
 DROP TABLE IF EXISTS mqtt_humidity;
 DROP TABLE IF EXISTS mqtt_location_dim;
 DROP TABLE IF EXISTS mqtt_state_dim;
 DROP TABLE IF EXISTS mqtt_enriched;
 
+-- The MQTT source keys every record by its MQTT topic, {env}/{tenant}/sensors/{device}/{kind};
+-- env and tenant are taken from there rather than from the payload.
 CREATE TABLE mqtt_humidity
 (
+    mqtt_topic STRING,
     d  STRING,
     ts BIGINT,
     h DOUBLE,
     t DOUBLE,
+    env AS SPLIT_INDEX(mqtt_topic, '/', 0),
+    tenant AS SPLIT_INDEX(mqtt_topic, '/', 1),
     rt AS TO_TIMESTAMP_LTZ(ts, 3),
     WATERMARK FOR rt AS rt - INTERVAL '5' SECOND
 ) WITH (
@@ -20,30 +27,36 @@ CREATE TABLE mqtt_humidity
       'properties.bootstrap.servers' = 'kafka:9092',
       'properties.group.id' = 'flink-mqtt-humidity',
       'scan.startup.mode' = 'earliest-offset',
-      'format' = 'avro-confluent',
-      'avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081'
+      'key.format' = 'raw',
+      'key.fields' = 'mqtt_topic',
+      'value.format' = 'avro-confluent',
+      'value.avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081',
+      'value.fields-include' = 'EXCEPT_KEY'
       );
 
 CREATE TABLE mqtt_location_dim
 (
+    mqtt_topic STRING,
     d  STRING,
     ts BIGINT,
     lat DOUBLE,
     lon DOUBLE,
     rt AS TO_TIMESTAMP_LTZ(ts, 3),
     WATERMARK FOR rt AS rt - INTERVAL '5' SECOND,
-    PRIMARY KEY (d) NOT ENFORCED
+    PRIMARY KEY (mqtt_topic) NOT ENFORCED
 ) WITH (
       'connector' = 'upsert-kafka',
       'topic' = 'mqtt_location',
       'properties.bootstrap.servers' = 'kafka:9092',
       'key.format' = 'raw',
       'value.format' = 'avro-confluent',
-      'value.avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081'
+      'value.avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081',
+      'value.fields-include' = 'EXCEPT_KEY'
       );
 
 CREATE TABLE mqtt_state_dim
 (
+    mqtt_topic STRING,
     d      STRING,
     ts     BIGINT,
     rssi   BIGINT,
@@ -52,14 +65,15 @@ CREATE TABLE mqtt_state_dim
     online BOOLEAN,
     rt AS TO_TIMESTAMP_LTZ(ts, 3),
     WATERMARK FOR rt AS rt - INTERVAL '5' SECOND,
-    PRIMARY KEY (d) NOT ENFORCED
+    PRIMARY KEY (mqtt_topic) NOT ENFORCED
 ) WITH (
       'connector' = 'upsert-kafka',
       'topic' = 'mqtt_state',
       'properties.bootstrap.servers' = 'kafka:9092',
       'key.format' = 'raw',
       'value.format' = 'avro-confluent',
-      'value.avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081'
+      'value.avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081',
+      'value.fields-include' = 'EXCEPT_KEY'
       );
 
 CREATE TABLE mqtt_enriched
@@ -82,8 +96,11 @@ CREATE TABLE mqtt_enriched
       'connector' = 'kafka',
       'topic' = 'mqtt_enriched',
       'properties.bootstrap.servers' = 'kafka:9092',
-      'format' = 'avro-confluent',
-      'avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081'
+      'key.format' = 'raw',
+      'key.fields' = 'redis_key',
+      'value.format' = 'avro-confluent',
+      'value.avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081',
+      'value.fields-include' = 'ALL'
       );
 
 CREATE TABLE device_measurements
@@ -99,35 +116,40 @@ CREATE TABLE device_measurements
       'connector' = 'kafka',
       'topic' = 'device_measurements',
       'properties.bootstrap.servers' = 'kafka:9092',
-      'format' = 'avro-confluent',
-      'avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081'
+      'key.format' = 'json',
+      'key.fields' = 'env;tenant_id;device_id',
+      'value.format' = 'avro-confluent',
+      'value.avro-confluent.schema-registry.url' = 'http://kafka-schema-registry:8081',
+      'value.fields-include' = 'ALL'
       );
 
 BEGIN STATEMENT
 SET;
 
 INSERT INTO mqtt_enriched
-SELECT h.d                                                AS d,
-       'prod'                                             AS env,
-       'tenant-1'                                         AS tenant,
-       l.lat                                              AS lat,
-       l.lon                                              AS lon,
-       h.h                                                AS h,
-       h.t                                                AS t,
-       h.ts                                               AS ts_ht,
-       s.rssi                                             AS rssi,
-       s.snr                                              AS snr,
-       s.bat                                              AS bat,
-       s.online                                           AS online,
-       s.ts                                               AS ts_state,
-       CONCAT('pvz:prod:tenant-1:device:', h.d, ':state') AS redis_key
+SELECT h.d                                                         AS d,
+       h.env                                                       AS env,
+       h.tenant                                                    AS tenant,
+       l.lat                                                       AS lat,
+       l.lon                                                       AS lon,
+       h.h                                                         AS h,
+       h.t                                                         AS t,
+       h.ts                                                        AS ts_ht,
+       s.rssi                                                      AS rssi,
+       s.snr                                                       AS snr,
+       s.bat                                                       AS bat,
+       s.online                                                    AS online,
+       s.ts                                                        AS ts_state,
+       CONCAT('pvz:', h.env, ':', h.tenant, ':device:', h.d, ':state') AS redis_key
 FROM mqtt_humidity h
-         LEFT JOIN mqtt_location_dim FOR SYSTEM_TIME AS OF h.rt AS l ON h.d = l.d
-         LEFT JOIN mqtt_state_dim FOR SYSTEM_TIME AS OF h.rt AS s ON h.d = s.d;
+         LEFT JOIN mqtt_location_dim FOR SYSTEM_TIME AS OF h.rt AS l
+                   ON l.mqtt_topic = CONCAT(h.env, '/', h.tenant, '/sensors/', h.d, '/location')
+         LEFT JOIN mqtt_state_dim FOR SYSTEM_TIME AS OF h.rt AS s
+                   ON s.mqtt_topic = CONCAT(h.env, '/', h.tenant, '/sensors/', h.d, '/state');
 
 INSERT INTO device_measurements
-SELECT 'prod'                                          AS env,
-       'tenant-1'                                      AS tenant_id,
+SELECT h.env                                           AS env,
+       h.tenant                                        AS tenant_id,
        h.d                                             AS device_id,
        CAST(TO_TIMESTAMP_LTZ(h.ts, 3) AS TIMESTAMP(3)) AS ts,
        h.t                                             AS temperature,
@@ -137,6 +159,7 @@ SELECT 'prod'                                          AS env,
            ELSE 'ERROR'
            END                                         AS status
 FROM mqtt_humidity h
-         LEFT JOIN mqtt_state_dim FOR SYSTEM_TIME AS OF h.rt AS s ON h.d = s.d;
+         LEFT JOIN mqtt_state_dim FOR SYSTEM_TIME AS OF h.rt AS s
+                   ON s.mqtt_topic = CONCAT(h.env, '/', h.tenant, '/sensors/', h.d, '/state');
 
 END;
\ No newline at end of file
@@ -0,0 +1,67 @@
+// Simulates dashboards opening in a burst: every iteration issues the same requests the web app
+// makes on first load. Run via `make loadtest-compare` to measure platform vs virtual threads, or
+// `make loadtest-reactive` to compare the servlet handlers with the reactive ones under /api/reactive.
+import http from 'k6/http';
+import { check } from 'k6';
+import exec from 'k6/execution';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8085/api';
+// Defaults match what the emulator publishes (scripts/docker-compose.yml); the Makefile passes ENV/TENANT.
+const ENV_NAME = __ENV.PVZ_ENV || 'prod';
+const TENANT = __ENV.PVZ_TENANT || 'tenant-1';
+const MODE = __ENV.MODE || 'unknown';
+
+export const options = {
+    scenarios: {
+        dashboards: {
+            executor: 'ramping-arrival-rate',
+            startRate: 50,
+            timeUnit: '1s',
+            preAllocatedVUs: 500,
+            maxVUs: 2000,
+            stages: [
+                { target: 200, duration: '30s' },
+                { target: 800, duration: '60s' },
+                { target: 800, duration: '60s' },
+            ],
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const res = http.get(`${BASE_URL}/${ENV_NAME}/${TENANT}/devices`);
+    const devices = res.status === 200 ? res.json() : [];
+    if (devices.length === 0) {
+        // An empty tenant turns every request into a no-op and the comparison into noise.
+        exec.test.abort(`No devices in ${ENV_NAME}/${TENANT}; start the emulator or set ENV/TENANT`);
+    }
+    return { deviceIds: devices.map((d) => d.deviceId) };
+}
+
+export default function (data) {
+    const base = `${BASE_URL}/${ENV_NAME}/${TENANT}/devices`;
+    const requests = [
+        ['GET', base],
+        ['GET', `${base}/recent`],
+        ['GET', `${base}/summary/recent`],
+        ['GET', `${base}/summary/drought`],
+    ];
+    if (data.deviceIds.length > 0) {
+        const deviceId = data.deviceIds[Math.floor(Math.random() * data.deviceIds.length)];
+        requests.push(['GET', `${base}/${encodeURIComponent(deviceId)}/metrics?bucket=HOUR`]);
+    }
+
+    for (const res of http.batch(requests)) {
+        check(res, { 'status is 200': (r) => r.status === 200 });
+    }
+}
+
+export function handleSummary(data) {
+    return {
+        [`/results/dashboard-${MODE}.json`]: JSON.stringify(data, null, 2),
+        stdout: `${MODE}: reqs/s=${data.metrics.http_reqs.values.rate.toFixed(1)} `
+            + `p99=${data.metrics.http_req_duration.values['p(99)'].toFixed(1)}ms `
+            + `failed=${(data.metrics.http_req_failed.values.rate * 100).toFixed(2)}%\n`,
+    };
+}